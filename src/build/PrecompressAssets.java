@@ -0,0 +1,191 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Nén sẵn tài nguyên tĩnh lúc build
+ * (chạy bằng source launcher: java PrecompressAssets.java <thư mục static> [file manifest])
+ * - .gz: java.util.zip, mức nén tối đa, luôn có
+ * - .br: gọi lệnh brotli nếu máy build có cài, không có thì bỏ qua (EncodedResourceResolver dùng .gz hoặc file gốc)
+ * Manifest ghi kích thước + thời gian sửa của file gốc lúc nén: chỉ nén lại khi file gốc khác đi
+ * (kể cả bị thay bằng bản cũ hơn). Bỏ file nhỏ / file nén không lợi, và xóa bản nén cũ của file
+ * đã bị xóa hoặc không còn đủ điều kiện nén để server không trả nội dung lỗi thời
+ */
+public class PrecompressAssets {
+
+    private static final Set<String> EXTENSIONS = Set.of("js", "css", "svg", "json", "txt");
+    private static final long MIN_SIZE = 1024;
+    private static final List<String> SUFFIXES = List.of(".gz", ".br");
+
+    // Đường dẫn bản nén (tương đối với thư mục static) -> "kích thước:thời gian sửa" của file gốc lúc nén
+    private static final Properties manifest = new Properties();
+    private static Path root;
+
+    public static void main(String[] args) throws IOException {
+        root = Path.of(args.length > 0 ? args[0] : "target/classes/static");
+        Path manifestFile = Path.of(args.length > 1 ? args[1] : "target/precompress-assets.properties");
+        if (!Files.isDirectory(root)) {
+            System.out.println("[assets] " + root + " not found, nothing to compress");
+            return;
+        }
+        if (Files.exists(manifestFile)) {
+            try (InputStream in = Files.newInputStream(manifestFile)) {
+                manifest.load(in);
+            }
+        }
+        boolean brotli = brotliAvailable();
+        List<Path> files;
+        List<Path> variants;
+        try (Stream<Path> walk = Files.walk(root)) {
+            List<Path> all = walk.filter(Files::isRegularFile).toList();
+            files = all.stream().filter(PrecompressAssets::compressible).toList();
+            variants = all.stream().filter(PrecompressAssets::isVariant).toList();
+        }
+        int removed = removeStale(variants);
+        int gzipped = 0;
+        int brotlied = 0;
+        for (Path file : files) {
+            if (gzip(file)) {
+                gzipped++;
+            }
+            if (brotli && brotli(file)) {
+                brotlied++;
+            }
+        }
+        Files.createDirectories(manifestFile.toAbsolutePath().getParent());
+        try (OutputStream out = Files.newOutputStream(manifestFile)) {
+            manifest.store(out, "PrecompressAssets: source size:mtime per compressed variant");
+        }
+        System.out.printf("[assets] %d files: %d gzip, %d brotli, %d stale removed%s%n", files.size(), gzipped,
+                brotlied, removed, brotli ? "" : " (brotli CLI not found, skipped)");
+    }
+
+    /**
+     * Xóa .gz/.br mà file gốc đã bị xóa hoặc không còn đủ điều kiện nén (nhỏ hơn MIN_SIZE...)
+     */
+    private static int removeStale(List<Path> variants) throws IOException {
+        int removed = 0;
+        for (Path variant : variants) {
+            Path source = source(variant);
+            if (!Files.isRegularFile(source) || !compressible(source)) {
+                Files.delete(variant);
+                manifest.remove(key(variant));
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    private static boolean compressible(Path file) {
+        try {
+            return hasCompressibleExtension(file) && Files.size(file) >= MIN_SIZE;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static boolean hasCompressibleExtension(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 && EXTENSIONS.contains(name.substring(dot + 1));
+    }
+
+    // Chỉ coi là bản nén do tool này tạo khi tên gốc có phần mở rộng được nén (không đụng tới .gz khác)
+    private static boolean isVariant(Path file) {
+        String name = file.getFileName().toString();
+        return SUFFIXES.stream().anyMatch(name::endsWith) && hasCompressibleExtension(source(file));
+    }
+
+    private static Path source(Path variant) {
+        String name = variant.getFileName().toString();
+        return variant.resolveSibling(name.substring(0, name.length() - 3));
+    }
+
+    private static boolean gzip(Path file) throws IOException {
+        Path target = sibling(file, ".gz");
+        if (upToDate(file, target)) {
+            return false;
+        }
+        byte[] content = Files.readAllBytes(file);
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(target)) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            out.write(content);
+        }
+        return keepIfSmaller(file, target);
+    }
+
+    private static boolean brotli(Path file) throws IOException {
+        Path target = sibling(file, ".br");
+        if (upToDate(file, target)) {
+            return false;
+        }
+        try {
+            Process process = new ProcessBuilder("brotli", "-q", "11", "-f", "-o", target.toString(), file.toString())
+                    .redirectErrorStream(true)
+                    .start();
+            process.getInputStream().transferTo(OutputStream.nullOutputStream());
+            if (!process.waitFor(60, TimeUnit.SECONDS) || process.exitValue() != 0) {
+                process.destroy();
+                Files.deleteIfExists(target);
+                return false;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return keepIfSmaller(file, target);
+    }
+
+    private static boolean brotliAvailable() {
+        try {
+            Process process = new ProcessBuilder("brotli", "--version").redirectErrorStream(true).start();
+            process.getInputStream().transferTo(OutputStream.nullOutputStream());
+            return process.waitFor(10, TimeUnit.SECONDS) && process.exitValue() == 0;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static Path sibling(Path file, String suffix) {
+        return file.resolveSibling(file.getFileName() + suffix);
+    }
+
+    // Bản nén chỉ còn dùng được khi file gốc có đúng kích thước và thời gian sửa như lúc nén
+    private static boolean upToDate(Path source, Path target) throws IOException {
+        return Files.exists(target) && signature(source).equals(manifest.getProperty(key(target)));
+    }
+
+    // Bản nén không nhỏ hơn đáng kể thì xóa, để server gửi file gốc
+    private static boolean keepIfSmaller(Path source, Path target) throws IOException {
+        if (Files.size(target) > Files.size(source) * 0.9) {
+            Files.delete(target);
+            manifest.remove(key(target));
+            return false;
+        }
+        manifest.setProperty(key(target), signature(source));
+        return true;
+    }
+
+    private static String signature(Path source) throws IOException {
+        return Files.size(source) + ":" + Files.getLastModifiedTime(source).toMillis();
+    }
+
+    private static String key(Path variant) {
+        return root.relativize(variant).toString().replace('\\', '/');
+    }
+}
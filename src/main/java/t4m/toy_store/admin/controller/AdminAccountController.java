@@ -10,6 +10,7 @@ import t4m.toy_store.admin.dto.AccountCreateRequest;
 import t4m.toy_store.admin.dto.AccountDTO;
 import t4m.toy_store.admin.dto.AccountUpdateRequest;
 import t4m.toy_store.admin.dto.BulkActionRequest;
+import t4m.toy_store.admin.dto.BulkActionResult;
 import t4m.toy_store.admin.service.AdminAccountService;
 
 import java.util.HashMap;
@@ -162,14 +163,17 @@ public class AdminAccountController {
     @PostMapping("/bulk-action")
     public ResponseEntity<?> bulkAction(@RequestBody BulkActionRequest request) {
         try {
-            accountService.bulkAction(request);
+            BulkActionResult result = accountService.bulkAction(request);
             String actionMessage = switch (request.getAction().toLowerCase()) {
                 case "ban" -> "Khóa các tài khoản thành công";
                 case "unban" -> "Mở khóa các tài khoản thành công";
                 case "delete" -> "Xóa các tài khoản thành công";
                 default -> "Thực hiện hành động thành công";
             };
-            return ResponseEntity.ok(Map.of("message", actionMessage));
+            if (!result.getSkippedIds().isEmpty()) {
+                actionMessage += " (bỏ qua " + result.getSkippedIds().size() + " tài khoản có đơn hàng)";
+            }
+            return ResponseEntity.ok(Map.of("message", actionMessage, "result", result));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
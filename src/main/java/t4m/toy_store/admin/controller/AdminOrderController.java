@@ -2,15 +2,16 @@ package t4m.toy_store.admin.controller;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Sort;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import t4m.toy_store.admin.dto.OrderStatusUpdateRequest;
+import t4m.toy_store.order.dto.AdminOrderListItem;
 import t4m.toy_store.order.dto.OrderResponse;
+import t4m.toy_store.order.dto.OrderStatusFacets;
 import t4m.toy_store.order.entity.Order;
 import t4m.toy_store.order.entity.OrderStatus;
+import t4m.toy_store.order.service.AdminOrderQueryService;
 import t4m.toy_store.order.service.OrderService;
 
 import java.util.HashMap;
@@ -22,22 +23,14 @@ import java.util.Map;
 @PreAuthorize("hasAuthority('ROLE_ADMIN')")
 public class AdminOrderController {
     private final OrderService orderService;
+    private final AdminOrderQueryService adminOrderQueryService;
 
     @GetMapping
-    public ResponseEntity<Page<OrderResponse>> getAllOrders(
+    public ResponseEntity<Page<AdminOrderListItem>> getAllOrders(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size,
             @RequestParam(required = false) OrderStatus status) {
-        
-        Page<Order> orders;
-        if (status != null) {
-            orders = orderService.getOrdersByStatus(status, PageRequest.of(page, size, Sort.by("createdAt").descending()));
-        } else {
-            orders = orderService.getAllOrders(PageRequest.of(page, size, Sort.by("createdAt").descending()));
-        }
-        
-        Page<OrderResponse> response = orders.map(OrderResponse::fromEntity);
-        return ResponseEntity.ok(response);
+        return ResponseEntity.ok(adminOrderQueryService.getOrders(status, page, size));
     }
 
     @GetMapping("/{id}")
@@ -70,17 +63,19 @@ public class AdminOrderController {
 
     @GetMapping("/stats")
     public ResponseEntity<Map<String, Object>> getOrderStats() {
+        OrderStatusFacets facets = adminOrderQueryService.getFacets();
         Map<String, Object> stats = new HashMap<>();
         
-        stats.put("total", orderService.getTotalOrders());
-        stats.put("today", orderService.getTodayOrderCount());
-        stats.put("pending", orderService.getOrderCountByStatus(OrderStatus.PENDING));
-        stats.put("processing", orderService.getOrderCountByStatus(OrderStatus.PROCESSING));
-        stats.put("shipping", orderService.getOrderCountByStatus(OrderStatus.SHIPPING));
-        stats.put("shipped", orderService.getOrderCountByStatus(OrderStatus.SHIPPING)); // SHIPPING enum (backward compatibility)
-        stats.put("delivered", orderService.getOrderCountByStatus(OrderStatus.DELIVERED));
-        stats.put("failed", orderService.getOrderCountByStatus(OrderStatus.FAILED));
-        stats.put("cancelled", orderService.getOrderCountByStatus(OrderStatus.CANCELLED));
+        stats.put("total", facets.total());
+        stats.put("today", facets.today());
+        stats.put("pendingPayment", facets.count(OrderStatus.PENDING_PAYMENT));
+        stats.put("pending", facets.count(OrderStatus.PENDING));
+        stats.put("processing", facets.count(OrderStatus.PROCESSING));
+        stats.put("shipping", facets.count(OrderStatus.SHIPPING));
+        stats.put("shipped", facets.count(OrderStatus.SHIPPING)); // SHIPPING enum (backward compatibility)
+        stats.put("delivered", facets.count(OrderStatus.DELIVERED));
+        stats.put("failed", facets.count(OrderStatus.FAILED));
+        stats.put("cancelled", facets.count(OrderStatus.CANCELLED));
         
         return ResponseEntity.ok(stats);
     }
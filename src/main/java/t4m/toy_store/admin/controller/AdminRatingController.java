@@ -2,13 +2,13 @@ package t4m.toy_store.admin.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.Page;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
-import t4m.toy_store.rating.dto.AdminRatingResponse;
 import t4m.toy_store.rating.dto.AdminRatingStatsResponse;
+import t4m.toy_store.rating.dto.RatingHistogram;
+import t4m.toy_store.rating.dto.RatingSearchPage;
 import t4m.toy_store.rating.service.AdminRatingService;
 
 import java.time.LocalDateTime;
@@ -25,29 +25,32 @@ public class AdminRatingController {
     private final AdminRatingService adminRatingService;
     
     /**
-     * Get all ratings with filters and pagination
+     * Get ratings with filters, paginated by cursor
      */
     @GetMapping
-    public ResponseEntity<Page<AdminRatingResponse>> getAllRatings(
+    public ResponseEntity<?> getAllRatings(
             @RequestParam(required = false) String userName,
             @RequestParam(required = false) String productName,
             @RequestParam(required = false) Integer minStars,
             @RequestParam(required = false) Integer maxStars,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
-            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) String cursor,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "createdAt") String sortBy,
             @RequestParam(defaultValue = "DESC") String sortDirection
     ) {
-        log.info("Admin fetching ratings with filters - page: {}, size: {}", page, size);
+        log.info("Admin fetching ratings with filters - size: {}, cursor: {}", size, cursor != null);
         
-        Page<AdminRatingResponse> ratings = adminRatingService.getAllRatings(
-            userName, productName, minStars, maxStars, startDate, endDate,
-            page, size, sortBy, sortDirection
-        );
-        
-        return ResponseEntity.ok(ratings);
+        try {
+            RatingSearchPage ratings = adminRatingService.searchRatings(
+                userName, productName, minStars, maxStars, startDate, endDate,
+                cursor, size, sortBy, sortDirection
+            );
+            return ResponseEntity.ok(ratings);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
     
     /**
@@ -60,6 +63,26 @@ public class AdminRatingController {
         return ResponseEntity.ok(stats);
     }
     
+    /**
+     * Get star histogram of a product
+     */
+    @GetMapping("/stats/products/{productId}")
+    public ResponseEntity<?> getProductStatistics(@PathVariable Long productId) {
+        try {
+            return ResponseEntity.ok(adminRatingService.getProductStatistics(productId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    /**
+     * Get star histogram of ratings created in the last N days
+     */
+    @GetMapping("/stats/window")
+    public ResponseEntity<RatingHistogram> getWindowStatistics(@RequestParam(defaultValue = "30") int days) {
+        return ResponseEntity.ok(adminRatingService.getWindowStatistics(days));
+    }
+    
     /**
      * Delete a single rating
      */
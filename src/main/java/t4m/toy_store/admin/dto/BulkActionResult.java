@@ -0,0 +1,20 @@
+package t4m.toy_store.admin.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkActionResult {
+    private String action;
+    private int requested;       // Số id gửi lên
+    private int processed;       // Số tài khoản đã cập nhật/xóa
+    private int chunks;          // Số transaction đã chạy
+    private List<Long> skippedIds; // Tài khoản không xử lý (vd: có đơn hàng nên không xóa)
+}
@@ -0,0 +1,169 @@
+package t4m.toy_store.admin.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import t4m.toy_store.admin.dto.BulkActionResult;
+import t4m.toy_store.auth.repository.UserRepository;
+import t4m.toy_store.auth.service.CustomUserDetailsService;
+import t4m.toy_store.favorite.service.FavoriteMembershipCache;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Thực thi thao tác hàng loạt trên tài khoản
+ * - Khóa/mở khóa: một câu UPDATE ... WHERE id IN (...) cho mỗi lô
+ * - Xóa: mỗi lô xóa theo tập hợp, đúng thứ tự phụ thuộc khóa ngoại (cart_item -> cart -> favorites
+ *   -> voucher_usage -> user_role -> user); tài khoản có đơn hàng (khách hoặc shipper) được bỏ qua
+ * Mỗi lô là một transaction riêng có kích thước giới hạn, sau commit thì xóa user khỏi cache xác thực
+ */
+@Component
+public class AccountBulkOperationExecutor {
+    private static final Logger logger = LoggerFactory.getLogger(AccountBulkOperationExecutor.class);
+
+    private static final String[] DELETE_STATEMENTS = {
+        "DELETE FROM cart_item WHERE cart_id IN (SELECT id FROM cart WHERE user_id IN (:ids))",
+        "DELETE FROM cart WHERE user_id IN (:ids)",
+        "DELETE FROM favorites WHERE user_id IN (:ids)",
+        // Đánh giá luôn gắn với đơn hàng, mà tài khoản có đơn hàng đã bị loại nên không cần xóa ratings
+        "DELETE FROM voucher_usage WHERE user_id IN (:ids)",
+        "DELETE FROM user_role WHERE user_id IN (:ids)",
+        "DELETE FROM `user` WHERE id IN (:ids)"
+    };
+
+    private static final String USERS_WITH_ORDERS_SQL = """
+            SELECT user_id FROM orders WHERE user_id IN (:ids)
+            UNION
+            SELECT shipper_id FROM orders WHERE shipper_id IN (:ids)
+            """;
+
+    private final UserRepository userRepository;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final CustomUserDetailsService userDetailsService;
+    private final FavoriteMembershipCache favoriteMembershipCache;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    public AccountBulkOperationExecutor(UserRepository userRepository,
+                                        NamedParameterJdbcTemplate jdbcTemplate,
+                                        CustomUserDetailsService userDetailsService,
+                                        FavoriteMembershipCache favoriteMembershipCache,
+                                        PlatformTransactionManager transactionManager,
+                                        @Value("${app.admin.bulk.chunk-size:500}") int chunkSize) {
+        this.userRepository = userRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.userDetailsService = userDetailsService;
+        this.favoriteMembershipCache = favoriteMembershipCache;
+        // Mỗi lô commit độc lập: lỗi ở lô sau không hoàn tác các lô trước
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    /**
+     * Khóa (activated = false) hoặc mở khóa (activated = true) các tài khoản
+     */
+    public BulkActionResult setActivated(List<Long> userIds, boolean activated) {
+        String action = activated ? "unban" : "ban";
+        List<List<Long>> chunks = chunk(userIds);
+        int processed = 0;
+
+        for (int i = 0; i < chunks.size(); i++) {
+            List<Long> ids = chunks.get(i);
+            ChunkOutcome outcome = transactionTemplate.execute(status -> {
+                List<String> emails = userRepository.findEmailsByIdIn(ids);
+                int updated = userRepository.updateActivated(ids, activated, LocalDateTime.now());
+                return new ChunkOutcome(updated, emails);
+            });
+            userDetailsService.evict(outcome.emails());
+            processed += outcome.count();
+            logProgress(action, i + 1, chunks.size(), processed, userIds.size());
+        }
+
+        return BulkActionResult.builder()
+            .action(action)
+            .requested(userIds.size())
+            .processed(processed)
+            .chunks(chunks.size())
+            .skippedIds(List.of())
+            .build();
+    }
+
+    /**
+     * Xóa vĩnh viễn các tài khoản chưa có đơn hàng cùng dữ liệu phụ thuộc
+     */
+    public BulkActionResult delete(List<Long> userIds) {
+        List<List<Long>> chunks = chunk(userIds);
+        List<Long> skipped = new ArrayList<>();
+        int processed = 0;
+
+        for (int i = 0; i < chunks.size(); i++) {
+            List<Long> ids = chunks.get(i);
+            ChunkOutcome outcome = transactionTemplate.execute(status -> {
+                Map<String, Object> params = Map.of("ids", ids);
+                Set<Long> withOrders = new HashSet<>(jdbcTemplate.queryForList(USERS_WITH_ORDERS_SQL, params, Long.class));
+                List<Long> deletable = ids.stream().filter(id -> !withOrders.contains(id)).toList();
+                skipped.addAll(ids.stream().filter(withOrders::contains).toList());
+                if (deletable.isEmpty()) {
+                    return new ChunkOutcome(0, List.of());
+                }
+
+                Map<String, Object> deleteParams = Map.of("ids", deletable);
+                List<String> emails = userRepository.findEmailsByIdIn(deletable);
+                int deleted = 0;
+                for (String sql : DELETE_STATEMENTS) {
+                    deleted = jdbcTemplate.update(sql, deleteParams);
+                }
+                // Giá trị cuối cùng là số dòng xóa khỏi bảng user
+                return new ChunkOutcome(deleted, emails);
+            });
+            userDetailsService.evict(outcome.emails());
+            favoriteMembershipCache.evict(ids);
+            processed += outcome.count();
+            logProgress("delete", i + 1, chunks.size(), processed, userIds.size());
+        }
+
+        if (!skipped.isEmpty()) {
+            logger.info("Bulk delete skipped {} accounts with orders", skipped.size());
+        }
+
+        return BulkActionResult.builder()
+            .action("delete")
+            .requested(userIds.size())
+            .processed(processed)
+            .chunks(chunks.size())
+            .skippedIds(skipped)
+            .build();
+    }
+
+    private List<List<Long>> chunk(List<Long> userIds) {
+        // Bỏ id trùng/null, giữ thứ tự gửi lên
+        List<Long> distinct = new ArrayList<>(new LinkedHashSet<>(userIds));
+        distinct.removeIf(Objects::isNull);
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int from = 0; from < distinct.size(); from += chunkSize) {
+            chunks.add(List.copyOf(distinct.subList(from, Math.min(from + chunkSize, distinct.size()))));
+        }
+        return chunks;
+    }
+
+    private void logProgress(String action, int chunk, int totalChunks, int processed, int requested) {
+        logger.info("Bulk {}: chunk {}/{} done, {} of {} accounts processed",
+            action, chunk, totalChunks, processed, requested);
+    }
+
+    private record ChunkOutcome(int count, List<String> emails) {
+    }
+}
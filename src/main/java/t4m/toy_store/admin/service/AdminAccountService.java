@@ -6,8 +6,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -15,15 +15,15 @@ import t4m.toy_store.admin.dto.AccountCreateRequest;
 import t4m.toy_store.admin.dto.AccountDTO;
 import t4m.toy_store.admin.dto.AccountUpdateRequest;
 import t4m.toy_store.admin.dto.BulkActionRequest;
+import t4m.toy_store.admin.dto.BulkActionResult;
 import t4m.toy_store.auth.entity.Role;
 import t4m.toy_store.auth.entity.User;
 import t4m.toy_store.auth.repository.RoleRepository;
 import t4m.toy_store.auth.repository.UserRepository;
+import t4m.toy_store.auth.repository.UserSpecifications;
+import t4m.toy_store.auth.service.CustomUserDetailsService;
 import t4m.toy_store.auth.service.EmailService;
 import t4m.toy_store.order.repository.OrderRepository;
-import t4m.toy_store.cart.repository.CartRepository;
-import t4m.toy_store.favorite.repository.FavoriteRepository;
-import t4m.toy_store.rating.repository.RatingRepository;
 
 import java.time.LocalDateTime;
 import java.util.*;
@@ -33,6 +33,15 @@ import java.util.stream.Collectors;
 public class AdminAccountService {
     private static final Logger logger = LoggerFactory.getLogger(AdminAccountService.class);
 
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int SEARCH_LIMIT = 50;
+    // Tham số sortBy từ client -> thuộc tính entity (chỉ cho phép cột có index)
+    private static final Map<String, String> SORTABLE_FIELDS = Map.of(
+        "name", "name",
+        "email", "email",
+        "created", "created"
+    );
+
     @Autowired
     private UserRepository userRepository;
 
@@ -49,87 +58,32 @@ public class AdminAccountService {
     private OrderRepository orderRepository;
 
     @Autowired
-    private CartRepository cartRepository;
-
-    @Autowired
-    private FavoriteRepository favoriteRepository;
+    private AccountBulkOperationExecutor bulkOperationExecutor;
 
     @Autowired
-    private RatingRepository ratingRepository;
+    private CustomUserDetailsService userDetailsService;
 
     /**
      * Get all accounts with pagination, search, and filtering
+     * Lọc, sắp xếp và phân trang ở DB (Specification): tìm theo tiền tố email/số điện thoại hoặc chuỗi con của tên, join vai trò
      */
+    @Transactional(readOnly = true)
     public Page<AccountDTO> getAccounts(String search, String roleFilter, String statusFilter,
                                          int page, int size, String sortBy, String sortDir) {
+        String sortProperty = SORTABLE_FIELDS.getOrDefault(sortBy, "created");
         Sort sort = sortDir.equalsIgnoreCase("desc")
-            ? Sort.by(sortBy).descending()
-            : Sort.by(sortBy).ascending();
-
-        Pageable pageable = PageRequest.of(page, size, sort);
-
-        // Get all users first (in production, use custom repository with Specifications)
-        List<User> allUsers = userRepository.findAll();
-
-        // Apply filters manually
-        List<User> filteredUsers = allUsers.stream()
-            .filter(user -> {
-                // Search filter
-                if (!search.isEmpty()) {
-                    String searchLower = search.toLowerCase();
-                    boolean matchesSearch = user.getName().toLowerCase().contains(searchLower) ||
-                                          user.getEmail().toLowerCase().contains(searchLower) ||
-                                          (user.getPhone() != null && user.getPhone().contains(search));
-                    if (!matchesSearch) return false;
-                }
-
-                // Role filter
-                if (!roleFilter.isEmpty()) {
-                    boolean hasRole = user.getRoles().stream()
-                        .anyMatch(role -> role.getRname().equals(roleFilter));
-                    if (!hasRole) return false;
-                }
-
-                // Status filter (removed since we don't use ban/unban anymore)
-                // if (!statusFilter.isEmpty()) {
-                //     boolean statusMatch = statusFilter.equals("active") ? user.isActivated() : !user.isActivated();
-                //     if (!statusMatch) return false;
-                // }
-
-                return true;
-            })
-            .sorted((u1, u2) -> {
-                int comparison = 0;
-                switch (sortBy) {
-                    case "name":
-                        comparison = u1.getName().compareTo(u2.getName());
-                        break;
-                    case "email":
-                        comparison = u1.getEmail().compareTo(u2.getEmail());
-                        break;
-                    case "created":
-                        comparison = u1.getCreated().compareTo(u2.getCreated());
-                        break;
-                    default:
-                        comparison = u1.getCreated().compareTo(u2.getCreated());
-                }
-                return sortDir.equalsIgnoreCase("desc") ? -comparison : comparison;
-            })
-            .collect(Collectors.toList());
+            ? Sort.by(sortProperty).descending().and(Sort.by("id").descending())
+            : Sort.by(sortProperty).ascending().and(Sort.by("id").ascending());
 
-        // Manual pagination
-        int totalItems = filteredUsers.size();
-        int startIndex = page * size;
-        int endIndex = Math.min(startIndex + size, totalItems);
-        List<User> pageUsers = startIndex < totalItems ?
-            filteredUsers.subList(startIndex, endIndex) : new ArrayList<>();
+        Pageable pageable = PageRequest.of(Math.max(0, page), Math.max(1, Math.min(size, MAX_PAGE_SIZE)), sort);
 
-        // Convert to DTOs
-        List<AccountDTO> pageDTOs = pageUsers.stream()
-            .map(this::convertToDTO)
-            .collect(Collectors.toList());
+        // Status filter (removed since we don't use ban/unban anymore)
+        Specification<User> spec = Specification.allOf(
+            UserSpecifications.keywordMatches(search),
+            UserSpecifications.hasRole(roleFilter)
+        );
 
-        return new PageImpl<>(pageDTOs, pageable, totalItems);
+        return userRepository.findAll(spec, pageable).map(this::convertToDTO);
     }
 
     /**
@@ -192,6 +146,8 @@ public class AdminAccountService {
         User user = userRepository.findById(id)
             .orElseThrow(() -> new RuntimeException("Không tìm thấy tài khoản với ID: " + id));
 
+        String previousEmail = user.getEmail();
+
         // Update basic info
         user.setName(request.getName());
         user.setPhone(request.getPhone());
@@ -217,6 +173,8 @@ public class AdminAccountService {
         }
 
         User updatedUser = userRepository.save(user);
+        // Vai trò/mật khẩu/email có thể đã đổi: bỏ bản cache cũ dùng cho xác thực
+        userDetailsService.evict(List.of(previousEmail, updatedUser.getEmail()));
         logger.info("Admin updated account: {}", updatedUser.getEmail());
 
         return convertToDTO(updatedUser);
@@ -227,68 +185,50 @@ public class AdminAccountService {
      * Warning: This will delete all related data (cart, favorites, ratings)
      * but will NOT delete orders to maintain data integrity
      */
-    @Transactional
     public void deleteAccount(Long id) {
         User user = userRepository.findById(id)
             .orElseThrow(() -> new RuntimeException("Không tìm thấy tài khoản với ID: " + id));
 
         // Check if user has orders - DO NOT allow deletion if there are orders
-        long orderCount = orderRepository.findByUserIdOrderByCreatedAtDesc(id).size();
+        long orderCount = orderRepository.countByUserId(id);
         if (orderCount > 0) {
             throw new RuntimeException("Không thể xóa tài khoản này vì có " + orderCount + 
                 " đơn hàng liên quan. Để bảo toàn dữ liệu đơn hàng, vui lòng không xóa tài khoản này.");
         }
 
-        // Delete related data in correct order to avoid constraint violations
+        // Xóa dữ liệu liên quan theo đúng thứ tự khóa ngoại (cart_item, cart, favorites...) rồi xóa user
         logger.info("Deleting related data for user: {}", user.getEmail());
-        
-        // 1. Delete cart items (if exists)
-        cartRepository.findByUserId(id).ifPresent(cart -> {
-            cartRepository.delete(cart);
-            logger.info("Deleted cart for user: {}", user.getEmail());
-        });
-
-        // 2. Delete favorites
-        long favoriteCount = favoriteRepository.countByUserId(id);
-        if (favoriteCount > 0) {
-            favoriteRepository.findByUserIdOrderByCreatedAtDesc(id)
-                .forEach(favorite -> favoriteRepository.delete(favorite));
-            logger.info("Deleted {} favorites for user: {}", favoriteCount, user.getEmail());
+        BulkActionResult result = bulkOperationExecutor.delete(List.of(id));
+        if (result.getSkippedIds().contains(id)) {
+            // Executor còn loại cả tài khoản shipper đang được gán cho đơn hàng
+            throw new RuntimeException("Không thể xóa tài khoản này vì đang được gán cho đơn hàng (shipper). " +
+                "Để bảo toàn dữ liệu đơn hàng, vui lòng không xóa tài khoản này.");
+        }
+        if (result.getProcessed() == 0) {
+            throw new RuntimeException("Không thể xóa tài khoản với ID: " + id);
         }
-
-        // 3. Delete ratings (if user has no orders, they shouldn't have ratings, but check anyway)
-        // Note: Ratings are typically tied to orders, so this should be empty
-        
-        // 4. Finally delete the user
-        userRepository.delete(user);
         logger.info("Admin deleted account: {}", user.getEmail());
     }
 
     /**
      * Ban account (deactivate)
      */
-    @Transactional
     public void banAccount(Long id) {
         User user = userRepository.findById(id)
             .orElseThrow(() -> new RuntimeException("Không tìm thấy tài khoản với ID: " + id));
 
-        user.setActivated(false);
-        user.setUpdated(LocalDateTime.now());
-        userRepository.save(user);
+        bulkOperationExecutor.setActivated(List.of(id), false);
         logger.info("Admin banned account: {}", user.getEmail());
     }
 
     /**
      * Unban account (activate)
      */
-    @Transactional
     public void unbanAccount(Long id) {
         User user = userRepository.findById(id)
             .orElseThrow(() -> new RuntimeException("Không tìm thấy tài khoản với ID: " + id));
 
-        user.setActivated(true);
-        user.setUpdated(LocalDateTime.now());
-        userRepository.save(user);
+        bulkOperationExecutor.setActivated(List.of(id), true);
         logger.info("Admin unbanned account: {}", user.getEmail());
     }
 
@@ -311,52 +251,34 @@ public class AdminAccountService {
 
     /**
      * Bulk actions
+     * Chạy theo lô, mỗi lô một transaction (xem AccountBulkOperationExecutor)
      */
-    @Transactional
-    public void bulkAction(BulkActionRequest request) {
-        List<User> users = userRepository.findAllById(request.getUserIds());
-
-        switch (request.getAction().toLowerCase()) {
-            case "ban":
-                users.forEach(user -> {
-                    user.setActivated(false);
-                    user.setUpdated(LocalDateTime.now());
-                });
-                userRepository.saveAll(users);
-                logger.info("Admin banned {} accounts", users.size());
-                break;
-
-            case "unban":
-                users.forEach(user -> {
-                    user.setActivated(true);
-                    user.setUpdated(LocalDateTime.now());
-                });
-                userRepository.saveAll(users);
-                logger.info("Admin unbanned {} accounts", users.size());
-                break;
-
-            case "delete":
-                userRepository.deleteAll(users);
-                logger.info("Admin deleted {} accounts", users.size());
-                break;
-
-            default:
-                throw new RuntimeException("Hành động không hợp lệ: " + request.getAction());
+    public BulkActionResult bulkAction(BulkActionRequest request) {
+        List<Long> userIds = request.getUserIds() != null ? request.getUserIds() : List.of();
+        if (userIds.isEmpty()) {
+            throw new RuntimeException("Vui lòng chọn ít nhất một tài khoản");
         }
+
+        BulkActionResult result = switch (request.getAction().toLowerCase()) {
+            case "ban" -> bulkOperationExecutor.setActivated(userIds, false);
+            case "unban" -> bulkOperationExecutor.setActivated(userIds, true);
+            case "delete" -> bulkOperationExecutor.delete(userIds);
+            default -> throw new RuntimeException("Hành động không hợp lệ: " + request.getAction());
+        };
+        logger.info("Admin bulk {}: {} of {} accounts processed", result.getAction(),
+            result.getProcessed(), result.getRequested());
+        return result;
     }
 
     /**
      * Search accounts
+     * Tìm theo tiền tố email/số điện thoại hoặc chuỗi con của tên, tối đa SEARCH_LIMIT kết quả
      */
+    @Transactional(readOnly = true)
     public List<AccountDTO> searchAccounts(String keyword) {
-        List<User> users = userRepository.findAll();
+        Pageable limit = PageRequest.of(0, SEARCH_LIMIT, Sort.by("name").ascending());
         
-        return users.stream()
-            .filter(user -> 
-                user.getName().toLowerCase().contains(keyword.toLowerCase()) ||
-                user.getEmail().toLowerCase().contains(keyword.toLowerCase()) ||
-                (user.getPhone() != null && user.getPhone().contains(keyword))
-            )
+        return userRepository.findAll(UserSpecifications.keywordMatches(keyword), limit).stream()
             .map(this::convertToDTO)
             .collect(Collectors.toList());
     }
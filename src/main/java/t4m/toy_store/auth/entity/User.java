@@ -14,7 +14,11 @@ import java.util.stream.Collectors;
 
 @Data
 @Entity
-@Table(name = "user")
+@Table(name = "user", indexes = {
+        @Index(name = "idx_user_phone", columnList = "phone"),
+        @Index(name = "idx_user_name", columnList = "name"),
+        @Index(name = "idx_user_created", columnList = "created")
+})
 public class User implements UserDetails {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -1,10 +1,27 @@
 package t4m.toy_store.auth.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import t4m.toy_store.auth.entity.User;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, JpaSpecificationExecutor<User> {
     Optional<User> findByEmail(String email);
+
+    @Query("SELECT u.email FROM User u WHERE u.id IN :ids")
+    List<String> findEmailsByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Khóa/mở khóa nhiều tài khoản trong một câu UPDATE
+    @Modifying
+    @Query("UPDATE User u SET u.activated = :activated, u.updated = :now WHERE u.id IN :ids")
+    int updateActivated(@Param("ids") Collection<Long> ids,
+                        @Param("activated") boolean activated,
+                        @Param("now") LocalDateTime now);
 }
\ No newline at end of file
@@ -0,0 +1,53 @@
+package t4m.toy_store.auth.repository;
+
+import jakarta.persistence.criteria.Join;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.util.StringUtils;
+import t4m.toy_store.auth.entity.Role;
+import t4m.toy_store.auth.entity.User;
+
+/**
+ * Điều kiện lọc tài khoản cho trang quản trị
+ * Email và số điện thoại tìm theo tiền tố (LIKE 'abc%') để MySQL dùng được index;
+ * tên vẫn tìm theo chuỗi con vì người dùng hay gõ tên riêng ("Nguyen" phải thấy "Tran Van Nguyen")
+ * collation utf8mb4_unicode_ci không phân biệt hoa thường nên không cần LOWER()
+ */
+public final class UserSpecifications {
+
+    private UserSpecifications() {
+    }
+
+    /**
+     * Email hoặc số điện thoại bắt đầu bằng từ khóa, hoặc tên chứa từ khóa
+     * Điều kiện trên tên không dùng được index nên câu lệnh quét bảng user (bảng nhỏ, chỉ trang quản trị dùng)
+     */
+    public static Specification<User> keywordMatches(String keyword) {
+        return (root, query, cb) -> {
+            if (!StringUtils.hasText(keyword)) {
+                return null;
+            }
+            String escaped = escapeLike(keyword.trim());
+            return cb.or(
+                    cb.like(root.get("email"), escaped + "%", '\\'),
+                    cb.like(root.get("phone"), escaped + "%", '\\'),
+                    cb.like(root.get("name"), "%" + escaped + "%", '\\'));
+        };
+    }
+
+    /**
+     * Có vai trò rname (join user_role -> role)
+     */
+    public static Specification<User> hasRole(String roleName) {
+        return (root, query, cb) -> {
+            if (!StringUtils.hasText(roleName)) {
+                return null;
+            }
+            Join<User, Role> roles = root.join("roles");
+            return cb.equal(roles.get("rname"), roleName);
+        };
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
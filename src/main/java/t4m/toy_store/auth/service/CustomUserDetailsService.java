@@ -11,6 +11,7 @@ import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 import t4m.toy_store.auth.repository.UserRepository;
 
+import java.util.Collection;
 import java.util.concurrent.TimeUnit;
 
 @Service
@@ -39,4 +40,14 @@ public class CustomUserDetailsService implements UserDetailsService {
             throw new UsernameNotFoundException("Error loading user", e);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Bỏ user khỏi cache sau khi trạng thái/vai trò/tài khoản thay đổi,
+     * để lần xác thực tiếp theo đọc lại từ DB
+     */
+    public void evict(Collection<String> emails) {
+        if (emails != null && !emails.isEmpty()) {
+            userCache.invalidateAll(emails);
+        }
+    }
+}
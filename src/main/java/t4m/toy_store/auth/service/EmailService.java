@@ -9,10 +9,15 @@ import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.thymeleaf.TemplateEngine;
 import org.thymeleaf.context.Context;
+import t4m.toy_store.config.AsyncConfig;
+import t4m.toy_store.order.dto.OrderSummaryResponse;
 
 import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
 
+import java.math.BigDecimal;
+import java.util.List;
+
 @Service
 public class EmailService {
     private static final Logger logger = LoggerFactory.getLogger(EmailService.class);
@@ -25,7 +30,7 @@ public class EmailService {
         this.templateEngine = templateEngine;
     }
 
-    @Async
+    @Async(AsyncConfig.MAIL_EXECUTOR)
     public void sendOtpEmail(String email, String otp, String action) {
         try {
             MimeMessage message = mailSender.createMimeMessage();
@@ -47,7 +52,7 @@ public class EmailService {
         }
     }
 
-    @Async
+    @Async(AsyncConfig.MAIL_EXECUTOR)
     public void sendWelcomeEmail(String email, String userName, String ctaLink) {
         try {
             MimeMessage message = mailSender.createMimeMessage();
@@ -69,7 +74,7 @@ public class EmailService {
         }
     }
 
-    @Async
+    @Async(AsyncConfig.MAIL_EXECUTOR)
     public void sendResetPasswordEmail(String email, String resetLink) {
         try {
             MimeMessage message = mailSender.createMimeMessage();
@@ -90,7 +95,7 @@ public class EmailService {
         }
     }
 
-    @Async
+    @Async(AsyncConfig.MAIL_EXECUTOR)
     public void sendThankYouEmail(String email, String ctaLink) {
         try {
             MimeMessage message = mailSender.createMimeMessage();
@@ -110,4 +115,34 @@ public class EmailService {
             throw new RuntimeException("Failed to send thank you email", e);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Gửi đồng bộ trên thread gọi (OrderConfirmationMailer của outbox đơn hàng):
+     * lỗi SMTP ném ra cho dispatcher để sự kiện được thử lại, không bị nuốt trong executor mail
+     */
+    public void sendOrderConfirmationEmail(String email, String customerName, String orderNumber,
+                                           BigDecimal totalAmount, List<OrderSummaryResponse.Item> items,
+                                           String ctaLink) {
+        try {
+            MimeMessage message = mailSender.createMimeMessage();
+            MimeMessageHelper helper = new MimeMessageHelper(message, true);
+            helper.setTo(email);
+            helper.setSubject("T4M - Xác nhận đơn hàng " + orderNumber);
+
+            Context context = new Context();
+            context.setVariable("customerName", customerName);
+            context.setVariable("orderNumber", orderNumber);
+            context.setVariable("totalAmount", totalAmount);
+            context.setVariable("items", items);
+            context.setVariable("ctaLink", ctaLink);
+            String htmlContent = templateEngine.process("email/order-confirmation-email", context);
+
+            helper.setText(htmlContent, true);
+            mailSender.send(message);
+            logger.info("Order confirmation email for {} sent to {}", orderNumber, email);
+        } catch (MessagingException e) {
+            logger.error("Failed to send order confirmation email to {}: {}", email, e.getMessage());
+            throw new RuntimeException("Failed to send order confirmation email", e);
+        }
+    }
+}
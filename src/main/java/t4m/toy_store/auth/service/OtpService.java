@@ -5,7 +5,6 @@ import com.github.benmanes.caffeine.cache.Caffeine;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import t4m.toy_store.auth.exception.OtpInvalidException;
 import t4m.toy_store.auth.exception.OtpExpiredException;
@@ -31,7 +30,7 @@ public class OtpService {
         return String.valueOf(otp);
     }
 
-    @Async
+    // EmailService đã gửi mail bất đồng bộ trên mailExecutor, không cần thêm một lần chuyển thread
     public void sendOtpEmail(String email, String otp, String purpose) {
         String action = purpose.equals("Account Activation") ? "đăng ký tài khoản" : "đặt lại mật khẩu";
         emailService.sendOtpEmail(email, otp, action);
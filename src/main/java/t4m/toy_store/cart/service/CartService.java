@@ -16,8 +16,11 @@ import t4m.toy_store.cart.exception.CartItemNotFoundException;
 import t4m.toy_store.cart.exception.InsufficientStockException;
 import t4m.toy_store.cart.repository.CartItemRepository;
 import t4m.toy_store.cart.repository.CartRepository;
+import t4m.toy_store.product.dto.ProductSnapshot;
 import t4m.toy_store.product.entity.Product;
 import t4m.toy_store.product.repository.ProductRepository;
+import t4m.toy_store.product.service.CatalogCache;
+import t4m.toy_store.product.service.PopularityService;
 
 import java.math.BigDecimal;
 import java.util.List;
@@ -32,18 +35,21 @@ public class CartService {
     private final CartItemRepository cartItemRepository;
     private final UserRepository userRepository;
     private final ProductRepository productRepository;
+    private final PopularityService popularityService;
+    private final CatalogCache catalogCache;
 
     @Transactional
     public CartResponse addToCart(String userEmail, AddToCartRequest request) {
         User user = userRepository.findByEmail(userEmail)
                 .orElseThrow(() -> new UserNotFoundException("User not found"));
 
-        Product product = productRepository.findById(request.getProductId())
+        // Kiểm tra trên snapshot từ CatalogCache; checkout vẫn trừ kho có điều kiện nên tồn kho cache trễ không gây bán âm
+        ProductSnapshot product = catalogCache.getProduct(request.getProductId())
                 .orElseThrow(() -> new RuntimeException("Product not found"));
 
         // Check stock availability
-        if (product.getStock() == null || product.getStock() < request.getQuantity()) {
-            throw new InsufficientStockException("Insufficient stock for product: " + product.getName());
+        if (!product.hasStock(request.getQuantity())) {
+            throw new InsufficientStockException("Insufficient stock for product: " + product.name());
         }
 
         // Get or create cart for user
@@ -56,30 +62,31 @@ public class CartService {
                 });
 
         // Check if product already exists in cart
-        Optional<CartItem> existingItem = cartItemRepository.findByCartIdAndProductId(cart.getId(), product.getId());
+        Optional<CartItem> existingItem = cartItemRepository.findByCartIdAndProductId(cart.getId(), product.id());
 
         if (existingItem.isPresent()) {
             // Update quantity
             CartItem item = existingItem.get();
             int newQuantity = item.getQuantity() + request.getQuantity();
 
-            if (product.getStock() < newQuantity) {
-                throw new InsufficientStockException("Insufficient stock for product: " + product.getName());
+            if (!product.hasStock(newQuantity)) {
+                throw new InsufficientStockException("Insufficient stock for product: " + product.name());
             }
 
             item.setQuantity(newQuantity);
             cartItemRepository.save(item);
         } else {
             // Add new item to cart
-            BigDecimal price = product.getDiscountPrice() != null ? product.getDiscountPrice() : product.getPrice();
+            BigDecimal price = product.effectivePrice();
             CartItem newItem = CartItem.builder()
                     .cart(cart)
-                    .product(product)
+                    .product(productRepository.getReferenceById(product.id()))
                     .quantity(request.getQuantity())
                     .price(price)
                     .build();
             cartItemRepository.save(newItem);
         }
+        popularityService.recordCartAdd(product.id());
 
         return getCartByUser(userEmail);
     }
@@ -368,7 +368,7 @@ public class ChatbotService {
                 // Direct product search
                 String productName = intent.getSlotAsString(IntentClassification.SLOT_PRODUCT_NAME);
                 if (productName != null) {
-                    productContext = searchProductByName(productName);
+                    productContext = searchProductByName(productName) + buildAlsoBoughtContext(productName);
                 }
                 break;
                 
@@ -831,6 +831,31 @@ public class ChatbotService {
         }
     }
     
+    /**
+     * Gợi ý "khách hàng cũng mua" cho sản phẩm khớp tên nhất
+     */
+    private String buildAlsoBoughtContext(String productName) {
+        try {
+            List<Product> matches = productService.searchProducts(productName, PageRequest.of(0, 1)).getContent();
+            if (matches.isEmpty()) {
+                return "";
+            }
+            List<Product> related = productService.getAlsoBoughtProducts(matches.get(0).getId(), 5);
+            if (related.isEmpty()) {
+                return "";
+            }
+            StringBuilder context = new StringBuilder();
+            context.append("\nKHÁCH MUA \"").append(matches.get(0).getName()).append("\" CŨNG MUA:\n");
+            for (Product p : related) {
+                context.append("  ").append(p.getName()).append("\n");
+            }
+            return context.toString();
+        } catch (Exception e) {
+            logger.error("Error building also-bought context", e);
+            return "";
+        }
+    }
+    
     /**
      * Build HOT products list (SALE + In Stock) as fallback when no category matches
      */
@@ -839,6 +864,22 @@ public class ChatbotService {
             StringBuilder context = new StringBuilder();
             NumberFormat vndFormat = NumberFormat.getCurrencyInstance(Locale.forLanguageTag("vi-VN"));
             
+            // Ưu tiên sản phẩm có điểm phổ biến cao nhất (yêu thích, giỏ hàng, đơn hàng gần đây)
+            List<Product> trending = productService.getTrendingProducts(10).stream()
+                .filter(p -> p.getStock() != null && p.getStock() > 0)
+                .toList();
+            if (!trending.isEmpty()) {
+                context.append("SẢN PHẨM ĐANG HOT:\n\n");
+                for (Product p : trending) {
+                    boolean onSale = p.getDiscountPrice() != null && p.getDiscountPrice().compareTo(p.getPrice()) < 0;
+                    context.append("  ").append(p.getName()).append(" ");
+                    context.append(vndFormat.format(onSale ? p.getDiscountPrice() : p.getPrice()));
+                    context.append(onSale ? " 💰✓\n" : " ✓\n");
+                }
+                context.append("\n✓=Còn | 💰=SALE\nGỢI Ý 3-4 SP TỐT NHẤT!\n");
+                return context.toString();
+            }
+            
             context.append("SẢN PHẨM HOT (SALE):\n\n");
             
             // Get all categories and find products with SALE
@@ -1,9 +1,137 @@
 package t4m.toy_store.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.interceptor.AsyncUncaughtExceptionHandler;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.annotation.AsyncConfigurer;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 
+import java.util.concurrent.Executor;
+
+/**
+ * Cấu hình các executor cho tác vụ nền
+ * Mỗi loại công việc (mail, chatbot, upload ảnh, analytics, outbox đơn hàng, job bảo trì) có executor riêng
+ * để không làm nghẽn lẫn nhau
+ */
 @Configuration
 @EnableAsync
-public class AsyncConfig {
-}
\ No newline at end of file
+@EnableConfigurationProperties(ExecutorProperties.class)
+public class AsyncConfig implements AsyncConfigurer {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncConfig.class);
+
+    public static final String MAIL_EXECUTOR = "mailExecutor";
+    public static final String CHATBOT_EXECUTOR = "chatbotExecutor";
+    public static final String IMAGE_EXECUTOR = "imageUploadExecutor";
+    public static final String ANALYTICS_EXECUTOR = "analyticsExecutor";
+    public static final String ORDER_EVENT_EXECUTOR = "orderEventExecutor";
+    public static final String MAINTENANCE_EXECUTOR = "maintenanceExecutor";
+
+    private final ExecutorProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    public AsyncConfig(ExecutorProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Bean(name = MAIL_EXECUTOR)
+    public AsyncTaskExecutor mailExecutor() {
+        return buildExecutor("mail");
+    }
+
+    @Bean(name = CHATBOT_EXECUTOR)
+    public AsyncTaskExecutor chatbotExecutor() {
+        return buildExecutor("chatbot");
+    }
+
+    @Bean(name = IMAGE_EXECUTOR)
+    public AsyncTaskExecutor imageUploadExecutor() {
+        return buildExecutor("image");
+    }
+
+    @Bean(name = ANALYTICS_EXECUTOR)
+    public AsyncTaskExecutor analyticsExecutor() {
+        return buildExecutor("analytics");
+    }
+
+    @Bean(name = ORDER_EVENT_EXECUTOR)
+    public AsyncTaskExecutor orderEventExecutor() {
+        return buildExecutor("order-events");
+    }
+
+    /**
+     * Job dài (rebuild, reconcile, snapshot) do scheduler kích hoạt qua MaintenanceJobRunner
+     */
+    @Bean(name = MAINTENANCE_EXECUTOR)
+    public AsyncTaskExecutor maintenanceExecutor() {
+        return buildExecutor("maintenance");
+    }
+
+    /**
+     * Scheduler riêng cho các job @Scheduled (Spring tự dùng bean tên "taskScheduler")
+     * Chỉ chạy vòng lặp ngắn và kích hoạt job; job dài chạy trên maintenanceExecutor
+     */
+    @Bean(name = "taskScheduler")
+    public ThreadPoolTaskScheduler taskScheduler() {
+        ExecutorProperties.Scheduler config = properties.getScheduler();
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(config.getPoolSize());
+        scheduler.setThreadNamePrefix("scheduler-");
+        scheduler.setWaitForTasksToCompleteOnShutdown(true);
+        scheduler.setAwaitTerminationSeconds(config.getAwaitTerminationSeconds());
+        scheduler.setErrorHandler(t -> logger.error("Scheduled task failed: {}", t.getMessage(), t));
+        return scheduler;
+    }
+
+    /**
+     * Executor mặc định cho @Async không chỉ định tên
+     */
+    @Override
+    public Executor getAsyncExecutor() {
+        return analyticsExecutor();
+    }
+
+    @Override
+    public AsyncUncaughtExceptionHandler getAsyncUncaughtExceptionHandler() {
+        return (ex, method, params) ->
+                logger.error("Async method {} failed: {}", method.getName(), ex.getMessage(), ex);
+    }
+
+    private AsyncTaskExecutor buildExecutor(String name) {
+        ExecutorProperties.Pool config = properties.pool(name);
+        InstrumentedTaskDecorator decorator = new InstrumentedTaskDecorator(name, meterRegistry);
+
+        if (config.isVirtualThreads()) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(name + "-");
+            executor.setVirtualThreads(true);
+            executor.setConcurrencyLimit(config.getConcurrencyLimit());
+            executor.setTaskDecorator(decorator);
+            executor.setTaskTerminationTimeout(config.getAwaitTerminationSeconds() * 1000L);
+            logger.info("Executor '{}' using virtual threads (concurrency limit {})", name, config.getConcurrencyLimit());
+            return executor;
+        }
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix(name + "-");
+        executor.setCorePoolSize(config.getCoreSize());
+        executor.setMaxPoolSize(config.getMaxSize());
+        executor.setQueueCapacity(config.getQueueCapacity());
+        executor.setKeepAliveSeconds(config.getKeepAliveSeconds());
+        executor.setTaskDecorator(decorator);
+        executor.setRejectedExecutionHandler(decorator.rejectionHandler(config.getSaturationPolicy()));
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(config.getAwaitTerminationSeconds());
+        logger.info("Executor '{}' using platform pool core={} max={} queue={} policy={}", name,
+                config.getCoreSize(), config.getMaxSize(), config.getQueueCapacity(), config.getSaturationPolicy());
+        return executor;
+    }
+}
@@ -77,6 +77,9 @@ public class DatabaseMigration implements CommandLineRunner {
                         created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
                         updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
                         unread_count INT DEFAULT 0,
+                        last_message VARCHAR(500),
+                        last_sender_type VARCHAR(50),
+                        last_activity_at TIMESTAMP NULL,
                         INDEX idx_session_id (session_id),
                         INDEX idx_user_id (user_id),
                         INDEX idx_status (status)
@@ -101,6 +104,7 @@ public class DatabaseMigration implements CommandLineRunner {
                         INDEX idx_session_id (session_id),
                         INDEX idx_created_at (created_at),
                         INDEX idx_sender_type (sender_type),
+                        INDEX idx_session_created (session_id, created_at, id),
                         FOREIGN KEY (session_id) REFERENCES support_session(session_id) ON DELETE CASCADE
                     ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci
                     """;
@@ -108,8 +112,43 @@ public class DatabaseMigration implements CommandLineRunner {
             jdbcTemplate.execute(createMessageTable);
             logger.info("✅ Đã tạo/kiểm tra bảng support_message");
 
+            migrateSupportSessionSummary();
+
         } catch (Exception e) {
             logger.error("❌ Lỗi khi tạo bảng support: {}", e.getMessage());
         }
     }
+
+    /**
+     * Bổ sung index keyset cho support_message và điền last_message cho các session cũ
+     */
+    private void migrateSupportSessionSummary() {
+        try {
+            Integer indexCount = jdbcTemplate.queryForObject("""
+                    SELECT COUNT(*) FROM information_schema.statistics
+                    WHERE table_schema = DATABASE() AND table_name = 'support_message'
+                      AND index_name = 'idx_session_created'
+                    """, Integer.class);
+            if (indexCount != null && indexCount == 0) {
+                jdbcTemplate.execute("ALTER TABLE support_message ADD INDEX idx_session_created (session_id, created_at, id)");
+                logger.info("✅ Đã thêm index idx_session_created cho support_message");
+            }
+
+            int updated = jdbcTemplate.update("""
+                    UPDATE support_session s
+                    JOIN support_message m ON m.id = (
+                        SELECT MAX(m2.id) FROM support_message m2 WHERE m2.session_id = s.session_id
+                    )
+                    SET s.last_message = LEFT(m.message, 500),
+                        s.last_sender_type = m.sender_type,
+                        s.last_activity_at = m.created_at
+                    WHERE s.last_activity_at IS NULL
+                    """);
+            if (updated > 0) {
+                logger.info("✅ Đã cập nhật tin nhắn cuối cho {} support session", updated);
+            }
+        } catch (Exception e) {
+            logger.error("❌ Lỗi khi cập nhật support_session: {}", e.getMessage());
+        }
+    }
 }
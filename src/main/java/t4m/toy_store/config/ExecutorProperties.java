@@ -0,0 +1,56 @@
+package t4m.toy_store.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cấu hình cho các executor chạy tác vụ nền (@Async)
+ * Mỗi executor được khai báo theo tên: app.executors.pools.<name>.*
+ */
+@Data
+@ConfigurationProperties(prefix = "app.executors")
+public class ExecutorProperties {
+
+    // Cấu hình riêng cho từng executor (mail, chatbot, image, analytics)
+    private Map<String, Pool> pools = new LinkedHashMap<>();
+
+    // Scheduler dùng cho các job @Scheduled
+    private Scheduler scheduler = new Scheduler();
+
+    public Pool pool(String name) {
+        return pools.computeIfAbsent(name, key -> new Pool());
+    }
+
+    @Data
+    public static class Pool {
+        // true = dùng virtual thread (giới hạn bằng concurrencyLimit), false = pool platform thread có giới hạn
+        private boolean virtualThreads = false;
+        private int coreSize = 2;
+        private int maxSize = 4;
+        private int queueCapacity = 100;
+        private int keepAliveSeconds = 60;
+        // Số tác vụ chạy đồng thời tối đa khi dùng virtual thread
+        private int concurrencyLimit = 64;
+        private SaturationPolicy saturationPolicy = SaturationPolicy.CALLER_RUNS;
+        private int awaitTerminationSeconds = 30;
+    }
+
+    @Data
+    public static class Scheduler {
+        private int poolSize = 4;
+        private int awaitTerminationSeconds = 30;
+    }
+
+    /**
+     * Cách xử lý khi executor đã đầy (hết thread và queue)
+     */
+    public enum SaturationPolicy {
+        CALLER_RUNS,    // Chạy trên thread của người gọi (tạo back-pressure)
+        ABORT,          // Ném TaskRejectedException
+        DISCARD,        // Bỏ tác vụ mới
+        DISCARD_OLDEST  // Bỏ tác vụ cũ nhất trong queue
+    }
+}
@@ -0,0 +1,113 @@
+package t4m.toy_store.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.core.task.TaskDecorator;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * TaskDecorator đo số tác vụ đang chờ, đang chạy, thời gian chờ và thời gian chạy của một executor
+ * Dùng chung cho cả pool platform thread và virtual thread
+ */
+class InstrumentedTaskDecorator implements TaskDecorator {
+
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final Timer waitTimer;
+    private final Timer executionTimer;
+    private final Counter rejectedCounter;
+
+    InstrumentedTaskDecorator(String executorName, MeterRegistry registry) {
+        Gauge.builder("executor.queued", queued, AtomicInteger::get)
+                .tag("name", executorName)
+                .description("Tasks submitted but not yet started")
+                .register(registry);
+        Gauge.builder("executor.active", active, AtomicInteger::get)
+                .tag("name", executorName)
+                .description("Tasks currently running")
+                .register(registry);
+        this.waitTimer = Timer.builder("executor.task.wait")
+                .tag("name", executorName)
+                .description("Time between submission and start")
+                .register(registry);
+        this.executionTimer = Timer.builder("executor.task.duration")
+                .tag("name", executorName)
+                .description("Task execution time")
+                .register(registry);
+        this.rejectedCounter = Counter.builder("executor.rejected")
+                .tag("name", executorName)
+                .description("Tasks hitting the saturation policy")
+                .register(registry);
+    }
+
+    @Override
+    public Runnable decorate(Runnable runnable) {
+        queued.incrementAndGet();
+        return new InstrumentedTask(runnable, System.nanoTime());
+    }
+
+    /**
+     * Tạo RejectedExecutionHandler theo policy, đếm số lần bị từ chối và giữ đúng số tác vụ đang chờ
+     */
+    RejectedExecutionHandler rejectionHandler(ExecutorProperties.SaturationPolicy policy) {
+        return (runnable, executor) -> {
+            rejectedCounter.increment();
+            switch (policy) {
+                case CALLER_RUNS -> new ThreadPoolExecutor.CallerRunsPolicy().rejectedExecution(runnable, executor);
+                case DISCARD -> dropped(runnable);
+                case DISCARD_OLDEST -> {
+                    if (executor.isShutdown()) {
+                        dropped(runnable);
+                        return;
+                    }
+                    // Tác vụ đã được decorate nên đưa thẳng vào queue thay vì execute lại
+                    dropped(executor.getQueue().poll());
+                    if (!executor.getQueue().offer(runnable)) {
+                        dropped(runnable);
+                    }
+                }
+                case ABORT -> {
+                    dropped(runnable);
+                    throw new RejectedExecutionException("Executor saturated: " + executor);
+                }
+            }
+        };
+    }
+
+    private void dropped(Runnable runnable) {
+        if (runnable instanceof InstrumentedTask) {
+            queued.decrementAndGet();
+        }
+    }
+
+    private final class InstrumentedTask implements Runnable {
+        private final Runnable delegate;
+        private final long submittedAt;
+
+        private InstrumentedTask(Runnable delegate, long submittedAt) {
+            this.delegate = delegate;
+            this.submittedAt = submittedAt;
+        }
+
+        @Override
+        public void run() {
+            long startedAt = System.nanoTime();
+            queued.decrementAndGet();
+            waitTimer.record(startedAt - submittedAt, TimeUnit.NANOSECONDS);
+            active.incrementAndGet();
+            try {
+                delegate.run();
+            } finally {
+                active.decrementAndGet();
+                executionTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+}
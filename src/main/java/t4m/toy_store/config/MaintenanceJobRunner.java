@@ -0,0 +1,51 @@
+package t4m.toy_store.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Chạy các job nền dài (rebuild, reconcile, snapshot, purge) trên executor "maintenance"
+ * Job @Scheduled chỉ gọi submit nên thread scheduler được trả lại ngay, các vòng lặp nhanh
+ * (flush chat, poll outbox, poll cluster) không bị chặn sau một job dài
+ * Mỗi job chạy tối đa một lượt tại một thời điểm; lượt kích hoạt trùng khi job đang chạy bị bỏ qua
+ */
+@Component
+public class MaintenanceJobRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(MaintenanceJobRunner.class);
+
+    private final AsyncTaskExecutor executor;
+    private final Set<String> running = ConcurrentHashMap.newKeySet();
+
+    public MaintenanceJobRunner(@Qualifier(AsyncConfig.MAINTENANCE_EXECUTOR) AsyncTaskExecutor executor) {
+        this.executor = executor;
+    }
+
+    public void submit(String job, Runnable task) {
+        if (!running.add(job)) {
+            logger.debug("Maintenance job {} still running, trigger skipped", job);
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    logger.error("Maintenance job {} failed: {}", job, e.getMessage(), e);
+                } finally {
+                    running.remove(job);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            running.remove(job);
+            logger.warn("Maintenance executor saturated, job {} skipped until next trigger", job);
+        }
+    }
+}
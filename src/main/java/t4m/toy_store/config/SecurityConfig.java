@@ -79,6 +79,7 @@ public class SecurityConfig {
                         // Public API endpoints
                         .requestMatchers("/api/auth/**").permitAll()
                         .requestMatchers("/api/products/**").permitAll()
+                        .requestMatchers("/api/home/**").permitAll()
                         .requestMatchers("/api/chatbot/**").permitAll()
                         
                         // VNPay payment callback endpoints - MUST be public
@@ -100,6 +101,10 @@ public class SecurityConfig {
                         .requestMatchers("/api/user/**").authenticated()
                         .requestMatchers("/api/support/**").authenticated()
 
+                        // Actuator - health public, metrics chỉ cho ADMIN
+                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
+
                         // Vendor API endpoints
                         .requestMatchers("/api/vendor/**").hasRole("VENDOR")
 
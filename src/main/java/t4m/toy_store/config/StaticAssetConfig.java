@@ -0,0 +1,54 @@
+package t4m.toy_store.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+import org.springframework.web.servlet.resource.ResourceUrlEncodingFilter;
+import org.springframework.web.servlet.resource.VersionResourceResolver;
+
+import java.time.Duration;
+
+/**
+ * Phục vụ /js/** và /css/** qua resource chain
+ * - VersionResourceResolver: URL mang hash nội dung (home-3f2a...js), đổi file là đổi URL
+ * - EncodedResourceResolver: trả bản .br/.gz nén sẵn lúc build (PrecompressAssets) theo Accept-Encoding
+ * - Cache-Control public, max-age dài, immutable: trình duyệt không revalidate nữa
+ * ResourceUrlEncodingFilter cho @{/js/...} trong template Thymeleaf tự ra URL đã gắn hash
+ */
+@Configuration
+public class StaticAssetConfig implements WebMvcConfigurer {
+
+    private final long maxAgeDays;
+    private final boolean cacheResolved;
+
+    public StaticAssetConfig(@Value("${app.assets.max-age-days:365}") long maxAgeDays,
+                             @Value("${app.assets.cache-resolved:true}") boolean cacheResolved) {
+        this.maxAgeDays = maxAgeDays;
+        this.cacheResolved = cacheResolved;
+    }
+
+    @Override
+    public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        register(registry, "/js/**", "classpath:/static/js/");
+        register(registry, "/css/**", "classpath:/static/css/");
+    }
+
+    @Bean
+    public ResourceUrlEncodingFilter resourceUrlEncodingFilter() {
+        return new ResourceUrlEncodingFilter();
+    }
+
+    private void register(ResourceHandlerRegistry registry, String pattern, String location) {
+        registry.addResourceHandler(pattern)
+                .addResourceLocations(location)
+                .setCacheControl(CacheControl.maxAge(Duration.ofDays(maxAgeDays)).cachePublic().immutable())
+                // cacheResolved=false khi dev để sửa file là thấy ngay (hash được tính lại mỗi request)
+                .resourceChain(cacheResolved)
+                .addResolver(new EncodedResourceResolver())
+                .addResolver(new VersionResourceResolver().addContentVersionStrategy("/**"));
+    }
+}
@@ -0,0 +1,90 @@
+package t4m.toy_store.config;
+
+import io.jsonwebtoken.JwtException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.lang.NonNull;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+import t4m.toy_store.auth.util.JwtUtil;
+import t4m.toy_store.shipper.service.DispatchBoardService;
+
+import java.security.Principal;
+
+/**
+ * Xác thực STOMP bằng JWT gửi trong header Authorization của frame CONNECT
+ * (handshake SockJS không mang được header nên JwtRequestFilter không áp dụng ở đây)
+ * và chỉ cho ROLE_SHIPPER subscribe bảng điều phối đơn
+ */
+@Component
+public class WebSocketAuthInterceptor implements ChannelInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebSocketAuthInterceptor.class);
+    private static final String BEARER_PREFIX = "Bearer ";
+    private static final String SHIPPER_ROLE = "ROLE_SHIPPER";
+
+    private final JwtUtil jwtUtil;
+    private final UserDetailsService userDetailsService;
+
+    public WebSocketAuthInterceptor(JwtUtil jwtUtil, UserDetailsService userDetailsService) {
+        this.jwtUtil = jwtUtil;
+        this.userDetailsService = userDetailsService;
+    }
+
+    @Override
+    public Message<?> preSend(@NonNull Message<?> message, @NonNull MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() == null) {
+            return message;
+        }
+
+        if (StompCommand.CONNECT.equals(accessor.getCommand())) {
+            Authentication user = authenticate(accessor.getFirstNativeHeader("Authorization"));
+            if (user != null) {
+                accessor.setUser(user);
+            }
+        } else if (StompCommand.SUBSCRIBE.equals(accessor.getCommand())
+                && DispatchBoardService.BOARD_TOPIC.equals(accessor.getDestination())
+                && !isShipper(accessor.getUser())) {
+            logger.warn("Rejected subscription to {} for session {}", DispatchBoardService.BOARD_TOPIC,
+                    accessor.getSessionId());
+            throw new AccessDeniedException("Chỉ shipper mới được theo dõi bảng điều phối đơn");
+        }
+        return message;
+    }
+
+    private Authentication authenticate(String authorizationHeader) {
+        if (authorizationHeader == null || !authorizationHeader.startsWith(BEARER_PREFIX)) {
+            return null;
+        }
+        String jwt = authorizationHeader.substring(BEARER_PREFIX.length());
+        try {
+            String username = jwtUtil.extractUsername(jwt);
+            if (username == null || !jwtUtil.isTokenValid(jwt, username)) {
+                return null;
+            }
+            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+            return new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+        } catch (JwtException | UsernameNotFoundException e) {
+            logger.warn("Rejected JWT token on STOMP CONNECT: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static boolean isShipper(Principal user) {
+        return user instanceof Authentication authentication
+                && authentication.getAuthorities().stream()
+                        .anyMatch(authority -> SHIPPER_ROLE.equals(authority.getAuthority()));
+    }
+}
@@ -0,0 +1,186 @@
+package t4m.toy_store.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.lang.NonNull;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Đồng bộ message /topic/** giữa nhiều node khi chạy broker in-memory (broker-mode=cluster)
+ * Message gửi tới brokerChannel được ghi vào bảng ws_broadcast theo lô,
+ * các node khác poll bảng này và phát lại cho subscriber local của mình
+ */
+@Component
+@ConditionalOnProperty(name = "app.websocket.broker-mode", havingValue = "cluster")
+public class WebSocketClusterFanout implements ChannelInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebSocketClusterFanout.class);
+
+    // Header đánh dấu message đã được phát lại từ node khác, tránh ghi ngược vào bảng
+    static final String ORIGIN_HEADER = "x-cluster-origin";
+    private static final int OUTGOING_CAPACITY = 10000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectProvider<MessageChannel> brokerChannel;
+    private final WebSocketProperties.Cluster config;
+    private final String nodeId;
+    private final BlockingQueue<Broadcast> outgoing = new ArrayBlockingQueue<>(OUTGOING_CAPACITY);
+
+    // Id đã phát lại gần đây; quét lùi một đoạn để không bỏ sót dòng commit trễ
+    private final Set<Long> recentlyDelivered;
+    private volatile long lastSeenId;
+
+    public WebSocketClusterFanout(JdbcTemplate jdbcTemplate,
+                                  @Qualifier("brokerChannel") ObjectProvider<MessageChannel> brokerChannel,
+                                  WebSocketProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.brokerChannel = brokerChannel;
+        this.config = properties.getCluster();
+        this.nodeId = config.getNodeId() != null ? config.getNodeId() : UUID.randomUUID().toString();
+        int remembered = config.getBatchSize() * 4;
+        this.recentlyDelivered = Collections.newSetFromMap(new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+                return size() > remembered;
+            }
+        });
+    }
+
+    @PostConstruct
+    public void init() {
+        jdbcTemplate.execute("""
+                CREATE TABLE IF NOT EXISTS ws_broadcast (
+                    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+                    node_id VARCHAR(64) NOT NULL,
+                    destination VARCHAR(255) NOT NULL,
+                    content_type VARCHAR(100),
+                    payload MEDIUMTEXT NOT NULL,
+                    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                    INDEX idx_created_at (created_at)
+                ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci
+                """);
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM ws_broadcast", Long.class);
+        lastSeenId = maxId != null ? maxId : 0L;
+        logger.info("WebSocket cluster fan-out enabled on node {} (starting after id {})", nodeId, lastSeenId);
+    }
+
+    @Override
+    public Message<?> preSend(@NonNull Message<?> message, @NonNull MessageChannel channel) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        String destination = accessor.getDestination();
+        if (accessor.getMessageType() != SimpMessageType.MESSAGE
+                || destination == null
+                || !destination.startsWith("/topic/")
+                || accessor.getFirstNativeHeader(ORIGIN_HEADER) != null
+                || !(message.getPayload() instanceof byte[] payload)) {
+            return message;
+        }
+
+        MimeType contentType = accessor.getContentType();
+        Broadcast broadcast = new Broadcast(destination,
+                contentType != null ? contentType.toString() : null,
+                new String(payload, StandardCharsets.UTF_8));
+        if (!outgoing.offer(broadcast)) {
+            logger.warn("Cluster fan-out queue full, message to {} only delivered locally", destination);
+        }
+        return message;
+    }
+
+    @Scheduled(fixedDelayString = "${app.websocket.cluster.poll-interval-ms:300}")
+    public void sync() {
+        try {
+            flushOutgoing();
+            pullIncoming();
+        } catch (Exception e) {
+            logger.error("Cluster fan-out sync failed: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelay = 60000)
+    public void purgeExpired() {
+        LocalDateTime cutoff = LocalDateTime.now().minusSeconds(config.getRetentionSeconds());
+        int deleted = jdbcTemplate.update("DELETE FROM ws_broadcast WHERE created_at < ?", Timestamp.valueOf(cutoff));
+        if (deleted > 0) {
+            logger.debug("Purged {} expired cluster broadcasts", deleted);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushOutgoing();
+    }
+
+    private void flushOutgoing() {
+        List<Broadcast> batch = new ArrayList<>();
+        while (outgoing.drainTo(batch, config.getBatchSize()) > 0) {
+            jdbcTemplate.batchUpdate(
+                    "INSERT INTO ws_broadcast (node_id, destination, content_type, payload) VALUES (?, ?, ?, ?)",
+                    batch, batch.size(), (ps, b) -> {
+                        ps.setString(1, nodeId);
+                        ps.setString(2, b.destination());
+                        ps.setString(3, b.contentType());
+                        ps.setString(4, b.payload());
+                    });
+            batch.clear();
+        }
+    }
+
+    private void pullIncoming() {
+        long from = Math.max(0, lastSeenId - config.getBatchSize());
+        List<IncomingBroadcast> rows = jdbcTemplate.query(
+                "SELECT id, node_id, destination, content_type, payload FROM ws_broadcast "
+                        + "WHERE id > ? ORDER BY id LIMIT ?",
+                (rs, num) -> new IncomingBroadcast(rs.getLong("id"), rs.getString("node_id"),
+                        rs.getString("destination"), rs.getString("content_type"), rs.getString("payload")),
+                from, config.getBatchSize() * 2);
+
+        MessageChannel channel = brokerChannel.getObject();
+        for (IncomingBroadcast row : rows) {
+            lastSeenId = Math.max(lastSeenId, row.id());
+            if (nodeId.equals(row.nodeId()) || !recentlyDelivered.add(row.id())) {
+                continue;
+            }
+            SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+            accessor.setDestination(row.destination());
+            if (row.contentType() != null) {
+                accessor.setContentType(MimeType.valueOf(row.contentType()));
+            }
+            accessor.setNativeHeader(ORIGIN_HEADER, row.nodeId());
+            channel.send(MessageBuilder.createMessage(
+                    row.payload().getBytes(StandardCharsets.UTF_8), accessor.getMessageHeaders()));
+        }
+    }
+
+    private record Broadcast(String destination, String contentType, String payload) {
+    }
+
+    private record IncomingBroadcast(long id, String nodeId, String destination, String contentType, String payload) {
+    }
+}
@@ -1,27 +1,108 @@
 package t4m.toy_store.config;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.lang.NonNull;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
 
 @Configuration
 @EnableWebSocketMessageBroker
+@EnableConfigurationProperties(WebSocketProperties.class)
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private static final Logger logger = LoggerFactory.getLogger(WebSocketConfig.class);
+
+    private final WebSocketProperties properties;
+    private final ObjectProvider<WebSocketClusterFanout> clusterFanout;
+    private final WebSocketAuthInterceptor authInterceptor;
+
+    public WebSocketConfig(WebSocketProperties properties, ObjectProvider<WebSocketClusterFanout> clusterFanout,
+                           WebSocketAuthInterceptor authInterceptor) {
+        this.properties = properties;
+        this.clusterFanout = clusterFanout;
+        this.authInterceptor = authInterceptor;
+    }
+
+    /**
+     * Scheduler riêng cho heartbeat của broker in-memory
+     */
+    @Bean
+    public ThreadPoolTaskScheduler wsHeartbeatScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(1);
+        scheduler.setThreadNamePrefix("ws-heartbeat-");
+        return scheduler;
+    }
+
     @Override
     public void configureMessageBroker(@NonNull MessageBrokerRegistry config) {
-        config.enableSimpleBroker("/topic", "/queue");
+        long[] heartbeat = {properties.getHeartbeatSendMs(), properties.getHeartbeatReceiveMs()};
+
+        switch (properties.getBrokerMode()) {
+            case RELAY -> {
+                WebSocketProperties.Relay relay = properties.getRelay();
+                config.enableStompBrokerRelay("/topic", "/queue")
+                        .setRelayHost(relay.getHost())
+                        .setRelayPort(relay.getPort())
+                        .setClientLogin(relay.getClientLogin())
+                        .setClientPasscode(relay.getClientPasscode())
+                        .setSystemLogin(relay.getSystemLogin())
+                        .setSystemPasscode(relay.getSystemPasscode())
+                        .setVirtualHost(relay.getVirtualHost())
+                        .setSystemHeartbeatSendInterval(properties.getHeartbeatSendMs())
+                        .setSystemHeartbeatReceiveInterval(properties.getHeartbeatReceiveMs());
+                logger.info("WebSocket broker: STOMP relay to {}:{}", relay.getHost(), relay.getPort());
+            }
+            case CLUSTER -> {
+                config.enableSimpleBroker("/topic", "/queue")
+                        .setHeartbeatValue(heartbeat)
+                        .setTaskScheduler(wsHeartbeatScheduler());
+                config.configureBrokerChannel().interceptors(clusterFanout.getObject());
+                logger.info("WebSocket broker: in-memory with cluster fan-out");
+            }
+            default -> {
+                config.enableSimpleBroker("/topic", "/queue")
+                        .setHeartbeatValue(heartbeat)
+                        .setTaskScheduler(wsHeartbeatScheduler());
+                logger.info("WebSocket broker: in-memory (single node)");
+            }
+        }
         config.setApplicationDestinationPrefixes("/app");
         config.setUserDestinationPrefix("/user");
     }
 
+    @Override
+    public void configureClientInboundChannel(@NonNull ChannelRegistration registration) {
+        applyPool(registration, properties.getInbound());
+        registration.interceptors(authInterceptor);
+    }
+
+    @Override
+    public void configureClientOutboundChannel(@NonNull ChannelRegistration registration) {
+        applyPool(registration, properties.getOutbound());
+    }
+
     @Override
     public void registerStompEndpoints(@NonNull StompEndpointRegistry registry) {
         registry.addEndpoint("/ws-support")
                 .setAllowedOriginPatterns("*")
                 .withSockJS();
     }
+
+    private void applyPool(ChannelRegistration registration, WebSocketProperties.ChannelPool pool) {
+        registration.taskExecutor()
+                .corePoolSize(pool.getCoreSize())
+                .maxPoolSize(pool.getMaxSize())
+                .queueCapacity(pool.getQueueCapacity())
+                .keepAliveSeconds(pool.getKeepAliveSeconds());
+    }
 }
@@ -0,0 +1,57 @@
+package t4m.toy_store.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Cấu hình message broker cho WebSocket (support chat, thông báo admin)
+ */
+@Data
+@ConfigurationProperties(prefix = "app.websocket")
+public class WebSocketProperties {
+
+    private BrokerMode brokerMode = BrokerMode.SIMPLE;
+
+    // Heartbeat server <-> client (ms), 0 = tắt
+    private long heartbeatSendMs = 10000;
+    private long heartbeatReceiveMs = 10000;
+
+    private ChannelPool inbound = new ChannelPool();
+    private ChannelPool outbound = new ChannelPool();
+    private Relay relay = new Relay();
+    private Cluster cluster = new Cluster();
+
+    public enum BrokerMode {
+        SIMPLE,  // Broker in-memory, chỉ chạy 1 node
+        RELAY,   // StompBrokerRelay tới broker ngoài (RabbitMQ, ActiveMQ...)
+        CLUSTER  // Broker in-memory + đồng bộ giữa các node qua bảng ws_broadcast
+    }
+
+    @Data
+    public static class ChannelPool {
+        private int coreSize = Runtime.getRuntime().availableProcessors() * 2;
+        private int maxSize = Integer.MAX_VALUE;
+        private int queueCapacity = Integer.MAX_VALUE;
+        private int keepAliveSeconds = 60;
+    }
+
+    @Data
+    public static class Relay {
+        private String host = "localhost";
+        private int port = 61613;
+        private String clientLogin = "guest";
+        private String clientPasscode = "guest";
+        private String systemLogin = "guest";
+        private String systemPasscode = "guest";
+        private String virtualHost;
+    }
+
+    @Data
+    public static class Cluster {
+        // Tên node, mặc định sinh ngẫu nhiên khi khởi động
+        private String nodeId;
+        private long pollIntervalMs = 300;
+        private int batchSize = 200;
+        private int retentionSeconds = 300;
+    }
+}
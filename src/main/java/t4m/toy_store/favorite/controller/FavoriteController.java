@@ -2,7 +2,9 @@ package t4m.toy_store.favorite.controller;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import t4m.toy_store.auth.entity.User;
 import t4m.toy_store.favorite.dto.AddFavoriteRequest;
 import t4m.toy_store.favorite.dto.FavoriteResponse;
 import t4m.toy_store.favorite.entity.Favorite;
@@ -22,10 +24,10 @@ public class FavoriteController {
 
     @PostMapping("/add")
     public ResponseEntity<?> addFavorite(
-            @RequestHeader("X-User-Email") String userEmail,
+            @AuthenticationPrincipal User user,
             @RequestBody AddFavoriteRequest request) {
         try {
-            Favorite favorite = favoriteService.addFavorite(userEmail, request.getProductId());
+            Favorite favorite = favoriteService.addFavorite(user, request.getProductId());
             return ResponseEntity.ok(FavoriteResponse.fromEntity(favorite));
         } catch (RuntimeException e) {
             Map<String, String> error = new HashMap<>();
@@ -36,10 +38,10 @@ public class FavoriteController {
 
     @DeleteMapping("/remove/{productId}")
     public ResponseEntity<?> removeFavorite(
-            @RequestHeader("X-User-Email") String userEmail,
+            @AuthenticationPrincipal User user,
             @PathVariable Long productId) {
         try {
-            favoriteService.removeFavorite(userEmail, productId);
+            favoriteService.removeFavorite(user, productId);
             Map<String, String> response = new HashMap<>();
             response.put("message", "Removed from favorites");
             return ResponseEntity.ok(response);
@@ -52,8 +54,8 @@ public class FavoriteController {
 
     @GetMapping
     public ResponseEntity<List<FavoriteResponse>> getUserFavorites(
-            @RequestHeader("X-User-Email") String userEmail) {
-        List<Favorite> favorites = favoriteService.getUserFavorites(userEmail);
+            @AuthenticationPrincipal User user) {
+        List<Favorite> favorites = favoriteService.getUserFavorites(user);
         List<FavoriteResponse> response = favorites.stream()
                 .map(FavoriteResponse::fromEntity)
                 .collect(Collectors.toList());
@@ -62,18 +64,33 @@ public class FavoriteController {
 
     @GetMapping("/check/{productId}")
     public ResponseEntity<Map<String, Boolean>> checkFavorite(
-            @RequestHeader("X-User-Email") String userEmail,
+            @AuthenticationPrincipal User user,
             @PathVariable Long productId) {
-        boolean isFavorite = favoriteService.isFavorite(userEmail, productId);
+        boolean isFavorite = favoriteService.isFavorite(user, productId);
         Map<String, Boolean> response = new HashMap<>();
         response.put("isFavorite", isFavorite);
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Kiểm tra hàng loạt: /api/favorites/check?productIds=1,2,3
+     * Trả về các id trong danh sách đã được yêu thích
+     */
+    @GetMapping("/check")
+    public ResponseEntity<?> checkFavorites(
+            @AuthenticationPrincipal User user,
+            @RequestParam List<Long> productIds) {
+        try {
+            return ResponseEntity.ok(favoriteService.filterFavorites(user, productIds));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     @GetMapping("/count")
     public ResponseEntity<Map<String, Long>> getFavoriteCount(
-            @RequestHeader("X-User-Email") String userEmail) {
-        long count = favoriteService.countUserFavorites(userEmail);
+            @AuthenticationPrincipal User user) {
+        long count = favoriteService.countUserFavorites(user);
         Map<String, Long> response = new HashMap<>();
         response.put("count", count);
         return ResponseEntity.ok(response);
@@ -81,8 +98,8 @@ public class FavoriteController {
 
     @GetMapping("/product-ids")
     public ResponseEntity<List<Long>> getFavoriteProductIds(
-            @RequestHeader("X-User-Email") String userEmail) {
-        List<Long> productIds = favoriteService.getUserFavoriteProductIds(userEmail);
+            @AuthenticationPrincipal User user) {
+        List<Long> productIds = favoriteService.getUserFavoriteProductIds(user);
         return ResponseEntity.ok(productIds);
     }
 }
@@ -13,6 +13,9 @@ import java.util.Optional;
 public interface FavoriteRepository extends JpaRepository<Favorite, Long> {
     
     List<Favorite> findByUserIdOrderByCreatedAtDesc(Long userId);
+
+    @Query("SELECT f FROM Favorite f JOIN FETCH f.product WHERE f.user.id = :userId ORDER BY f.createdAt DESC")
+    List<Favorite> findWithProductByUserId(@Param("userId") Long userId);
     
     Optional<Favorite> findByUserIdAndProductId(Long userId, Long productId);
     
@@ -0,0 +1,61 @@
+package t4m.toy_store.favorite.service;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Tập product id yêu thích của một user: mảng long[] đã sắp xếp, bất biến
+ * Mỗi phần tử 8 byte (không boxing), tra cứu bằng binary search;
+ * thêm/xóa tạo mảng mới nên đọc đồng thời không cần khóa
+ */
+final class FavoriteIdSet {
+
+    static final FavoriteIdSet EMPTY = new FavoriteIdSet(new long[0]);
+
+    private final long[] ids;
+
+    private FavoriteIdSet(long[] sortedIds) {
+        this.ids = sortedIds;
+    }
+
+    static FavoriteIdSet of(Collection<Long> productIds) {
+        long[] values = productIds.stream().mapToLong(Long::longValue).sorted().distinct().toArray();
+        return values.length == 0 ? EMPTY : new FavoriteIdSet(values);
+    }
+
+    boolean contains(long productId) {
+        return Arrays.binarySearch(ids, productId) >= 0;
+    }
+
+    int size() {
+        return ids.length;
+    }
+
+    FavoriteIdSet with(long productId) {
+        int index = Arrays.binarySearch(ids, productId);
+        if (index >= 0) {
+            return this;
+        }
+        int insertAt = -index - 1;
+        long[] next = new long[ids.length + 1];
+        System.arraycopy(ids, 0, next, 0, insertAt);
+        next[insertAt] = productId;
+        System.arraycopy(ids, insertAt, next, insertAt + 1, ids.length - insertAt);
+        return new FavoriteIdSet(next);
+    }
+
+    FavoriteIdSet without(long productId) {
+        int index = Arrays.binarySearch(ids, productId);
+        if (index < 0) {
+            return this;
+        }
+        long[] next = new long[ids.length - 1];
+        System.arraycopy(ids, 0, next, 0, index);
+        System.arraycopy(ids, index + 1, next, index, ids.length - index - 1);
+        return new FavoriteIdSet(next);
+    }
+
+    long[] toArray() {
+        return ids.clone();
+    }
+}
@@ -0,0 +1,73 @@
+package t4m.toy_store.favorite.service;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import org.springframework.stereotype.Component;
+import t4m.toy_store.config.AfterCommit;
+import t4m.toy_store.favorite.repository.FavoriteRepository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache tập sản phẩm yêu thích theo user
+ * Nạp một lần từ DB, sau đó cập nhật tại chỗ khi thêm/xóa (sau commit),
+ * nên kiểm tra icon trái tim chỉ là tra cứu trong bộ nhớ
+ */
+@Component
+public class FavoriteMembershipCache {
+
+    private final LoadingCache<Long, FavoriteIdSet> cache;
+
+    public FavoriteMembershipCache(FavoriteRepository favoriteRepository) {
+        this.cache = Caffeine.newBuilder()
+                .expireAfterAccess(30, TimeUnit.MINUTES)
+                .maximumSize(50_000)
+                .build(userId -> FavoriteIdSet.of(favoriteRepository.findProductIdsByUserId(userId)));
+    }
+
+    public boolean contains(Long userId, Long productId) {
+        return productId != null && cache.get(userId).contains(productId);
+    }
+
+    /**
+     * Trả về các id trong {@code productIds} mà user đã yêu thích, giữ nguyên thứ tự
+     */
+    public List<Long> filterFavorites(Long userId, Collection<Long> productIds) {
+        FavoriteIdSet favorites = cache.get(userId);
+        List<Long> result = new ArrayList<>();
+        for (Long productId : productIds) {
+            if (productId != null && favorites.contains(productId)) {
+                result.add(productId);
+            }
+        }
+        return result;
+    }
+
+    public List<Long> productIds(Long userId) {
+        long[] ids = cache.get(userId).toArray();
+        List<Long> result = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            result.add(id);
+        }
+        return result;
+    }
+
+    public int count(Long userId) {
+        return cache.get(userId).size();
+    }
+
+    public void onAdded(Long userId, Long productId) {
+        AfterCommit.run(() -> cache.asMap().computeIfPresent(userId, (id, set) -> set.with(productId)));
+    }
+
+    public void onRemoved(Long userId, Long productId) {
+        AfterCommit.run(() -> cache.asMap().computeIfPresent(userId, (id, set) -> set.without(productId)));
+    }
+
+    public void evict(Collection<Long> userIds) {
+        cache.invalidateAll(userIds);
+    }
+}
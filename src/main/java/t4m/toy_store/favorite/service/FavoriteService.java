@@ -4,76 +4,85 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import t4m.toy_store.auth.entity.User;
-import t4m.toy_store.auth.repository.UserRepository;
 import t4m.toy_store.favorite.entity.Favorite;
 import t4m.toy_store.favorite.repository.FavoriteRepository;
-import t4m.toy_store.product.entity.Product;
 import t4m.toy_store.product.repository.ProductRepository;
+import t4m.toy_store.product.service.CatalogCache;
+import t4m.toy_store.product.service.PopularityService;
 
+import java.util.Collection;
 import java.util.List;
 
+/**
+ * Danh sách yêu thích
+ * Các truy vấn "đã yêu thích chưa" đi qua FavoriteMembershipCache (bộ nhớ),
+ * chỉ thêm/xóa và trang danh sách yêu thích mới chạm DB
+ */
 @Service
 @RequiredArgsConstructor
 public class FavoriteService {
-    
+
+    // Giới hạn số id cho một lần kiểm tra hàng loạt (một trang sản phẩm)
+    public static final int MAX_CHECK_IDS = 200;
+
     private final FavoriteRepository favoriteRepository;
-    private final UserRepository userRepository;
     private final ProductRepository productRepository;
+    private final FavoriteMembershipCache membershipCache;
+    private final PopularityService popularityService;
+    private final CatalogCache catalogCache;
 
     @Transactional
-    public Favorite addFavorite(String userEmail, Long productId) {
-        User user = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-        
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new RuntimeException("Product not found"));
-        
-        // Check if already exists
-        if (favoriteRepository.existsByUserIdAndProductId(user.getId(), productId)) {
+    public Favorite addFavorite(User user, Long productId) {
+        if (catalogCache.getProduct(productId).isEmpty()) {
+            throw new RuntimeException("Product not found");
+        }
+
+        // Unique constraint (user_id, product_id) vẫn chặn trường hợp hai request song song
+        if (membershipCache.contains(user.getId(), productId)) {
             throw new RuntimeException("Product already in favorites");
         }
-        
+
         Favorite favorite = Favorite.builder()
                 .user(user)
-                .product(product)
+                .product(productRepository.getReferenceById(productId))
                 .build();
-        
-        return favoriteRepository.save(favorite);
+
+        Favorite saved = favoriteRepository.save(favorite);
+        membershipCache.onAdded(user.getId(), productId);
+        popularityService.recordFavorite(productId);
+        return saved;
     }
 
     @Transactional
-    public void removeFavorite(String userEmail, Long productId) {
-        User user = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-        
+    public void removeFavorite(User user, Long productId) {
         favoriteRepository.deleteByUserIdAndProductId(user.getId(), productId);
+        membershipCache.onRemoved(user.getId(), productId);
+    }
+
+    @Transactional(readOnly = true)
+    public List<Favorite> getUserFavorites(User user) {
+        return favoriteRepository.findWithProductByUserId(user.getId());
     }
 
-    public List<Favorite> getUserFavorites(String userEmail) {
-        User user = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-        
-        return favoriteRepository.findByUserIdOrderByCreatedAtDesc(user.getId());
+    public boolean isFavorite(User user, Long productId) {
+        return membershipCache.contains(user.getId(), productId);
     }
 
-    public boolean isFavorite(String userEmail, Long productId) {
-        User user = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-        
-        return favoriteRepository.existsByUserIdAndProductId(user.getId(), productId);
+    /**
+     * Trong các sản phẩm được hỏi, trả về những sản phẩm user đã yêu thích
+     */
+    public List<Long> filterFavorites(User user, Collection<Long> productIds) {
+        if (productIds.size() > MAX_CHECK_IDS) {
+            throw new IllegalArgumentException("Too many product ids (max " + MAX_CHECK_IDS + ")");
+        }
+        return membershipCache.filterFavorites(user.getId(), productIds);
     }
 
-    public long countUserFavorites(String userEmail) {
-        User user = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-        
-        return favoriteRepository.countByUserId(user.getId());
+    public long countUserFavorites(User user) {
+        return membershipCache.count(user.getId());
     }
 
-    public List<Long> getUserFavoriteProductIds(String userEmail) {
-        User user = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-        
-        return favoriteRepository.findProductIdsByUserId(user.getId());
+    public List<Long> getUserFavoriteProductIds(User user) {
+        return membershipCache.productIds(user.getId());
     }
 }
@@ -0,0 +1,48 @@
+package t4m.toy_store.main.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import t4m.toy_store.main.dto.HomeFragment;
+import t4m.toy_store.main.service.HomePageService;
+
+/**
+ * Dữ liệu dựng sẵn của trang chủ (featured, categories, trending)
+ * ResponseEntity có ETag nên Spring tự trả 304 khi If-None-Match khớp
+ */
+@RestController
+@RequestMapping("/api/home")
+@RequiredArgsConstructor
+public class HomeController {
+
+    private static final int RETRY_AFTER_SECONDS = 5;
+
+    private final HomePageService homePageService;
+
+    @GetMapping("/{section}")
+    public ResponseEntity<byte[]> getSection(@PathVariable String section) {
+        if (!homePageService.isSection(section)) {
+            return ResponseEntity.notFound().build();
+        }
+        HomeFragment fragment = homePageService.getFragment(section);
+        if (fragment == null) {
+            // Chưa dựng được lần nào (vd: DB lỗi lúc khởi động): job định kỳ sẽ thử lại
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(RETRY_AFTER_SECONDS))
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(fragment.etag())
+                // Luôn hỏi lại server, nhưng lượt hỏi lại chỉ tốn một 304
+                .cacheControl(CacheControl.noCache().cachePublic())
+                .body(fragment.body());
+    }
+}
@@ -0,0 +1,9 @@
+package t4m.toy_store.main.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Một phần của trang chủ đã dựng sẵn: JSON đã serialize + ETag mạnh (hash nội dung)
+ */
+public record HomeFragment(String section, byte[] body, String etag, LocalDateTime builtAt) {
+}
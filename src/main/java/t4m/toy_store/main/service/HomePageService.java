@@ -0,0 +1,151 @@
+package t4m.toy_store.main.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import t4m.toy_store.config.MaintenanceJobRunner;
+import t4m.toy_store.main.dto.HomeFragment;
+import t4m.toy_store.product.dto.ProductResponse;
+import t4m.toy_store.product.service.CatalogChangedEvent;
+import t4m.toy_store.product.service.ProductService;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Dựng sẵn các phần dữ liệu của trang chủ (sản phẩm nổi bật, danh mục, đang được quan tâm) thành JSON
+ * - Dựng lại theo chu kỳ, hoặc sớm hơn khi CatalogChangedEvent chạm tới sản phẩm đang hiển thị
+ * - Mỗi phần có ETag theo hash nội dung: trình duyệt gửi If-None-Match và nhận 304 khi không đổi
+ * Request của khách vào trang chủ chỉ đọc bản dựng sẵn trong bộ nhớ, không chạm DB
+ */
+@Service
+public class HomePageService {
+
+    private static final Logger logger = LoggerFactory.getLogger(HomePageService.class);
+
+    public static final String FEATURED = "featured";
+    public static final String CATEGORIES = "categories";
+    public static final String TRENDING = "trending";
+    private static final Set<String> SECTIONS = Set.of(FEATURED, CATEGORIES, TRENDING);
+
+    private static final int FEATURED_SIZE = 4;
+    private static final int TRENDING_SIZE = 8;
+
+    private final ProductService productService;
+    private final ObjectMapper objectMapper;
+    private final MaintenanceJobRunner jobRunner;
+    private final long refreshIntervalMs;
+
+    private volatile Map<String, HomeFragment> fragments = Map.of();
+    // Sản phẩm đang nằm trên trang chủ: chỉ những thay đổi chạm tới chúng mới cần dựng lại sớm
+    private volatile Set<Long> displayedProductIds = Set.of();
+    private volatile long builtAtMillis;
+    private final AtomicBoolean stale = new AtomicBoolean(true);
+
+    public HomePageService(ProductService productService,
+                           ObjectMapper objectMapper,
+                           MaintenanceJobRunner jobRunner,
+                           @Value("${app.home.refresh-interval-ms:60000}") long refreshIntervalMs) {
+        this.productService = productService;
+        this.objectMapper = objectMapper;
+        this.jobRunner = jobRunner;
+        this.refreshIntervalMs = refreshIntervalMs;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        refresh();
+        logger.info("Home page fragments built: {}", fragments.keySet());
+    }
+
+    @Scheduled(fixedDelayString = "${app.home.check-interval-ms:1000}")
+    public void refreshIfNeeded() {
+        if (stale.get() || System.currentTimeMillis() - builtAtMillis >= refreshIntervalMs) {
+            jobRunner.submit("home-refresh", this::refresh);
+        }
+    }
+
+    @EventListener
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        if (event.edited() || event.affects(displayedProductIds)) {
+            stale.set(true);
+        }
+    }
+
+    /**
+     * Phần trang chủ theo tên, null nếu không có phần đó hoặc chưa dựng được lần nào
+     * Không bao giờ đọc DB trên thread request: việc dựng (lại) chỉ do job định kỳ làm
+     */
+    public HomeFragment getFragment(String section) {
+        return fragments.get(section);
+    }
+
+    public boolean isSection(String section) {
+        return SECTIONS.contains(section);
+    }
+
+    public synchronized void refresh() {
+        // Hạ cờ trước khi đọc: thay đổi xảy ra trong lúc dựng sẽ bật lại cờ cho lượt sau
+        stale.set(false);
+        try {
+            List<ProductResponse> featured = productService.getFeaturedProducts().stream()
+                    .limit(FEATURED_SIZE)
+                    .map(ProductResponse::fromEntity)
+                    .toList();
+            List<ProductResponse> trending = productService.getTrendingProducts(TRENDING_SIZE).stream()
+                    .map(ProductResponse::fromEntity)
+                    .toList();
+
+            Map<String, HomeFragment> built = new HashMap<>();
+            built.put(FEATURED, fragment(FEATURED, featured));
+            built.put(TRENDING, fragment(TRENDING, trending));
+            built.put(CATEGORIES, fragment(CATEGORIES, productService.getAllCategories()));
+
+            Set<Long> ids = new HashSet<>();
+            featured.forEach(product -> ids.add(product.getId()));
+            trending.forEach(product -> ids.add(product.getId()));
+
+            displayedProductIds = Set.copyOf(ids);
+            fragments = Map.copyOf(built);
+            builtAtMillis = System.currentTimeMillis();
+        } catch (Exception e) {
+            // Giữ bản dựng cũ, thử lại ở lượt kiểm tra sau
+            stale.set(true);
+            logger.error("Failed to build home page fragments: {}", e.getMessage());
+        }
+    }
+
+    private HomeFragment fragment(String section, Object content) throws JsonProcessingException {
+        byte[] body = objectMapper.writeValueAsBytes(content);
+        HomeFragment previous = fragments.get(section);
+        if (previous != null && Arrays.equals(previous.body(), body)) {
+            return previous;
+        }
+        return new HomeFragment(section, body, etag(body), LocalDateTime.now());
+    }
+
+    private static String etag(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            // JVM nào cũng có SHA-256; phòng hờ thì dùng hash nội dung đơn giản
+            return "\"" + Integer.toHexString(Arrays.hashCode(body)) + "-" + body.length + "\"";
+        }
+    }
+}
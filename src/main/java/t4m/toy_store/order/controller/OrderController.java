@@ -9,12 +9,12 @@ import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 import t4m.toy_store.order.dto.CheckoutRequest;
+import t4m.toy_store.order.dto.OrderHistoryPage;
 import t4m.toy_store.order.dto.OrderResponse;
 import t4m.toy_store.order.service.OrderService;
 import t4m.toy_store.payment.service.VNPayService;
 
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -73,7 +73,9 @@ public class OrderController {
     @GetMapping
     public ResponseEntity<?> getUserOrders(
             @AuthenticationPrincipal UserDetails userDetails,
-            @RequestHeader(value = "X-User-Email", required = false) String userEmail) {
+            @RequestHeader(value = "X-User-Email", required = false) String userEmail,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size) {
         try {
             // Get email from UserDetails or fallback to header
             String email = userDetails != null ? userDetails.getUsername() : userEmail;
@@ -84,8 +86,8 @@ public class OrderController {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(error);
             }
             
-            List<OrderResponse> orders = orderService.getUserOrders(email);
-            return ResponseEntity.ok(orders);
+            OrderHistoryPage page = orderService.getUserOrderHistory(email, cursor, size);
+            return ResponseEntity.ok(page);
         } catch (RuntimeException e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", e.getMessage());
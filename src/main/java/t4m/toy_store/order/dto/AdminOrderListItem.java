@@ -0,0 +1,49 @@
+package t4m.toy_store.order.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import t4m.toy_store.order.entity.OrderStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Một dòng trong danh sách đơn hàng của admin (chi tiết đầy đủ vẫn lấy qua OrderResponse)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AdminOrderListItem {
+    private Long id;
+    private String orderNumber;
+    private String customerName;
+    private String customerEmail;
+    private BigDecimal totalAmount;
+    private String paymentMethod;
+    private String paymentStatus;
+    private OrderStatus status;
+    private LocalDateTime createdAt;
+    private List<OrderSummaryResponse.Item> items;
+
+    public static AdminOrderListItem of(AdminOrderRow row, List<OrderItemSummary> lines) {
+        return AdminOrderListItem.builder()
+                .id(row.getId())
+                .orderNumber(row.getOrderNumber())
+                .customerName(row.getCustomerName())
+                .customerEmail(row.getCustomerEmail())
+                .totalAmount(row.getTotalAmount())
+                .paymentMethod(row.getPaymentMethod())
+                .paymentStatus(row.getPaymentStatus())
+                .status(row.getStatus())
+                .createdAt(row.getCreatedAt())
+                .items(lines.stream()
+                        .map(line -> new OrderSummaryResponse.Item(line.getProductId(), line.getProductName(),
+                                line.getProductImageUrl(), line.getQuantity(), line.getPrice()))
+                        .toList())
+                .build();
+    }
+}
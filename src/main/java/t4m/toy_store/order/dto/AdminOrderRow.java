@@ -0,0 +1,21 @@
+package t4m.toy_store.order.dto;
+
+import t4m.toy_store.order.entity.OrderStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Các cột của đơn hàng hiển thị trên bảng quản trị (projection, không nạp user/shipper/items)
+ */
+public interface AdminOrderRow {
+    Long getId();
+    String getOrderNumber();
+    String getCustomerName();
+    String getCustomerEmail();
+    BigDecimal getTotalAmount();
+    String getPaymentMethod();
+    String getPaymentStatus();
+    OrderStatus getStatus();
+    LocalDateTime getCreatedAt();
+}
@@ -0,0 +1,16 @@
+package t4m.toy_store.order.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderHistoryPage {
+    private List<OrderSummaryResponse> content;
+    private String nextCursor;       // Truyền vào ?cursor= để lấy trang tiếp theo, null nếu hết
+    private boolean hasMore;
+}
@@ -0,0 +1,21 @@
+package t4m.toy_store.order.dto;
+
+import t4m.toy_store.order.entity.OrderStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Các cột của đơn hàng cần cho trang lịch sử (projection, không nạp user/items)
+ */
+public interface OrderHistoryRow {
+    Long getId();
+    String getOrderNumber();
+    OrderStatus getStatus();
+    String getPaymentMethod();
+    String getPaymentStatus();
+    BigDecimal getTotalAmount();
+    String getVoucherCode();
+    BigDecimal getVoucherDiscount();
+    LocalDateTime getCreatedAt();
+}
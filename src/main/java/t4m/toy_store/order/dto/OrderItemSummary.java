@@ -0,0 +1,15 @@
+package t4m.toy_store.order.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Một dòng sản phẩm của đơn trong trang lịch sử (projection, không nạp Product)
+ */
+public interface OrderItemSummary {
+    Long getOrderId();
+    Long getProductId();
+    String getProductName();
+    String getProductImageUrl();
+    Integer getQuantity();
+    BigDecimal getPrice();
+}
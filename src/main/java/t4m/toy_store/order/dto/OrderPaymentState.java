@@ -0,0 +1,12 @@
+package t4m.toy_store.order.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Trạng thái thanh toán tối thiểu của đơn hàng (projection, không nạp order items)
+ */
+public interface OrderPaymentState {
+    Long getId();
+    BigDecimal getTotalAmount();
+    String getPaymentStatus();
+}
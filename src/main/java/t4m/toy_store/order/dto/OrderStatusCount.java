@@ -0,0 +1,12 @@
+package t4m.toy_store.order.dto;
+
+import t4m.toy_store.order.entity.OrderStatus;
+
+/**
+ * Projection cho câu GROUP BY status trên toàn bộ đơn hàng
+ */
+public interface OrderStatusCount {
+    OrderStatus getStatus();
+    long getCount();
+    Long getTodayCount();
+}
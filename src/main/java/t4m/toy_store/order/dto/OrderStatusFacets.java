@@ -0,0 +1,35 @@
+package t4m.toy_store.order.dto;
+
+import t4m.toy_store.order.entity.OrderStatus;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Số đơn theo từng trạng thái + tổng + số đơn tạo hôm nay, dựng từ một câu GROUP BY status
+ */
+public record OrderStatusFacets(Map<OrderStatus, Long> counts, long total, long today) {
+
+    public static OrderStatusFacets of(List<OrderStatusCount> rows) {
+        Map<OrderStatus, Long> counts = new EnumMap<>(OrderStatus.class);
+        for (OrderStatus status : OrderStatus.values()) {
+            counts.put(status, 0L);
+        }
+        long total = 0;
+        long today = 0;
+        for (OrderStatusCount row : rows) {
+            if (row.getStatus() != null) {
+                counts.put(row.getStatus(), row.getCount());
+            }
+            total += row.getCount();
+            today += row.getTodayCount() != null ? row.getTodayCount() : 0;
+        }
+        return new OrderStatusFacets(Collections.unmodifiableMap(counts), total, today);
+    }
+
+    public long count(OrderStatus status) {
+        return status != null ? counts.getOrDefault(status, 0L) : total;
+    }
+}
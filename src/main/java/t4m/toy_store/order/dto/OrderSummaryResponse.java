@@ -0,0 +1,67 @@
+package t4m.toy_store.order.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import t4m.toy_store.order.entity.OrderStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Đơn hàng trong danh sách lịch sử của khách (gọn hơn OrderResponse: không có thông tin giao hàng)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderSummaryResponse {
+    private Long id;
+    private String orderNumber;
+    private OrderStatus status;
+    private String paymentMethod;
+    private String paymentStatus;
+    private BigDecimal totalAmount;
+    private String voucherCode;
+    private BigDecimal voucherDiscount;
+    private LocalDateTime createdAt;
+    private int itemCount;
+    private List<Item> items;
+
+    public static OrderSummaryResponse of(OrderHistoryRow row, List<OrderItemSummary> lines) {
+        int itemCount = 0;
+        List<Item> items = new ArrayList<>(lines.size());
+        for (OrderItemSummary line : lines) {
+            itemCount += line.getQuantity() != null ? line.getQuantity() : 0;
+            items.add(new Item(line.getProductId(), line.getProductName(), line.getProductImageUrl(),
+                    line.getQuantity(), line.getPrice()));
+        }
+        return OrderSummaryResponse.builder()
+                .id(row.getId())
+                .orderNumber(row.getOrderNumber())
+                .status(row.getStatus())
+                .paymentMethod(row.getPaymentMethod())
+                .paymentStatus(row.getPaymentStatus())
+                .totalAmount(row.getTotalAmount())
+                .voucherCode(row.getVoucherCode())
+                .voucherDiscount(row.getVoucherDiscount())
+                .createdAt(row.getCreatedAt())
+                .itemCount(itemCount)
+                .items(items)
+                .build();
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Item {
+        private Long productId;
+        private String productName;
+        private String productImageUrl;
+        private Integer quantity;
+        private BigDecimal price;
+    }
+}
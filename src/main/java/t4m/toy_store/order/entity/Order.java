@@ -10,7 +10,8 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "orders")
+// created_at: cộng dồn chỉ mục also-bought và seed popularity quét đơn theo thời gian tạo
+@Table(name = "orders", indexes = @Index(name = "idx_orders_created_at", columnList = "created_at"))
 @Getter
 @Setter
 @NoArgsConstructor
@@ -68,7 +69,7 @@ public class Order {
 
     // VNPay payment fields
     @Column(name = "payment_status")
-    private String paymentStatus; // PENDING, PAID, FAILED
+    private String paymentStatus; // PENDING, PAID, FAILED, CANCELLED, REFUND_REQUIRED
 
     @Column(name = "vnpay_transaction_no")
     private String vnpayTransactionNo;
@@ -93,9 +94,6 @@ public class Order {
     protected void onCreate() {
         createdAt = LocalDateTime.now();
         updatedAt = LocalDateTime.now();
-        if (orderNumber == null) {
-            orderNumber = generateOrderNumber();
-        }
     }
 
     @PreUpdate
@@ -103,10 +101,6 @@ public class Order {
         updatedAt = LocalDateTime.now();
     }
 
-    private String generateOrderNumber() {
-        return "ORD-" + System.currentTimeMillis();
-    }
-
     // Helper method to add item
     public void addItem(OrderItem item) {
         orderItems.add(item);
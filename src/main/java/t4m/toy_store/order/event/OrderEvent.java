@@ -0,0 +1,84 @@
+package t4m.toy_store.order.event;
+
+import t4m.toy_store.order.entity.Order;
+import t4m.toy_store.order.entity.OrderItem;
+import t4m.toy_store.order.entity.OrderStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Sự kiện đơn hàng lưu trong outbox (payload JSON)
+ * Chụp lại đủ thông tin tại thời điểm xảy ra để listener không phải đọc lại đơn trong đa số trường hợp
+ */
+public record OrderEvent(
+        OrderEventType type,
+        Long orderId,
+        String orderNumber,
+        Long userId,
+        String customerName,
+        String customerEmail,
+        OrderStatus status,
+        OrderStatus previousStatus,
+        Long shipperId,
+        BigDecimal totalAmount,
+        String voucherCode,
+        List<Line> lines,
+        LocalDateTime occurredAt) {
+
+    public record Line(Long productId, int quantity) {
+    }
+
+    public static OrderEvent of(OrderEventType type, Order order, OrderStatus previousStatus) {
+        return of(type, order, previousStatus, List.of());
+    }
+
+    /**
+     * Đơn vừa tạo: kèm các dòng sản phẩm (order items được ghi bằng JDBC nên không nằm trong collection của entity)
+     */
+    public static OrderEvent created(Order order, List<OrderItem> items) {
+        List<Line> lines = items.stream()
+                .map(item -> new Line(item.getProduct().getId(), item.getQuantity()))
+                .toList();
+        return of(OrderEventType.CREATED, order, null, lines);
+    }
+
+    /**
+     * Kết quả thanh toán dựng từ callback, không đọc lại đơn: chỉ có mã đơn, trạng thái và số tiền
+     * orderId được điền từ cột order_id của outbox khi giao; listener cần thông tin khách/voucher thì tự đọc đơn
+     */
+    public static OrderEvent payment(OrderEventType type, String orderNumber, OrderStatus status, BigDecimal amount) {
+        return new OrderEvent(type, null, orderNumber, null, null, null, status, OrderStatus.PENDING_PAYMENT,
+                null, amount, null, List.of(), LocalDateTime.now());
+    }
+
+    /**
+     * Tiền đã bị trừ cho đơn đã hủy: đơn giữ nguyên CANCELLED, số tiền cần hoàn lấy từ callback
+     */
+    public static OrderEvent refundRequired(String orderNumber, BigDecimal amount) {
+        return new OrderEvent(OrderEventType.PAYMENT_REFUND_REQUIRED, null, orderNumber, null, null, null,
+                OrderStatus.CANCELLED, OrderStatus.CANCELLED, null, amount, null, List.of(), LocalDateTime.now());
+    }
+
+    public OrderEvent withOrderId(Long orderId) {
+        return new OrderEvent(type, orderId, orderNumber, userId, customerName, customerEmail, status, previousStatus,
+                shipperId, totalAmount, voucherCode, lines, occurredAt);
+    }
+
+    private static OrderEvent of(OrderEventType type, Order order, OrderStatus previousStatus, List<Line> lines) {
+        return new OrderEvent(type,
+                order.getId(),
+                order.getOrderNumber(),
+                order.getUser() != null ? order.getUser().getId() : null,
+                order.getCustomerName(),
+                order.getCustomerEmail(),
+                order.getStatus(),
+                previousStatus,
+                order.getShipper() != null ? order.getShipper().getId() : null,
+                order.getTotalAmount(),
+                order.getVoucherCode(),
+                lines,
+                LocalDateTime.now());
+    }
+}
@@ -0,0 +1,364 @@
+package t4m.toy_store.order.event;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import t4m.toy_store.config.AsyncConfig;
+import t4m.toy_store.config.MaintenanceJobRunner;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Đọc outbox đơn hàng và giao sự kiện cho các OrderEventListener
+ * - Được đánh thức sau mỗi commit có sự kiện, thêm một vòng poll định kỳ cho sự kiện từ node khác / lần thử lại
+ * - Nhận một lô bằng lease (claimed_by + claimed_until): nhiều node cùng chạy không giao trùng,
+ *   node chết giữa chừng thì lease hết hạn và node khác nhận lại
+ * - Sự kiện lỗi được thử lại với backoff lũy thừa; các sự kiện sau của cùng đơn được trả lại và không được nhận
+ *   cho tới khi sự kiện trước xử lý xong (hoặc bị park), nên thứ tự theo từng đơn được giữ
+ * - Quá max-attempts lần (hoặc payload không đọc được) thì sự kiện bị park: không còn được nhận,
+ *   giữ lại trong bảng để xử lý tay và đếm qua gauge orders.events.parked
+ */
+@Component
+public class OrderEventDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderEventDispatcher.class);
+
+    // Bỏ qua sự kiện còn một sự kiện trước đó của cùng đơn đang chờ backoff hoặc đang được node khác giữ.
+    // Bảng dẫn xuất có GROUP BY nên MySQL materialize nó trước, không báo lỗi 1093 khi UPDATE đọc chính bảng đó
+    private static final String CLAIM_SQL = """
+            UPDATE order_event_outbox SET claimed_by = ?, claimed_until = ?
+            WHERE processed_at IS NULL AND parked_at IS NULL AND available_at <= ?
+              AND (claimed_until IS NULL OR claimed_until < ?)
+              AND NOT EXISTS (
+                  SELECT 1 FROM (
+                      SELECT order_id, MIN(id) AS first_id FROM order_event_outbox
+                      WHERE processed_at IS NULL AND parked_at IS NULL
+                        AND (available_at > ? OR claimed_until >= ?)
+                      GROUP BY order_id
+                  ) blocked
+                  WHERE blocked.order_id = order_event_outbox.order_id AND blocked.first_id < order_event_outbox.id
+              )
+            ORDER BY id LIMIT ?
+            """;
+    private static final String CLAIMED_SQL =
+            "SELECT id, order_id, payload, attempts FROM order_event_outbox WHERE claimed_by = ? ORDER BY id";
+    private static final String DONE_SQL =
+            "UPDATE order_event_outbox SET processed_at = ?, claimed_by = NULL, claimed_until = NULL WHERE id = ?";
+    private static final String RETRY_SQL = """
+            UPDATE order_event_outbox
+            SET attempts = attempts + 1, available_at = ?, last_error = ?, claimed_by = NULL, claimed_until = NULL
+            WHERE id = ?
+            """;
+    private static final String PARK_SQL = """
+            UPDATE order_event_outbox
+            SET attempts = attempts + 1, parked_at = ?, last_error = ?, claimed_by = NULL, claimed_until = NULL
+            WHERE id = ?
+            """;
+    private static final String PARKED_COUNT_SQL =
+            "SELECT COUNT(*) FROM order_event_outbox WHERE parked_at IS NOT NULL";
+    private static final String RELEASE_SQL =
+            "UPDATE order_event_outbox SET claimed_by = NULL, claimed_until = NULL WHERE id = ?";
+    private static final String CONSUME_SQL =
+            "INSERT IGNORE INTO order_event_consumed (event_id, consumer, consumed_at) VALUES (?, ?, ?)";
+
+    private static final int PURGE_CHUNK = 5000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final List<OrderEventListener> listeners;
+    private final TransactionTemplate transactionTemplate;
+    private final AsyncTaskExecutor executor;
+    private final MaintenanceJobRunner jobRunner;
+    private final Counter failures;
+    private final AtomicLong parked = new AtomicLong();
+    private final int batchSize;
+    private final long leaseSeconds;
+    private final long maxBackoffSeconds;
+    private final int maxAttempts;
+    private final int retentionDays;
+
+    private final AtomicBoolean drainRequested = new AtomicBoolean();
+    private final ReentrantLock drainLock = new ReentrantLock();
+
+    public OrderEventDispatcher(JdbcTemplate jdbcTemplate,
+                                ObjectMapper objectMapper,
+                                List<OrderEventListener> listeners,
+                                PlatformTransactionManager transactionManager,
+                                @Qualifier(AsyncConfig.ORDER_EVENT_EXECUTOR) AsyncTaskExecutor executor,
+                                MaintenanceJobRunner jobRunner,
+                                MeterRegistry meterRegistry,
+                                @Value("${app.order.events.batch-size:100}") int batchSize,
+                                @Value("${app.order.events.lease-seconds:60}") long leaseSeconds,
+                                @Value("${app.order.events.max-backoff-seconds:600}") long maxBackoffSeconds,
+                                @Value("${app.order.events.max-attempts:15}") int maxAttempts,
+                                @Value("${app.order.events.retention-days:7}") int retentionDays) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.listeners = listeners;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.executor = executor;
+        this.jobRunner = jobRunner;
+        this.failures = Counter.builder("orders.events.failures")
+                .description("Order events that failed and were scheduled for retry")
+                .register(meterRegistry);
+        Gauge.builder("orders.events.parked", parked, AtomicLong::get)
+                .description("Order events parked after exhausting retries")
+                .register(meterRegistry);
+        this.batchSize = Math.max(1, batchSize);
+        this.leaseSeconds = Math.max(1, leaseSeconds);
+        this.maxBackoffSeconds = Math.max(1, maxBackoffSeconds);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retentionDays = Math.max(1, retentionDays);
+    }
+
+    @PostConstruct
+    public void init() {
+        jdbcTemplate.execute("""
+                CREATE TABLE IF NOT EXISTS order_event_outbox (
+                    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+                    event_type VARCHAR(40) NOT NULL,
+                    order_id BIGINT NOT NULL,
+                    payload TEXT NOT NULL,
+                    created_at DATETIME(3) NOT NULL,
+                    available_at DATETIME(3) NOT NULL,
+                    attempts INT NOT NULL DEFAULT 0,
+                    claimed_by VARCHAR(64),
+                    claimed_until DATETIME(3),
+                    processed_at DATETIME(3),
+                    parked_at DATETIME(3),
+                    last_error VARCHAR(500),
+                    INDEX idx_pending (processed_at, available_at),
+                    INDEX idx_parked (parked_at),
+                    INDEX idx_claimed_by (claimed_by),
+                    INDEX idx_order (order_id)
+                ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci
+                """);
+        jdbcTemplate.execute("""
+                CREATE TABLE IF NOT EXISTS order_event_consumed (
+                    event_id BIGINT NOT NULL,
+                    consumer VARCHAR(100) NOT NULL,
+                    consumed_at DATETIME(3) NOT NULL,
+                    PRIMARY KEY (event_id, consumer),
+                    INDEX idx_consumed_at (consumed_at)
+                ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci
+                """);
+        refreshParkedCount();
+        logger.info("Order event dispatcher ready with {} listeners", listeners.size());
+    }
+
+    /**
+     * Gọi sau commit có sự kiện mới; nhiều lần gọi dồn lại thành một lượt drain
+     */
+    public void wake() {
+        if (drainRequested.compareAndSet(false, true)) {
+            submitDrain();
+        }
+    }
+
+    /**
+     * Vòng poll: sự kiện do node khác ghi, sự kiện đến hạn thử lại, lease hết hạn
+     */
+    @Scheduled(fixedDelayString = "${app.order.events.poll-interval-ms:1000}")
+    public void poll() {
+        drainRequested.set(true);
+        submitDrain();
+    }
+
+    @Scheduled(fixedDelay = 3600000)
+    public void scheduledPurge() {
+        jobRunner.submit("order-event-purge", this::purgeProcessed);
+    }
+
+    public void purgeProcessed() {
+        Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minusDays(retentionDays));
+        int deleted = 0;
+        int chunk;
+        do {
+            chunk = jdbcTemplate.update(
+                    "DELETE FROM order_event_outbox WHERE processed_at < ? LIMIT " + PURGE_CHUNK, cutoff);
+            deleted += chunk;
+        } while (chunk == PURGE_CHUNK);
+        jdbcTemplate.update("DELETE FROM order_event_consumed WHERE consumed_at < ? AND event_id NOT IN "
+                + "(SELECT id FROM order_event_outbox WHERE processed_at IS NULL)", cutoff);
+        if (deleted > 0) {
+            logger.debug("Purged {} processed order events", deleted);
+        }
+        // Sự kiện park không bị xóa; đồng bộ lại gauge phòng khi đã được xử lý tay
+        refreshParkedCount();
+    }
+
+    private void refreshParkedCount() {
+        Long count = jdbcTemplate.queryForObject(PARKED_COUNT_SQL, Long.class);
+        parked.set(count == null ? 0 : count);
+    }
+
+    private void submitDrain() {
+        try {
+            executor.execute(this::drain);
+        } catch (TaskRejectedException e) {
+            // Đã có lượt drain trong hàng đợi, vòng poll sau sẽ nhận phần còn lại
+            logger.debug("Order event drain already queued");
+        }
+    }
+
+    private void drain() {
+        if (!drainLock.tryLock()) {
+            return;
+        }
+        try {
+            while (drainRequested.getAndSet(false)) {
+                while (dispatchBatch() == batchSize) {
+                    // Còn tồn: lấy tiếp lô sau
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Order event dispatch failed: {}", e.getMessage(), e);
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    /**
+     * Nhận và xử lý một lô
+     *
+     * @return số sự kiện đã nhận
+     */
+    int dispatchBatch() {
+        String token = UUID.randomUUID().toString();
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp nowTs = Timestamp.valueOf(now);
+        int claimed = jdbcTemplate.update(CLAIM_SQL, token, Timestamp.valueOf(now.plusSeconds(leaseSeconds)),
+                nowTs, nowTs, nowTs, nowTs, batchSize);
+        if (claimed == 0) {
+            return 0;
+        }
+
+        List<ClaimedEvent> events = jdbcTemplate.query(CLAIMED_SQL,
+                (rs, num) -> new ClaimedEvent(rs.getLong("id"), rs.getLong("order_id"), rs.getString("payload"),
+                        rs.getInt("attempts")),
+                token);
+        List<Long> done = new ArrayList<>(events.size());
+        Set<Long> blockedOrders = new HashSet<>();
+        for (ClaimedEvent claimedEvent : events) {
+            OrderEvent event;
+            try {
+                event = objectMapper.readValue(claimedEvent.payload(), OrderEvent.class);
+            } catch (Exception e) {
+                // Đọc lại bao nhiêu lần cũng không được: park ngay
+                park(claimedEvent, "Unreadable payload: " + e.getMessage());
+                continue;
+            }
+            if (event.orderId() == null) {
+                event = event.withOrderId(claimedEvent.orderId());
+            }
+            if (blockedOrders.contains(event.orderId())) {
+                // Sự kiện lỗi phía trước đang chờ backoff: CLAIM_SQL sẽ không nhận lại sự kiện này trước nó
+                jdbcTemplate.update(RELEASE_SQL, claimedEvent.id());
+                continue;
+            }
+            String error = deliver(claimedEvent.id(), event);
+            if (error == null) {
+                done.add(claimedEvent.id());
+            } else {
+                blockedOrders.add(event.orderId());
+                retry(claimedEvent, error);
+            }
+        }
+
+        if (!done.isEmpty()) {
+            Timestamp processedAt = Timestamp.valueOf(LocalDateTime.now());
+            jdbcTemplate.batchUpdate(DONE_SQL, done, done.size(), (ps, id) -> {
+                ps.setTimestamp(1, processedAt);
+                ps.setLong(2, id);
+            });
+        }
+        return claimed;
+    }
+
+    /**
+     * Giao sự kiện cho mọi listener quan tâm
+     *
+     * @return null nếu thành công, ngược lại là lỗi của listener cần thử lại
+     */
+    private String deliver(long eventId, OrderEvent event) {
+        String error = null;
+        for (OrderEventListener listener : listeners) {
+            if (!listener.supports(event.type())) {
+                continue;
+            }
+            if (!listener.deduplicate()) {
+                try {
+                    listener.onOrderEvent(event);
+                } catch (Exception e) {
+                    logger.warn("Listener {} failed on {} of order {}: {}",
+                            listener.name(), event.type(), event.orderNumber(), e.getMessage());
+                }
+                continue;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    int fresh = jdbcTemplate.update(CONSUME_SQL, eventId, listener.name(),
+                            Timestamp.valueOf(LocalDateTime.now()));
+                    if (fresh == 1) {
+                        listener.onOrderEvent(event);
+                    }
+                });
+            } catch (Exception e) {
+                logger.warn("Listener {} failed on {} of order {}, will retry: {}",
+                        listener.name(), event.type(), event.orderNumber(), e.getMessage());
+                // Các listener còn lại vẫn chạy; lần thử lại bỏ qua những listener đã ghi dấu
+                error = listener.name() + ": " + e.getMessage();
+            }
+        }
+        return error;
+    }
+
+    private void retry(ClaimedEvent event, String error) {
+        failures.increment();
+        if (event.attempts() + 1 >= maxAttempts) {
+            park(event, error);
+            return;
+        }
+        long backoff = Math.min(maxBackoffSeconds, 1L << Math.min(event.attempts(), 20));
+        jdbcTemplate.update(RETRY_SQL, Timestamp.valueOf(LocalDateTime.now().plusSeconds(backoff)),
+                truncate(error), event.id());
+    }
+
+    private void park(ClaimedEvent event, String error) {
+        String message = truncate(error);
+        jdbcTemplate.update(PARK_SQL, Timestamp.valueOf(LocalDateTime.now()), message, event.id());
+        parked.incrementAndGet();
+        logger.error("Order event {} parked after {} attempts: {}", event.id(), event.attempts() + 1, message);
+    }
+
+    private static String truncate(String error) {
+        return error.length() > 500 ? error.substring(0, 500) : error;
+    }
+
+    private record ClaimedEvent(long id, long orderId, String payload, int attempts) {
+    }
+}
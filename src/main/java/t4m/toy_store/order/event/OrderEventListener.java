@@ -0,0 +1,28 @@
+package t4m.toy_store.order.event;
+
+import org.springframework.util.ClassUtils;
+
+/**
+ * Subscriber của outbox đơn hàng, chạy trên thread của OrderEventDispatcher (ngoài request)
+ * - deduplicate() = true: chạy trong transaction riêng cùng với dấu "đã xử lý" (event id, name()),
+ *   nên mỗi sự kiện có hiệu lực đúng một lần; ném exception thì rollback và sự kiện được thử lại sau
+ * - deduplicate() = false: việc trong bộ nhớ (cache, metrics, websocket), lỗi chỉ được ghi log;
+ *   có thể chạy lại nếu sự kiện được thử lại vì listener khác lỗi
+ */
+public interface OrderEventListener {
+
+    boolean supports(OrderEventType type);
+
+    void onOrderEvent(OrderEvent event);
+
+    default boolean deduplicate() {
+        return false;
+    }
+
+    /**
+     * Khóa của listener trong bảng order_event_consumed, không đổi giữa các lần deploy
+     */
+    default String name() {
+        return ClassUtils.getUserClass(this).getSimpleName();
+    }
+}
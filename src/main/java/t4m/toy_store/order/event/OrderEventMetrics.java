@@ -0,0 +1,46 @@
+package t4m.toy_store.order.event;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Đếm sự kiện đơn hàng theo loại và đo độ trễ từ lúc xảy ra tới lúc được giao cho listener
+ */
+@Component
+public class OrderEventMetrics implements OrderEventListener {
+
+    private final Map<OrderEventType, Counter> counters = new EnumMap<>(OrderEventType.class);
+    private final Timer lag;
+
+    public OrderEventMetrics(MeterRegistry meterRegistry) {
+        for (OrderEventType type : OrderEventType.values()) {
+            counters.put(type, Counter.builder("orders.events")
+                    .description("Order lifecycle events dispatched from the outbox")
+                    .tag("type", type.name())
+                    .register(meterRegistry));
+        }
+        this.lag = Timer.builder("orders.events.lag")
+                .description("Delay between an order event and its dispatch")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public boolean supports(OrderEventType type) {
+        return true;
+    }
+
+    @Override
+    public void onOrderEvent(OrderEvent event) {
+        counters.get(event.type()).increment();
+        if (event.occurredAt() != null) {
+            lag.record(Duration.between(event.occurredAt(), LocalDateTime.now()));
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package t4m.toy_store.order.event;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import t4m.toy_store.config.AfterCommit;
+
+import java.sql.Timestamp;
+
+/**
+ * Ghi sự kiện đơn hàng vào outbox trong cùng transaction với thay đổi của đơn
+ * Đơn rollback thì sự kiện cũng biến mất; commit xong thì đánh thức dispatcher để xử lý ngay
+ */
+@Component
+public class OrderEventPublisher {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO order_event_outbox (event_type, order_id, payload, created_at, available_at) "
+                    + "VALUES (?, ?, ?, ?, ?)";
+    private static final String INSERT_BY_ORDER_NUMBER_SQL =
+            "INSERT INTO order_event_outbox (event_type, order_id, payload, created_at, available_at) "
+                    + "SELECT ?, id, ?, ?, ? FROM orders WHERE order_number = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final OrderEventDispatcher dispatcher;
+
+    public OrderEventPublisher(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper, OrderEventDispatcher dispatcher) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.dispatcher = dispatcher;
+    }
+
+    public void publish(OrderEvent event) {
+        String payload = serialize(event);
+        Timestamp now = Timestamp.valueOf(event.occurredAt());
+        jdbcTemplate.update(INSERT_SQL, event.type().name(), event.orderId(), payload, now, now);
+        wakeAfterCommit();
+    }
+
+    /**
+     * Ghi sự kiện chưa biết id đơn (vd: kết quả thanh toán): order_id lấy từ orders trong cùng câu INSERT,
+     * dispatcher điền lại vào sự kiện khi giao
+     */
+    public void publishForOrderNumber(OrderEvent event) {
+        String payload = serialize(event);
+        Timestamp now = Timestamp.valueOf(event.occurredAt());
+        jdbcTemplate.update(INSERT_BY_ORDER_NUMBER_SQL, event.type().name(), payload, now, now, event.orderNumber());
+        wakeAfterCommit();
+    }
+
+    private String serialize(OrderEvent event) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Order events must be published inside the transaction that changes the order");
+        }
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize order event " + event.type(), e);
+        }
+    }
+
+    private void wakeAfterCommit() {
+        AfterCommit.run(dispatcher::wake);
+    }
+}
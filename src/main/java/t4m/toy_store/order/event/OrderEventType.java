@@ -0,0 +1,16 @@
+package t4m.toy_store.order.event;
+
+/**
+ * Các mốc trong vòng đời đơn hàng được ghi vào outbox
+ */
+public enum OrderEventType {
+    CREATED,            // Khách đặt hàng (COD hoặc chờ thanh toán VNPay)
+    STATUS_CHANGED,     // Admin đổi trạng thái
+    CANCELLED,          // Khách hủy đơn chưa xử lý
+    PAYMENT_SUCCEEDED,  // VNPay báo thanh toán thành công
+    PAYMENT_FAILED,     // VNPay báo thanh toán thất bại, đơn bị hủy
+    PAYMENT_REFUND_REQUIRED, // VNPay báo trừ tiền thành công cho đơn đã hủy, cần hoàn tiền
+    SHIPPER_ASSIGNED,   // Shipper nhận đơn
+    DELIVERED,          // Shipper giao thành công
+    DELIVERY_FAILED     // Shipper báo giao thất bại
+}
@@ -1,9 +1,23 @@
 package t4m.toy_store.order.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import t4m.toy_store.order.dto.OrderItemSummary;
 import t4m.toy_store.order.entity.OrderItem;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
+
+    /**
+     * Các dòng sản phẩm của một trang đơn hàng trong một câu IN (...), không join products
+     */
+    @Query("SELECT oi.order.id AS orderId, oi.product.id AS productId, oi.productName AS productName, " +
+           "oi.productImageUrl AS productImageUrl, oi.quantity AS quantity, oi.price AS price " +
+           "FROM OrderItem oi WHERE oi.order.id IN :orderIds ORDER BY oi.id")
+    List<OrderItemSummary> findSummariesByOrderIds(@Param("orderIds") Collection<Long> orderIds);
 }
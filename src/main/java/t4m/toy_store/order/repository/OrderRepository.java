@@ -3,25 +3,142 @@ package t4m.toy_store.order.repository;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import t4m.toy_store.auth.entity.User;
+import t4m.toy_store.order.dto.AdminOrderRow;
+import t4m.toy_store.order.dto.OrderHistoryRow;
+import t4m.toy_store.order.dto.OrderPaymentState;
+import t4m.toy_store.order.dto.OrderStatusCount;
 import t4m.toy_store.order.entity.Order;
 import t4m.toy_store.order.entity.OrderStatus;
+import t4m.toy_store.shipper.dto.ShipperStatusCount;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
-    List<Order> findByUserIdOrderByCreatedAtDesc(Long userId);
     Optional<Order> findByOrderNumber(String orderNumber);
+    boolean existsByOrderNumber(String orderNumber);
+    long countByUserId(Long userId);
+
+    /**
+     * Lịch sử đơn của khách theo keyset: các đơn có id < :beforeId, mới nhất trước
+     * id tăng theo thứ tự tạo nên thứ tự id trùng thứ tự created_at; dùng được index (user_id, id)
+     */
+    @Query("SELECT o.id AS id, o.orderNumber AS orderNumber, o.status AS status, " +
+           "o.paymentMethod AS paymentMethod, o.paymentStatus AS paymentStatus, o.totalAmount AS totalAmount, " +
+           "o.voucherCode AS voucherCode, o.voucherDiscount AS voucherDiscount, o.createdAt AS createdAt " +
+           "FROM Order o WHERE o.user.id = :userId AND o.id < :beforeId ORDER BY o.id DESC")
+    List<OrderHistoryRow> findHistoryPage(@Param("userId") Long userId,
+                                          @Param("beforeId") Long beforeId,
+                                          Pageable pageable);
     
-    // Admin methods
-    Page<Order> findByStatus(OrderStatus status, Pageable pageable);
-    long countByStatus(OrderStatus status);
+    // Admin methods (xem AdminOrderQueryService)
+    String ADMIN_ROW_SELECT = "SELECT o.id AS id, o.orderNumber AS orderNumber, o.customerName AS customerName, " +
+            "o.customerEmail AS customerEmail, o.totalAmount AS totalAmount, o.paymentMethod AS paymentMethod, " +
+            "o.paymentStatus AS paymentStatus, o.status AS status, o.createdAt AS createdAt FROM Order o";
+
+    /**
+     * Một trang đơn hàng cho admin (projection, không COUNT: tổng số lấy từ facet trạng thái)
+     */
+    @Query(ADMIN_ROW_SELECT)
+    List<AdminOrderRow> findAdminRows(Pageable pageable);
+
+    @Query(ADMIN_ROW_SELECT + " WHERE o.status = :status")
+    List<AdminOrderRow> findAdminRowsByStatus(@Param("status") OrderStatus status, Pageable pageable);
+
+    /**
+     * Đếm đơn theo từng trạng thái trong một lần GROUP BY
+     * todayCount: số đơn tạo từ :startOfDay trở đi
+     */
+    @Query("SELECT o.status AS status, COUNT(o) AS count, " +
+           "SUM(CASE WHEN o.createdAt >= :startOfDay THEN 1 ELSE 0 END) AS todayCount " +
+           "FROM Order o GROUP BY o.status")
+    List<OrderStatusCount> countGroupedByStatus(@Param("startOfDay") LocalDateTime startOfDay);
     
     // Shipper methods
+    List<Order> findByStatusAndShipperIsNullOrderByIdAsc(OrderStatus status);
     List<Order> findByShipperIdAndStatus(Long shipperId, OrderStatus status);
     List<Order> findByShipperId(Long shipperId);
     long countByShipperIdAndStatus(Long shipperId, OrderStatus status);
     long countByShipperId(Long shipperId);
+
+    // Lịch sử giao hàng: một câu IN (...) phân trang, sắp xếp theo Pageable (created_at desc)
+    Page<Order> findByShipperIdAndStatusIn(Long shipperId, Collection<OrderStatus> statuses, Pageable pageable);
+    Page<Order> findByShipperIdAndStatusInAndCreatedAtGreaterThanEqual(Long shipperId, Collection<OrderStatus> statuses,
+                                                                        LocalDateTime from, Pageable pageable);
+
+    /**
+     * Đếm đơn của shipper theo từng trạng thái trong một lần GROUP BY
+     * todayCount: số đơn tạo từ :startOfDay trở đi (dùng cho thẻ "Hôm nay")
+     */
+    @Query("SELECT o.status AS status, COUNT(o) AS count, " +
+           "SUM(CASE WHEN o.createdAt >= :startOfDay THEN 1 ELSE 0 END) AS todayCount " +
+           "FROM Order o WHERE o.shipper.id = :shipperId GROUP BY o.status")
+    List<ShipperStatusCount> countByShipperGroupedByStatus(@Param("shipperId") Long shipperId,
+                                                          @Param("startOfDay") LocalDateTime startOfDay);
+
+    /**
+     * Nhận đơn nguyên tử: chỉ cập nhật khi đơn vẫn PROCESSING và chưa có shipper
+     * Trả về 1 nếu nhận thành công, 0 nếu đã có shipper khác nhận trước
+     */
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("UPDATE Order o SET o.status = :newStatus, o.shipper = :shipper, o.updatedAt = :now " +
+           "WHERE o.id = :orderId AND o.status = :expectedStatus AND o.shipper IS NULL")
+    int claimOrder(@Param("orderId") Long orderId,
+                   @Param("shipper") User shipper,
+                   @Param("expectedStatus") OrderStatus expectedStatus,
+                   @Param("newStatus") OrderStatus newStatus,
+                   @Param("now") LocalDateTime now);
+
+    @Query("SELECT o.id AS id, o.totalAmount AS totalAmount, o.paymentStatus AS paymentStatus " +
+           "FROM Order o WHERE o.orderNumber = :orderNumber")
+    Optional<OrderPaymentState> findPaymentStateByOrderNumber(@Param("orderNumber") String orderNumber);
+
+    /**
+     * Áp dụng kết quả thanh toán VNPay một cách nguyên tử
+     * Chỉ cập nhật khi đơn vẫn chờ thanh toán và số tiền khớp (vnpAmount = tổng tiền x 100, như lúc tạo URL);
+     * trả về 0 nếu đơn không tồn tại, đã có kết quả hoặc sai số tiền
+     */
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("UPDATE Order o SET o.paymentStatus = :paymentStatus, o.status = :newStatus, " +
+           "o.vnpayTransactionNo = :transactionNo, o.vnpayBankCode = :bankCode, " +
+           "o.vnpayResponseCode = :responseCode, o.updatedAt = :now " +
+           "WHERE o.orderNumber = :orderNumber AND o.paymentStatus = 'PENDING' " +
+           "AND o.status = :expectedStatus AND FLOOR(o.totalAmount * 100) = :vnpAmount")
+    int applyPaymentResult(@Param("orderNumber") String orderNumber,
+                           @Param("vnpAmount") long vnpAmount,
+                           @Param("expectedStatus") OrderStatus expectedStatus,
+                           @Param("newStatus") OrderStatus newStatus,
+                           @Param("paymentStatus") String paymentStatus,
+                           @Param("transactionNo") String transactionNo,
+                           @Param("bankCode") String bankCode,
+                           @Param("responseCode") String responseCode,
+                           @Param("now") LocalDateTime now);
+
+    /**
+     * VNPay báo thanh toán thành công cho đơn đã hủy (khách hủy trước khi IPN về, hoặc sau một giao dịch lỗi):
+     * giữ đơn ở CANCELLED, ghi lại giao dịch và đánh dấu REFUND_REQUIRED để hoàn tiền
+     * Chỉ khớp một lần cho mỗi đơn; trả về 0 nếu đơn không ở trạng thái đó hoặc sai số tiền
+     */
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("UPDATE Order o SET o.paymentStatus = 'REFUND_REQUIRED', " +
+           "o.vnpayTransactionNo = :transactionNo, o.vnpayBankCode = :bankCode, " +
+           "o.vnpayResponseCode = :responseCode, o.updatedAt = :now " +
+           "WHERE o.orderNumber = :orderNumber AND o.status = :cancelledStatus " +
+           "AND o.paymentStatus IN ('PENDING', 'CANCELLED', 'FAILED') " +
+           "AND FLOOR(o.totalAmount * 100) = :vnpAmount")
+    int markRefundRequired(@Param("orderNumber") String orderNumber,
+                           @Param("vnpAmount") long vnpAmount,
+                           @Param("cancelledStatus") OrderStatus cancelledStatus,
+                           @Param("transactionNo") String transactionNo,
+                           @Param("bankCode") String bankCode,
+                           @Param("responseCode") String responseCode,
+                           @Param("now") LocalDateTime now);
 }
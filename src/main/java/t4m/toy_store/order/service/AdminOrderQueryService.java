@@ -0,0 +1,94 @@
+package t4m.toy_store.order.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import t4m.toy_store.order.dto.AdminOrderListItem;
+import t4m.toy_store.order.dto.AdminOrderRow;
+import t4m.toy_store.order.dto.OrderItemSummary;
+import t4m.toy_store.order.dto.OrderStatusFacets;
+import t4m.toy_store.order.entity.OrderStatus;
+import t4m.toy_store.order.event.OrderEvent;
+import t4m.toy_store.order.event.OrderEventListener;
+import t4m.toy_store.order.event.OrderEventType;
+import t4m.toy_store.order.repository.OrderItemRepository;
+import t4m.toy_store.order.repository.OrderRepository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Truy vấn danh sách đơn hàng cho trang quản trị
+ * - Danh sách: một câu projection theo trang + một câu IN lấy các dòng sản phẩm của trang
+ * - Facet trạng thái (thẻ thống kê, tổng số trang): một câu GROUP BY status, cache vài giây
+ * Tổng số phần tử của trang lấy từ facet nên không cần câu COUNT riêng
+ * Facet được bỏ khi có sự kiện đơn hàng (tạo, đổi trạng thái, hủy, thanh toán, giao hàng)
+ */
+@Service
+@RequiredArgsConstructor
+public class AdminOrderQueryService implements OrderEventListener {
+
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private final OrderRepository orderRepository;
+    private final OrderItemRepository orderItemRepository;
+
+    // Khóa theo ngày để số "hôm nay" tự sang ngày mới
+    private final Cache<LocalDate, OrderStatusFacets> facetCache = Caffeine.newBuilder()
+            .expireAfterWrite(10, TimeUnit.SECONDS)
+            .maximumSize(2)
+            .build();
+
+    @Transactional(readOnly = true)
+    public Page<AdminOrderListItem> getOrders(OrderStatus status, int page, int size) {
+        PageRequest pageable = PageRequest.of(Math.max(0, page), Math.max(1, Math.min(size, MAX_PAGE_SIZE)),
+                Sort.by(Sort.Direction.DESC, "id"));
+        List<AdminOrderRow> rows = status != null
+                ? orderRepository.findAdminRowsByStatus(status, pageable)
+                : orderRepository.findAdminRows(pageable);
+
+        List<AdminOrderListItem> content = List.of();
+        if (!rows.isEmpty()) {
+            Map<Long, List<OrderItemSummary>> itemsByOrder = orderItemRepository
+                    .findSummariesByOrderIds(rows.stream().map(AdminOrderRow::getId).toList())
+                    .stream()
+                    .collect(Collectors.groupingBy(OrderItemSummary::getOrderId));
+            content = rows.stream()
+                    .map(row -> AdminOrderListItem.of(row, itemsByOrder.getOrDefault(row.getId(), List.of())))
+                    .toList();
+        }
+
+        // Facet có thể trễ vài giây: không để tổng nhỏ hơn số dòng thực tế đã thấy
+        long total = Math.max(getFacets().count(status), pageable.getOffset() + content.size());
+        return new PageImpl<>(content, pageable, total);
+    }
+
+    public OrderStatusFacets getFacets() {
+        LocalDate today = LocalDate.now();
+        return facetCache.get(today, day ->
+                OrderStatusFacets.of(orderRepository.countGroupedByStatus(day.atStartOfDay())));
+    }
+
+    public void invalidateFacets() {
+        facetCache.invalidateAll();
+    }
+
+    @Override
+    public boolean supports(OrderEventType type) {
+        return true;
+    }
+
+    @Override
+    public void onOrderEvent(OrderEvent event) {
+        invalidateFacets();
+    }
+}
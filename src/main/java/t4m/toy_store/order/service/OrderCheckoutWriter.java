@@ -0,0 +1,113 @@
+package t4m.toy_store.order.service;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+import t4m.toy_store.order.entity.OrderItem;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Ghi phần nặng của checkout bằng JDBC batch, trong transaction của người gọi
+ * - Trừ kho: một batch UPDATE có điều kiện stock >= số lượng, sắp theo product id để các checkout
+ *   đồng thời khóa dòng cùng thứ tự (tránh deadlock); dòng không cập nhật được nghĩa là hết hàng.
+ *   Số dòng là nguồn sự thật duy nhất: MySQL Connector/J trả số dòng thật cho batch UPDATE (kể cả khi
+ *   rewriteBatchedStatements gửi thành multi-statement); driver trả SUCCESS_NO_INFO thì checkout bị từ chối
+ * - OrderItem: một batch INSERT (rewriteBatchedStatements gộp thành câu INSERT nhiều dòng), id lấy từ generated keys
+ * Entity OrderItem dùng IDENTITY nên nếu cascade qua Hibernate sẽ là một câu INSERT mỗi dòng, không batch được
+ */
+@Component
+public class OrderCheckoutWriter {
+
+    private static final String DECREMENT_STOCK_SQL =
+            "UPDATE products SET stock = stock - ? WHERE id = ? AND stock >= ?";
+
+    private static final String INSERT_ITEM_SQL = """
+            INSERT INTO order_items (order_id, product_id, product_name, product_image_url, quantity, price)
+            VALUES (?, ?, ?, ?, ?, ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public OrderCheckoutWriter(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Trừ kho cho các sản phẩm (productId -> số lượng)
+     *
+     * @return id các sản phẩm không đủ tồn kho (rỗng nếu tất cả đều trừ được)
+     */
+    public List<Long> decrementStock(Map<Long, Integer> quantities) {
+        List<Map.Entry<Long, Integer>> changes = new ArrayList<>(new TreeMap<>(quantities).entrySet());
+        int[] counts = jdbcTemplate.batchUpdate(DECREMENT_STOCK_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Map.Entry<Long, Integer> change = changes.get(i);
+                ps.setInt(1, change.getValue());
+                ps.setLong(2, change.getKey());
+                ps.setInt(3, change.getValue());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return changes.size();
+            }
+        });
+        List<Long> insufficient = new ArrayList<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == Statement.SUCCESS_NO_INFO || counts[i] == Statement.EXECUTE_FAILED) {
+                // Không biết dòng có được trừ hay không: tồn kho kiểm tra trước đó là trạng thái entity có thể đã cũ,
+                // nên không được coi là thành công. Ném lỗi để rollback cả đơn (fail closed)
+                throw new IllegalStateException("Stock decrement for product " + changes.get(i).getKey()
+                        + " returned no update count; the JDBC driver must report per-statement counts");
+            }
+            if (counts[i] == 0) {
+                insufficient.add(changes.get(i).getKey());
+            }
+        }
+        return insufficient;
+    }
+
+    /**
+     * Insert các dòng của đơn đã lưu và gán id sinh ra vào từng OrderItem
+     */
+    public void insertItems(Long orderId, List<OrderItem> items) {
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(con -> con.prepareStatement(INSERT_ITEM_SQL, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        OrderItem item = items.get(i);
+                        ps.setLong(1, orderId);
+                        ps.setLong(2, item.getProduct().getId());
+                        ps.setString(3, item.getProductName());
+                        ps.setString(4, item.getProductImageUrl());
+                        ps.setInt(5, item.getQuantity());
+                        ps.setBigDecimal(6, item.getPrice());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return items.size();
+                    }
+                }, keys);
+        List<Map<String, Object>> generated = keys.getKeyList();
+        if (generated.size() == items.size()) {
+            for (int i = 0; i < items.size(); i++) {
+                Object id = generated.get(i).values().iterator().next();
+                if (id instanceof Number number) {
+                    items.get(i).setId(number.longValue());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package t4m.toy_store.order.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import t4m.toy_store.auth.service.EmailService;
+import t4m.toy_store.order.dto.OrderSummaryResponse;
+import t4m.toy_store.order.entity.Order;
+import t4m.toy_store.order.entity.OrderStatus;
+import t4m.toy_store.order.event.OrderEvent;
+import t4m.toy_store.order.event.OrderEventListener;
+import t4m.toy_store.order.event.OrderEventType;
+import t4m.toy_store.order.repository.OrderItemRepository;
+import t4m.toy_store.order.repository.OrderRepository;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Gửi email xác nhận đơn: đơn COD ngay khi tạo, đơn VNPay khi thanh toán thành công
+ * Gửi đồng bộ trong transaction ghi dấu của dispatcher: SMTP lỗi thì dấu rollback và sự kiện được thử lại
+ * (ít nhất một lần: SMTP thành công nhưng commit lỗi thì khách có thể nhận hai email)
+ */
+@Component
+@RequiredArgsConstructor
+public class OrderConfirmationMailer implements OrderEventListener {
+
+    private static final String ORDERS_LINK = "http://localhost:8080/orders";
+
+    private final OrderRepository orderRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final EmailService emailService;
+
+    @Override
+    public boolean supports(OrderEventType type) {
+        return type == OrderEventType.CREATED || type == OrderEventType.PAYMENT_SUCCEEDED;
+    }
+
+    @Override
+    public boolean deduplicate() {
+        return true;
+    }
+
+    @Override
+    public void onOrderEvent(OrderEvent event) {
+        if (event.type() == OrderEventType.PAYMENT_SUCCEEDED && event.customerEmail() == null) {
+            // Sự kiện thanh toán không chụp thông tin khách (xem PaymentEventProcessor): đọc lại đơn
+            Order order = orderRepository.findById(event.orderId()).orElse(null);
+            if (order == null || order.getCustomerEmail() == null) {
+                return;
+            }
+            sendConfirmation(event, order.getCustomerEmail(), order.getCustomerName(), order.getTotalAmount());
+            return;
+        }
+        if (event.customerEmail() == null
+                || (event.type() == OrderEventType.CREATED && event.status() == OrderStatus.PENDING_PAYMENT)) {
+            return;
+        }
+        sendConfirmation(event, event.customerEmail(), event.customerName(), event.totalAmount());
+    }
+
+    private void sendConfirmation(OrderEvent event, String email, String name, BigDecimal totalAmount) {
+        List<OrderSummaryResponse.Item> items = orderItemRepository.findSummariesByOrderIds(List.of(event.orderId()))
+                .stream()
+                .map(line -> new OrderSummaryResponse.Item(line.getProductId(), line.getProductName(),
+                        line.getProductImageUrl(), line.getQuantity(), line.getPrice()))
+                .toList();
+        emailService.sendOrderConfirmationEmail(email, name, event.orderNumber(), totalAmount, items, ORDERS_LINK);
+    }
+}
@@ -0,0 +1,111 @@
+package t4m.toy_store.order.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Sinh mã đơn hàng kiểu Snowflake, không cần truy vấn DB
+ * id 63 bit = [41 bit ms kể từ 2024-01-01][10 bit node][12 bit thứ tự trong cùng ms]
+ * - Tăng dần trên mỗi node: phần (ms, thứ tự) được giữ trong một AtomicLong và chỉ tiến lên bằng CAS;
+ *   hết 4096 số trong một ms hoặc đồng hồ lùi thì mượn ms kế tiếp thay vì chờ hay báo lỗi
+ * - Khác node thì khác bit node nên không trùng; node lấy từ {@code app.order.node-id}.
+ *   Không cấu hình thì suy từ hostname + pid, chỉ cho phép khi chạy một node (broker STOMP "simple"):
+ *   hash mod 1024 có thể trùng giữa các node và sinh mã đơn trùng
+ * Mã đơn = "ORD" + 19 chữ số: chỉ chữ và số (hợp lệ cho vnp_TxnRef), sắp xếp chuỗi cũng là theo thời gian
+ */
+@Component
+@Slf4j
+public class OrderNumberGenerator {
+
+    public static final String PREFIX = "ORD";
+    public static final int MAX_NODE_ID = 1023;
+
+    static final long EPOCH_MILLIS = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final int ID_DIGITS = 19;
+
+    private final long nodeBits;
+    private final LongSupplier clock;
+    // (ms kể từ EPOCH << SEQUENCE_BITS) | thứ tự của mã cấp gần nhất
+    private final AtomicLong lastTick = new AtomicLong();
+
+    @Autowired
+    public OrderNumberGenerator(@Value("${app.order.node-id:-1}") int nodeId,
+                                @Value("${app.websocket.broker-mode:simple}") String brokerMode) {
+        this(resolveNodeId(nodeId, brokerMode), System::currentTimeMillis);
+    }
+
+    public OrderNumberGenerator(int nodeId, LongSupplier clock) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE_ID);
+        }
+        this.nodeBits = (long) nodeId << SEQUENCE_BITS;
+        this.clock = clock;
+    }
+
+    /**
+     * Mã đơn hàng mới, ví dụ ORD0000123456789012345
+     */
+    public String nextOrderNumber() {
+        return format(nextId());
+    }
+
+    public long nextId() {
+        long now = (clock.getAsLong() - EPOCH_MILLIS) << SEQUENCE_BITS;
+        long tick = lastTick.accumulateAndGet(now, (last, current) -> Math.max(last + 1, current));
+        long millis = tick >>> SEQUENCE_BITS;
+        long sequence = tick & ((1L << SEQUENCE_BITS) - 1);
+        return (millis << (NODE_BITS + SEQUENCE_BITS)) | nodeBits | sequence;
+    }
+
+    public int nodeId() {
+        return (int) (nodeBits >>> SEQUENCE_BITS);
+    }
+
+    static String format(long id) {
+        char[] chars = new char[PREFIX.length() + ID_DIGITS];
+        PREFIX.getChars(0, PREFIX.length(), chars, 0);
+        long value = id;
+        for (int i = chars.length - 1; i >= PREFIX.length(); i--) {
+            chars[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return new String(chars);
+    }
+
+    private static int resolveNodeId(int configured, String brokerMode) {
+        if (configured >= 0) {
+            return configured;
+        }
+        if (!"simple".equalsIgnoreCase(brokerMode)) {
+            // Broker relay/cluster nghĩa là có thể chạy nhiều node: không đoán node id
+            throw new IllegalStateException("app.order.node-id must be set to a unique value per node when "
+                    + "app.websocket.broker-mode=" + brokerMode + "; derived node ids can collide and "
+                    + "produce duplicate order numbers");
+        }
+        int derived = deriveNodeId();
+        log.warn("app.order.node-id is not set, using derived node id {}. This is only safe on a single node: "
+                + "set a unique app.order.node-id on every node before scaling out", derived);
+        return derived;
+    }
+
+    private static int deriveNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "localhost";
+        }
+        String identity = host + "/" + ManagementFactory.getRuntimeMXBean().getName();
+        return Math.floorMod(identity.hashCode(), MAX_NODE_ID + 1);
+    }
+}
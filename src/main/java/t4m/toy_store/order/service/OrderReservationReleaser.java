@@ -0,0 +1,67 @@
+package t4m.toy_store.order.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import t4m.toy_store.order.dto.OrderItemSummary;
+import t4m.toy_store.order.entity.Order;
+import t4m.toy_store.order.event.OrderEvent;
+import t4m.toy_store.order.event.OrderEventListener;
+import t4m.toy_store.order.event.OrderEventType;
+import t4m.toy_store.order.repository.OrderItemRepository;
+import t4m.toy_store.order.repository.OrderRepository;
+import t4m.toy_store.product.repository.ProductRepository;
+import t4m.toy_store.product.service.CatalogCache;
+import t4m.toy_store.voucher.entity.Voucher;
+import t4m.toy_store.voucher.service.VoucherService;
+
+import java.util.List;
+
+/**
+ * Trả tồn kho và lượt dùng voucher khi đơn bị hủy hoặc thanh toán thất bại
+ * Chạy qua outbox (đúng một lần cho mỗi sự kiện) nên transaction hủy đơn / callback VNPay chỉ còn đổi trạng thái
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OrderReservationReleaser implements OrderEventListener {
+
+    private final ProductRepository productRepository;
+    private final OrderRepository orderRepository;
+    private final VoucherService voucherService;
+    private final OrderItemRepository orderItemRepository;
+    private final CatalogCache catalogCache;
+
+    @Override
+    public boolean supports(OrderEventType type) {
+        return type == OrderEventType.CANCELLED || type == OrderEventType.PAYMENT_FAILED;
+    }
+
+    @Override
+    public boolean deduplicate() {
+        return true;
+    }
+
+    @Override
+    public void onOrderEvent(OrderEvent event) {
+        int restored = productRepository.restoreStockForOrder(event.orderNumber());
+        log.info("Restored stock for {} products of order {}", restored, event.orderNumber());
+        catalogCache.evictProducts(orderItemRepository.findSummariesByOrderIds(List.of(event.orderId())).stream()
+                .map(OrderItemSummary::getProductId)
+                .toList());
+
+        // Sự kiện thanh toán không chụp voucher (xem PaymentEventProcessor): cần đọc lại đơn
+        if (event.voucherCode() == null && event.type() != OrderEventType.PAYMENT_FAILED) {
+            return;
+        }
+        Order order = orderRepository.findById(event.orderId()).orElse(null);
+        if (order == null || order.getVoucherCode() == null) {
+            return;
+        }
+        Voucher voucher = voucherService.getVoucherByCode(order.getVoucherCode());
+        if (voucher != null) {
+            voucherService.restoreVoucherUsage(voucher, order.getUser());
+            log.info("Restored voucher usage for: {}", order.getVoucherCode());
+        }
+    }
+}
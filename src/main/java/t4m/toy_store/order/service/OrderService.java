@@ -3,8 +3,7 @@ package t4m.toy_store.order.service;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import t4m.toy_store.auth.entity.User;
@@ -14,20 +13,31 @@ import t4m.toy_store.cart.entity.Cart;
 import t4m.toy_store.cart.entity.CartItem;
 import t4m.toy_store.cart.repository.CartRepository;
 import t4m.toy_store.order.dto.CheckoutRequest;
+import t4m.toy_store.order.dto.OrderHistoryPage;
+import t4m.toy_store.order.dto.OrderHistoryRow;
+import t4m.toy_store.order.dto.OrderItemSummary;
 import t4m.toy_store.order.dto.OrderItemResponse;
 import t4m.toy_store.order.dto.OrderResponse;
+import t4m.toy_store.order.dto.OrderSummaryResponse;
 import t4m.toy_store.order.entity.Order;
 import t4m.toy_store.order.entity.OrderItem;
 import t4m.toy_store.order.entity.OrderStatus;
+import t4m.toy_store.order.event.OrderEvent;
+import t4m.toy_store.order.event.OrderEventPublisher;
+import t4m.toy_store.order.event.OrderEventType;
+import t4m.toy_store.order.repository.OrderItemRepository;
 import t4m.toy_store.order.repository.OrderRepository;
 import t4m.toy_store.product.entity.Product;
-import t4m.toy_store.product.repository.ProductRepository;
+import t4m.toy_store.product.service.CatalogCache;
 import t4m.toy_store.voucher.entity.Voucher;
 import t4m.toy_store.voucher.dto.VoucherValidationResponse;
 import t4m.toy_store.voucher.service.VoucherService;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -35,12 +45,18 @@ import java.util.stream.Collectors;
 public class OrderService {
     
     private static final Logger logger = LoggerFactory.getLogger(OrderService.class);
+
+    public static final int MAX_HISTORY_PAGE_SIZE = 50;
     
     private final OrderRepository orderRepository;
+    private final OrderItemRepository orderItemRepository;
     private final UserRepository userRepository;
     private final CartRepository cartRepository;
-    private final ProductRepository productRepository;
     private final VoucherService voucherService;
+    private final OrderNumberGenerator orderNumberGenerator;
+    private final OrderCheckoutWriter orderCheckoutWriter;
+    private final OrderEventPublisher orderEventPublisher;
+    private final CatalogCache catalogCache;
 
     @Transactional
     public OrderResponse createOrder(String userEmail, CheckoutRequest request) {
@@ -110,6 +126,7 @@ public class OrderService {
         
         // Create order
         Order order = Order.builder()
+                .orderNumber(orderNumberGenerator.nextOrderNumber())
                 .user(user)
                 .customerName(request.getCustomerName())
                 .customerEmail(request.getCustomerEmail())
@@ -125,7 +142,9 @@ public class OrderService {
                 .paymentStatus(paymentStatus)
                 .build();
 
-        // Add order items from cart
+        // Build order items from cart (ghi bằng JDBC batch, không cascade qua entity)
+        List<OrderItem> orderItems = new ArrayList<>(cart.getCartItems().size());
+        Map<Long, Integer> stockChanges = new HashMap<>();
         for (CartItem cartItem : cart.getCartItems()) {
             Product product = cartItem.getProduct();
             
@@ -134,23 +153,31 @@ public class OrderService {
                 throw new RuntimeException("Insufficient stock for product: " + product.getName());
             }
 
-            OrderItem orderItem = OrderItem.builder()
+            orderItems.add(OrderItem.builder()
                     .product(product)
                     .productName(product.getName())
                     .productImageUrl(product.getImageUrl())
                     .quantity(cartItem.getQuantity())
                     .price(cartItem.getPrice())
-                    .build();
-            
-            order.addItem(orderItem);
+                    .build());
+            stockChanges.merge(product.getId(), cartItem.getQuantity(), Integer::sum);
+        }
 
-            // Update product stock
-            product.setStock(product.getStock() - cartItem.getQuantity());
-            productRepository.save(product);
+        // Update product stock: một batch UPDATE có điều kiện, dòng nào không trừ được là hết hàng
+        List<Long> outOfStock = orderCheckoutWriter.decrementStock(stockChanges);
+        if (!outOfStock.isEmpty()) {
+            String names = orderItems.stream()
+                    .filter(item -> outOfStock.contains(item.getProduct().getId()))
+                    .map(OrderItem::getProductName)
+                    .distinct()
+                    .collect(Collectors.joining(", "));
+            throw new RuntimeException("Insufficient stock for product: " + names);
         }
+        catalogCache.evictProducts(stockChanges.keySet());
 
-        // Save order
+        // Save order, then its items in one batch
         Order savedOrder = orderRepository.save(order);
+        orderCheckoutWriter.insertItems(savedOrder.getId(), orderItems);
         
         // Record voucher usage if applied
         if (appliedVoucher != null) {
@@ -162,19 +189,58 @@ public class OrderService {
         cart.getCartItems().clear();
         cartRepository.save(cart);
 
+        // Điểm phổ biến, email xác nhận, thống kê... chạy qua outbox sau commit
+        orderEventPublisher.publish(OrderEvent.created(savedOrder, orderItems));
+
         logger.info("Order created successfully: {}", savedOrder.getOrderNumber());
         
-        return convertToOrderResponse(savedOrder);
+        return convertToOrderResponse(savedOrder, orderItems);
     }
 
-    public List<OrderResponse> getUserOrders(String userEmail) {
+    /**
+     * Lịch sử đơn của khách theo cursor (id đơn cuối trang trước), mới nhất trước
+     * Mỗi trang: một câu lấy đơn (projection) + một câu IN lấy các dòng sản phẩm
+     */
+    @Transactional(readOnly = true)
+    public OrderHistoryPage getUserOrderHistory(String userEmail, String cursor, int size) {
         User user = userRepository.findByEmail(userEmail)
                 .orElseThrow(() -> new UserNotFoundException("User not found"));
 
-        return orderRepository.findByUserIdOrderByCreatedAtDesc(user.getId())
+        int pageSize = Math.max(1, Math.min(size, MAX_HISTORY_PAGE_SIZE));
+        long beforeId = decodeHistoryCursor(cursor);
+
+        // Lấy dư một dòng để biết còn trang sau hay không, không cần câu COUNT
+        List<OrderHistoryRow> rows = orderRepository.findHistoryPage(user.getId(), beforeId,
+                PageRequest.of(0, pageSize + 1));
+        boolean hasMore = rows.size() > pageSize;
+        if (hasMore) {
+            rows = rows.subList(0, pageSize);
+        }
+        if (rows.isEmpty()) {
+            return new OrderHistoryPage(List.of(), null, false);
+        }
+
+        Map<Long, List<OrderItemSummary>> itemsByOrder = orderItemRepository
+                .findSummariesByOrderIds(rows.stream().map(OrderHistoryRow::getId).toList())
                 .stream()
-                .map(this::convertToOrderResponse)
-                .collect(Collectors.toList());
+                .collect(Collectors.groupingBy(OrderItemSummary::getOrderId));
+
+        List<OrderSummaryResponse> content = rows.stream()
+                .map(row -> OrderSummaryResponse.of(row, itemsByOrder.getOrDefault(row.getId(), List.of())))
+                .toList();
+        String nextCursor = hasMore ? String.valueOf(rows.get(rows.size() - 1).getId()) : null;
+        return new OrderHistoryPage(content, nextCursor, hasMore);
+    }
+
+    private static long decodeHistoryCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return Long.MAX_VALUE;
+        }
+        try {
+            return Long.parseLong(cursor.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
     }
 
     public OrderResponse getOrderByNumber(String orderNumber) {
@@ -185,7 +251,11 @@ public class OrderService {
     }
 
     private OrderResponse convertToOrderResponse(Order order) {
-        List<OrderItemResponse> items = order.getOrderItems().stream()
+        return convertToOrderResponse(order, order.getOrderItems());
+    }
+
+    private OrderResponse convertToOrderResponse(Order order, List<OrderItem> orderItems) {
+        List<OrderItemResponse> items = orderItems.stream()
                 .map(item -> OrderItemResponse.builder()
                         .id(item.getId())
                         .productId(item.getProduct().getId())
@@ -217,14 +287,6 @@ public class OrderService {
     }
 
     // Admin methods
-    public Page<Order> getAllOrders(Pageable pageable) {
-        return orderRepository.findAll(pageable);
-    }
-
-    public Page<Order> getOrdersByStatus(OrderStatus status, Pageable pageable) {
-        return orderRepository.findByStatus(status, pageable);
-    }
-
     public Order getOrderById(Long id) {
         return orderRepository.findById(id).orElse(null);
     }
@@ -234,16 +296,11 @@ public class OrderService {
         Order order = orderRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Order not found"));
         
+        OrderStatus previousStatus = order.getStatus();
         order.setStatus(newStatus);
-        return orderRepository.save(order);
-    }
-
-    public long getTotalOrders() {
-        return orderRepository.count();
-    }
-
-    public long getOrderCountByStatus(OrderStatus status) {
-        return orderRepository.countByStatus(status);
+        Order savedOrder = orderRepository.save(order);
+        orderEventPublisher.publish(OrderEvent.of(OrderEventType.STATUS_CHANGED, savedOrder, previousStatus));
+        return savedOrder;
     }
 
     // Revenue statistics
@@ -295,16 +352,6 @@ public class OrderService {
         return total.divide(new BigDecimal(completedOrders.size()), 0, java.math.RoundingMode.HALF_UP);
     }
 
-    public long getTodayOrderCount() {
-        List<Order> orders = orderRepository.findAll();
-        java.time.LocalDateTime now = java.time.LocalDateTime.now();
-        java.time.LocalDateTime startOfDay = now.withHour(0).withMinute(0).withSecond(0);
-        
-        return orders.stream()
-                .filter(order -> order.getCreatedAt() != null && order.getCreatedAt().isAfter(startOfDay))
-                .count();
-    }
-
     @Transactional
     public OrderResponse cancelOrder(Long orderId, String userEmail) {
         // Find order
@@ -331,30 +378,12 @@ public class OrderService {
         }
         
         // Update order status to CANCELLED
+        OrderStatus previousStatus = order.getStatus();
         order.setStatus(OrderStatus.CANCELLED);
         
-        // Restore product stock
-        for (OrderItem item : order.getOrderItems()) {
-            Product product = item.getProduct();
-            product.setStock(product.getStock() + item.getQuantity());
-            productRepository.save(product);
-            logger.info("Restored stock for product {}: +{}", product.getName(), item.getQuantity());
-        }
-        
-        // Restore voucher usage if applied
-        if (order.getVoucherCode() != null) {
-            try {
-                Voucher voucher = voucherService.getVoucherByCode(order.getVoucherCode());
-                if (voucher != null) {
-                    voucherService.restoreVoucherUsage(voucher, order.getUser());
-                    logger.info("Restored voucher usage for: {}", order.getVoucherCode());
-                }
-            } catch (Exception e) {
-                logger.warn("Failed to restore voucher usage: {}", e.getMessage());
-            }
-        }
-        
         Order cancelledOrder = orderRepository.save(order);
+        // Trả tồn kho và lượt dùng voucher: OrderReservationReleaser xử lý qua outbox
+        orderEventPublisher.publish(OrderEvent.of(OrderEventType.CANCELLED, cancelledOrder, previousStatus));
         
         logger.info("Order {} cancelled by user {}", orderId, userEmail);
         
@@ -385,31 +414,13 @@ public class OrderService {
         }
         
         // Update order status to CANCELLED
+        OrderStatus previousStatus = order.getStatus();
         order.setStatus(OrderStatus.CANCELLED);
         order.setPaymentStatus("CANCELLED");
         
-        // Restore product stock
-        for (OrderItem item : order.getOrderItems()) {
-            Product product = item.getProduct();
-            product.setStock(product.getStock() + item.getQuantity());
-            productRepository.save(product);
-            logger.info("Restored stock for product {}: +{}", product.getName(), item.getQuantity());
-        }
-        
-        // Restore voucher usage if applied
-        if (order.getVoucherCode() != null) {
-            try {
-                Voucher voucher = voucherService.getVoucherByCode(order.getVoucherCode());
-                if (voucher != null) {
-                    voucherService.restoreVoucherUsage(voucher, order.getUser());
-                    logger.info("Restored voucher usage for: {}", order.getVoucherCode());
-                }
-            } catch (Exception e) {
-                logger.warn("Failed to restore voucher usage: {}", e.getMessage());
-            }
-        }
-        
         Order cancelledOrder = orderRepository.save(order);
+        // Trả tồn kho và lượt dùng voucher: OrderReservationReleaser xử lý qua outbox
+        orderEventPublisher.publish(OrderEvent.of(OrderEventType.CANCELLED, cancelledOrder, previousStatus));
         
         logger.info("Order {} cancelled by user {}", orderNumber, userEmail);
         
@@ -422,82 +433,6 @@ public class OrderService {
      * Check if order exists by order number
      */
     public boolean orderExists(String orderNumber) {
-        return orderRepository.findByOrderNumber(orderNumber).isPresent();
-    }
-
-    /**
-     * Verify if order amount matches VNPay amount
-     */
-    public boolean verifyOrderAmount(String orderNumber, long vnpayAmount) {
-        Order order = orderRepository.findByOrderNumber(orderNumber).orElse(null);
-        if (order == null) {
-            return false;
-        }
-        long orderAmount = order.getTotalAmount().longValue();
-        return orderAmount == vnpayAmount;
-    }
-
-    /**
-     * Check if payment already confirmed
-     */
-    public boolean isPaymentConfirmed(String orderNumber) {
-        Order order = orderRepository.findByOrderNumber(orderNumber).orElse(null);
-        if (order == null) {
-            return false;
-        }
-        return "PAID".equals(order.getPaymentStatus());
-    }
-
-    /**
-     * Update VNPay payment status
-     */
-    @Transactional
-    public void updateVNPayPaymentStatus(String orderNumber, boolean isSuccess, 
-                                          String transactionNo, String bankCode, String responseCode) {
-        Order order = orderRepository.findByOrderNumber(orderNumber)
-                .orElseThrow(() -> new RuntimeException("Order not found: " + orderNumber));
-
-        if (isSuccess) {
-            // Payment successful - confirm order
-            order.setPaymentStatus("PAID");
-            order.setStatus(OrderStatus.PENDING); // Change from PENDING_PAYMENT to PENDING (ready for processing)
-            logger.info("Payment successful for order {}", orderNumber);
-        } else {
-            // Payment failed - cancel order and restore stock
-            order.setPaymentStatus("FAILED");
-            order.setStatus(OrderStatus.CANCELLED);
-            
-            // Restore product stock
-            for (OrderItem item : order.getOrderItems()) {
-                Product product = item.getProduct();
-                product.setStock(product.getStock() + item.getQuantity());
-                productRepository.save(product);
-                logger.info("Restored stock for product {}: +{}", product.getName(), item.getQuantity());
-            }
-            
-            // Restore voucher usage if applied
-            if (order.getVoucherCode() != null) {
-                try {
-                    Voucher voucher = voucherService.getVoucherByCode(order.getVoucherCode());
-                    if (voucher != null) {
-                        voucherService.restoreVoucherUsage(voucher, order.getUser());
-                        logger.info("Restored voucher usage for: {}", order.getVoucherCode());
-                    }
-                } catch (Exception e) {
-                    logger.warn("Failed to restore voucher usage: {}", e.getMessage());
-                }
-            }
-            
-            logger.info("Payment failed for order {} - order cancelled and stock restored", orderNumber);
-        }
-
-        order.setVnpayTransactionNo(transactionNo);
-        order.setVnpayBankCode(bankCode);
-        order.setVnpayResponseCode(responseCode);
-        
-        orderRepository.save(order);
-        
-        logger.info("Updated VNPay payment status for order {}: status={}, transactionNo={}", 
-                    orderNumber, order.getPaymentStatus(), transactionNo);
+        return orderRepository.existsByOrderNumber(orderNumber);
     }
 }
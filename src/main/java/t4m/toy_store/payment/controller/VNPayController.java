@@ -9,6 +9,9 @@ import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 import t4m.toy_store.order.entity.OrderStatus;
 import t4m.toy_store.order.service.OrderService;
+import t4m.toy_store.payment.dto.PaymentOutcome;
+import t4m.toy_store.payment.dto.VNPayCallback;
+import t4m.toy_store.payment.service.PaymentEventProcessor;
 import t4m.toy_store.payment.service.VNPayService;
 
 import java.util.*;
@@ -25,6 +28,7 @@ public class VNPayController {
 
     private final VNPayService vnPayService;
     private final OrderService orderService;
+    private final PaymentEventProcessor paymentEventProcessor;
 
     /**
      * Return URL - Nơi VNPay redirect khách hàng về sau khi thanh toán
@@ -67,24 +71,11 @@ public class VNPayController {
             boolean isSuccess = "00".equals(vnp_ResponseCode);
 
             // ✅ UPDATE DATABASE HERE (vì localhost không nhận được IPN)
+            // Idempotent: nếu IPN đã xử lý giao dịch này thì không áp dụng lại
+            PaymentOutcome outcome = null;
             try {
-                // Check if order exists
-                if (orderService.orderExists(vnp_TxnRef)) {
-                    // Check if not already processed
-                    if (!orderService.isPaymentConfirmed(vnp_TxnRef)) {
-                        // Update payment status
-                        orderService.updateVNPayPaymentStatus(
-                            vnp_TxnRef, 
-                            isSuccess, 
-                            vnp_TransactionNo, 
-                            vnp_BankCode,
-                            vnp_ResponseCode
-                        );
-                        log.info("✅ Payment status updated from Return URL for order: {}", vnp_TxnRef);
-                    } else {
-                        log.info("Order {} already confirmed", vnp_TxnRef);
-                    }
-                }
+                outcome = paymentEventProcessor.process(VNPayCallback.from(params));
+                log.info("Payment result from Return URL for order {}: {}", vnp_TxnRef, outcome);
             } catch (Exception e) {
                 log.error("Error updating payment status from Return URL", e);
             }
@@ -107,24 +98,11 @@ public class VNPayController {
                 // Payment successful - redirect to order confirmation
                 return "redirect:/order-confirmation/" + vnp_TxnRef;
             } else {
-                // Check if user just returned without completing (no actual transaction attempt)
-                // or if payment actually failed/cancelled
-                
-                // If order is still PENDING_PAYMENT (not yet updated), redirect to payment-pending
-                // If order is already CANCELLED/FAILED, redirect to order-confirmation to show the error
-                try {
-                    if (orderService.orderExists(vnp_TxnRef)) {
-                        t4m.toy_store.order.dto.OrderResponse order = orderService.getOrderByNumber(vnp_TxnRef);
-                        if (order.getStatus() == OrderStatus.PENDING_PAYMENT) {
-                            // Still pending, redirect to payment-pending page
-                            return "redirect:/payment-pending/" + vnp_TxnRef;
-                        } else {
-                            // Already updated to CANCELLED/FAILED, redirect to order-confirmation
-                            return "redirect:/order-confirmation/" + vnp_TxnRef;
-                        }
-                    }
-                } catch (Exception e) {
-                    log.error("Error checking order status", e);
+                // Đơn đã có kết quả (vừa hủy ở trên hoặc đã xử lý trước đó): xem chi tiết lỗi ở order-confirmation
+                // Còn lại (chưa cập nhật được) thì đơn vẫn PENDING_PAYMENT: về trang chờ thanh toán
+                if (outcome == PaymentOutcome.APPLIED || outcome == PaymentOutcome.DUPLICATE
+                        || outcome == PaymentOutcome.ALREADY_PROCESSED) {
+                    return "redirect:/order-confirmation/" + vnp_TxnRef;
                 }
                 
                 // Default: redirect to payment pending
@@ -170,56 +148,37 @@ public class VNPayController {
                 return ResponseEntity.ok(response);
             }
 
-            // Lấy thông tin từ IPN
+            // Một lần INSERT idempotency + một UPDATE có điều kiện, không đọc đơn trước
             String vnp_TxnRef = params.get("vnp_TxnRef"); // Order number
-            String vnp_TransactionNo = params.get("vnp_TransactionNo");
-            String vnp_ResponseCode = params.get("vnp_ResponseCode");
-            String vnp_Amount = params.get("vnp_Amount");
-            String vnp_BankCode = params.get("vnp_BankCode");
-            String vnp_TransactionStatus = params.get("vnp_TransactionStatus");
-
-            // Check if order exists
-            boolean orderExists = orderService.orderExists(vnp_TxnRef);
-            if (!orderExists) {
-                log.warn("Order not found: {}", vnp_TxnRef);
-                response.put("RspCode", "01");
-                response.put("Message", "Order not Found");
-                return ResponseEntity.ok(response);
-            }
-
-            // Check if order amount matches
-            long vnpayAmount = Long.parseLong(vnp_Amount) / 100;
-            boolean amountMatches = orderService.verifyOrderAmount(vnp_TxnRef, vnpayAmount);
-            if (!amountMatches) {
-                log.warn("Amount mismatch for order: {}", vnp_TxnRef);
-                response.put("RspCode", "04");
-                response.put("Message", "Invalid Amount");
-                return ResponseEntity.ok(response);
-            }
+            PaymentOutcome outcome = paymentEventProcessor.process(VNPayCallback.from(params));
 
-            // Check if order already confirmed
-            boolean alreadyConfirmed = orderService.isPaymentConfirmed(vnp_TxnRef);
-            if (alreadyConfirmed) {
-                log.info("Order already confirmed: {}", vnp_TxnRef);
-                response.put("RspCode", "02");
-                response.put("Message", "Order already confirmed");
-                return ResponseEntity.ok(response);
+            switch (outcome) {
+                case APPLIED -> {
+                    response.put("RspCode", "00");
+                    response.put("Message", "Confirm Success");
+                }
+                case DUPLICATE, ALREADY_PROCESSED -> {
+                    log.info("Order already confirmed: {}", vnp_TxnRef);
+                    response.put("RspCode", "02");
+                    response.put("Message", "Order already confirmed");
+                }
+                case REFUND_REQUIRED -> {
+                    // Giao dịch đã được ghi nhận để hoàn tiền, VNPay không cần gửi lại
+                    log.warn("Payment for cancelled order {} recorded for refund", vnp_TxnRef);
+                    response.put("RspCode", "02");
+                    response.put("Message", "Order already confirmed");
+                }
+                case ORDER_NOT_FOUND -> {
+                    log.warn("Order not found: {}", vnp_TxnRef);
+                    response.put("RspCode", "01");
+                    response.put("Message", "Order not Found");
+                }
+                case AMOUNT_MISMATCH -> {
+                    log.warn("Amount mismatch for order: {}", vnp_TxnRef);
+                    response.put("RspCode", "04");
+                    response.put("Message", "Invalid Amount");
+                }
             }
-
-            // Update payment status
-            boolean isSuccess = "00".equals(vnp_ResponseCode);
-            orderService.updateVNPayPaymentStatus(
-                vnp_TxnRef, 
-                isSuccess, 
-                vnp_TransactionNo, 
-                vnp_BankCode,
-                vnp_ResponseCode
-            );
-
-            log.info("Updated payment status for order {}: success={}", vnp_TxnRef, isSuccess);
-
-            response.put("RspCode", "00");
-            response.put("Message", "Confirm Success");
             return ResponseEntity.ok(response);
 
         } catch (Exception e) {
@@ -0,0 +1,13 @@
+package t4m.toy_store.payment.dto;
+
+/**
+ * Kết quả xử lý một callback thanh toán VNPay
+ */
+public enum PaymentOutcome {
+    APPLIED,            // Đã cập nhật đơn hàng (thành công hoặc thất bại)
+    DUPLICATE,          // Giao dịch này đã được xử lý trước đó
+    ALREADY_PROCESSED,  // Đơn đã có kết quả thanh toán từ giao dịch khác
+    REFUND_REQUIRED,    // Tiền đã bị trừ nhưng đơn đã hủy: đã ghi nhận để hoàn tiền
+    ORDER_NOT_FOUND,
+    AMOUNT_MISMATCH
+}
@@ -0,0 +1,26 @@
+package t4m.toy_store.payment.dto;
+
+import java.util.Map;
+
+/**
+ * Các tham số VNPay cần cho việc cập nhật đơn hàng (IPN và Return URL dùng chung)
+ * amount theo đơn vị VNPay (VND x 100), null nếu thiếu/không hợp lệ
+ */
+public record VNPayCallback(String orderNumber, String transactionNo, String responseCode,
+                            String bankCode, Long amount) {
+
+    public static VNPayCallback from(Map<String, String> params) {
+        Long amount;
+        try {
+            amount = Long.parseLong(params.get("vnp_Amount"));
+        } catch (NumberFormatException e) {
+            amount = null;
+        }
+        return new VNPayCallback(params.get("vnp_TxnRef"), params.get("vnp_TransactionNo"),
+                params.get("vnp_ResponseCode"), params.get("vnp_BankCode"), amount);
+    }
+
+    public boolean isSuccess() {
+        return "00".equals(responseCode);
+    }
+}
@@ -0,0 +1,44 @@
+package t4m.toy_store.payment.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Mỗi callback VNPay (IPN hoặc Return URL) đã xử lý, khóa theo (order_number, transaction_no)
+ * Dùng làm bảng idempotency: cùng một giao dịch gửi lại sẽ không được áp dụng lần hai
+ */
+@Entity
+@Table(name = "payment_transactions", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_payment_txn", columnNames = {"order_number", "transaction_no"})
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PaymentTransaction {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "order_number", nullable = false, length = 50)
+    private String orderNumber;
+
+    // VNPay gửi "0" hoặc không gửi khi khách hủy trước khi tới ngân hàng: lưu chuỗi rỗng để unique vẫn có hiệu lực
+    @Column(name = "transaction_no", nullable = false, length = 50)
+    private String transactionNo;
+
+    @Column(name = "response_code", length = 10)
+    private String responseCode;
+
+    @Column(name = "bank_code", length = 20)
+    private String bankCode;
+
+    // Số tiền theo đơn vị VNPay (VND x 100)
+    private Long amount;
+
+    @Column(name = "processed_at", nullable = false)
+    private LocalDateTime processedAt;
+}
@@ -0,0 +1,29 @@
+package t4m.toy_store.payment.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import t4m.toy_store.payment.entity.PaymentTransaction;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface PaymentTransactionRepository extends JpaRepository<PaymentTransaction, Long> {
+
+    /**
+     * Ghi nhận giao dịch nếu chưa có; trả về 1 khi ghi mới, 0 khi đã xử lý trước đó (unique key)
+     */
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO payment_transactions " +
+                   "(order_number, transaction_no, response_code, bank_code, amount, processed_at) " +
+                   "VALUES (:orderNumber, :transactionNo, :responseCode, :bankCode, :amount, :processedAt)",
+           nativeQuery = true)
+    int insertIfAbsent(@Param("orderNumber") String orderNumber,
+                       @Param("transactionNo") String transactionNo,
+                       @Param("responseCode") String responseCode,
+                       @Param("bankCode") String bankCode,
+                       @Param("amount") Long amount,
+                       @Param("processedAt") LocalDateTime processedAt);
+}
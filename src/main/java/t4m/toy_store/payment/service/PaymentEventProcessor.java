@@ -0,0 +1,118 @@
+package t4m.toy_store.payment.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import t4m.toy_store.order.dto.OrderPaymentState;
+import t4m.toy_store.order.entity.OrderStatus;
+import t4m.toy_store.order.event.OrderEvent;
+import t4m.toy_store.order.event.OrderEventPublisher;
+import t4m.toy_store.order.event.OrderEventType;
+import t4m.toy_store.order.repository.OrderRepository;
+import t4m.toy_store.payment.dto.PaymentOutcome;
+import t4m.toy_store.payment.dto.VNPayCallback;
+import t4m.toy_store.payment.repository.PaymentTransactionRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Xử lý kết quả thanh toán VNPay (IPN và Return URL) một cách idempotent
+ * 1. INSERT IGNORE vnp_TransactionNo vào payment_transactions: giao dịch gửi lại bị chặn ngay tại đây
+ * 2. UPDATE có điều kiện trên orders (còn chờ thanh toán + đúng số tiền): chỉ một callback thắng,
+ *    không cần khóa hay đọc trước
+ * 3. Ghi sự kiện thanh toán vào outbox bằng INSERT ... SELECT, dựng từ dữ liệu callback (không nạp lại đơn)
+ * Đường thành công tốn ba câu lệnh, đường trùng lặp một câu; chỉ khi UPDATE không khớp mới đọc lại đơn để phân loại.
+ * Sự kiện outbox phải là một câu INSERT riêng (MySQL không gộp UPDATE orders với INSERT bảng khác trong một câu)
+ * và phải nằm cùng transaction với UPDATE, nên đường thành công là ba câu thay vì hai
+ * Thanh toán thành công cho đơn đã hủy được đánh dấu REFUND_REQUIRED và phát PAYMENT_REFUND_REQUIRED qua outbox
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PaymentEventProcessor {
+
+    private final PaymentTransactionRepository paymentTransactionRepository;
+    private final OrderRepository orderRepository;
+    private final OrderEventPublisher orderEventPublisher;
+
+    @Transactional
+    public PaymentOutcome process(VNPayCallback callback) {
+        String orderNumber = callback.orderNumber();
+        if (orderNumber == null) {
+            return PaymentOutcome.ORDER_NOT_FOUND;
+        }
+        if (callback.amount() == null) {
+            return PaymentOutcome.AMOUNT_MISMATCH;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        String transactionNo = callback.transactionNo() != null ? callback.transactionNo() : "";
+
+        int recorded = paymentTransactionRepository.insertIfAbsent(orderNumber, transactionNo,
+                callback.responseCode(), callback.bankCode(), callback.amount(), now);
+        if (recorded == 0) {
+            log.info("VNPay transaction {} for order {} already processed", transactionNo, orderNumber);
+            return PaymentOutcome.DUPLICATE;
+        }
+
+        boolean success = callback.isSuccess();
+        int updated = orderRepository.applyPaymentResult(orderNumber, callback.amount(),
+                OrderStatus.PENDING_PAYMENT,
+                success ? OrderStatus.PENDING : OrderStatus.CANCELLED,
+                success ? "PAID" : "FAILED",
+                callback.transactionNo(), callback.bankCode(), callback.responseCode(), now);
+
+        if (updated == 1) {
+            // Thất bại: OrderReservationReleaser trả tồn kho + voucher; thành công: email xác nhận... (qua outbox)
+            orderEventPublisher.publishForOrderNumber(OrderEvent.payment(
+                    success ? OrderEventType.PAYMENT_SUCCEEDED : OrderEventType.PAYMENT_FAILED,
+                    orderNumber, success ? OrderStatus.PENDING : OrderStatus.CANCELLED,
+                    BigDecimal.valueOf(callback.amount(), 2)));
+            log.info("Applied VNPay result for order {}: success={}, transactionNo={}",
+                    orderNumber, success, transactionNo);
+            return PaymentOutcome.APPLIED;
+        }
+
+        // Khách đã hủy đơn nhưng VNPay vẫn trừ tiền: ghi nhận để hoàn tiền thay vì chỉ ghi log
+        if (success && orderRepository.markRefundRequired(orderNumber, callback.amount(), OrderStatus.CANCELLED,
+                callback.transactionNo(), callback.bankCode(), callback.responseCode(), now) == 1) {
+            orderEventPublisher.publishForOrderNumber(OrderEvent.refundRequired(
+                    orderNumber, BigDecimal.valueOf(callback.amount(), 2)));
+            log.warn("VNPay payment {} succeeded for cancelled order {}, refund required",
+                    transactionNo, orderNumber);
+            return PaymentOutcome.REFUND_REQUIRED;
+        }
+
+        return classifyRejected(callback);
+    }
+
+    /**
+     * UPDATE không khớp: đọc trạng thái đơn (một lần) để biết lý do
+     */
+    private PaymentOutcome classifyRejected(VNPayCallback callback) {
+        Optional<OrderPaymentState> state = orderRepository.findPaymentStateByOrderNumber(callback.orderNumber());
+        if (state.isEmpty()) {
+            // Không giữ bản ghi idempotency cho callback không hợp lệ
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            log.warn("VNPay callback for unknown order {}", callback.orderNumber());
+            return PaymentOutcome.ORDER_NOT_FOUND;
+        }
+        OrderPaymentState order = state.get();
+        if ("PENDING".equals(order.getPaymentStatus())) {
+            // Vẫn chờ thanh toán mà UPDATE không khớp: sai số tiền (hoặc đơn đã bị hủy khi chưa thanh toán)
+            long expected = order.getTotalAmount().movePointRight(2).longValue();
+            if (expected != callback.amount()) {
+                TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+                log.warn("VNPay amount mismatch for order {}: expected {}, got {}",
+                        callback.orderNumber(), expected, callback.amount());
+                return PaymentOutcome.AMOUNT_MISMATCH;
+            }
+        }
+        log.info("Order {} already has a payment result ({}), transaction {} ignored",
+                callback.orderNumber(), order.getPaymentStatus(), callback.transactionNo());
+        return PaymentOutcome.ALREADY_PROCESSED;
+    }
+}
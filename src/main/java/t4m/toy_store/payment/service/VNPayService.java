@@ -21,6 +21,7 @@ import java.util.*;
 public class VNPayService {
 
     private final VNPayConfig vnPayConfig;
+    private final VNPaySigner vnPaySigner;
 
     /**
      * Tạo URL thanh toán VNPay
@@ -69,25 +70,10 @@ public class VNPayService {
             String vnp_ExpireDate = formatter.format(cld.getTime());
             vnp_Params.put("vnp_ExpireDate", vnp_ExpireDate);
             
-            // Build hash data và query string
-            String hashData = VNPayUtil.hashAllFields(vnp_Params);
-            String vnpSecureHash = VNPayUtil.hmacSHA512(vnPayConfig.getHashSecret(), hashData);
-            
-            // Build query URL
-            String queryUrl = VNPayUtil.buildQuery(vnp_Params);
-            queryUrl += "&vnp_SecureHash=" + vnpSecureHash;
-            
-            String paymentUrl = vnPayConfig.getPayUrl() + "?" + queryUrl;
-            
-            // Log để debug
-            log.info("=== VNPay Payment URL Debug ===");
-            log.info("Order: {}", orderNumber);
-            log.info("Amount: {} VND", totalAmount);
-            log.info("IP Address: {}", vnp_IpAddr);
-            log.info("TmnCode: {}", vnPayConfig.getTmnCode());
-            log.info("Hash Data: {}", hashData);
-            log.info("Secure Hash: {}", vnpSecureHash);
-            log.info("Payment URL: {}", paymentUrl);
+            // Query string đã sắp xếp + chữ ký (chuỗi canonical vừa là hash data vừa là query)
+            String paymentUrl = vnPayConfig.getPayUrl() + "?" + vnPaySigner.signedQuery(vnp_Params);
+
+            log.debug("VNPay payment URL created for order {} ({} VND, IP {})", orderNumber, totalAmount, vnp_IpAddr);
             
             return paymentUrl;
             
@@ -100,20 +86,6 @@ public class VNPayService {
      * Verify checksum từ VNPay response
      */
     public boolean verifyPaymentResponse(Map<String, String> params) {
-        // Tạo bản sao để không modify params gốc
-        Map<String, String> fields = new HashMap<>(params);
-        
-        // Lấy secure hash từ VNPay
-        String vnp_SecureHash = fields.get("vnp_SecureHash");
-        
-        // Loại bỏ hash fields trước khi tính checksum
-        fields.remove("vnp_SecureHashType");
-        fields.remove("vnp_SecureHash");
-        
-        // Tính hash từ các params còn lại
-        String hashData = VNPayUtil.hashAllFields(fields);
-        String calculatedHash = VNPayUtil.hmacSHA512(vnPayConfig.getHashSecret(), hashData);
-        
-        return calculatedHash.equalsIgnoreCase(vnp_SecureHash);
+        return vnPaySigner.verify(params);
     }
 }
@@ -0,0 +1,212 @@
+package t4m.toy_store.payment.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import t4m.toy_store.config.VNPayConfig;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Ký và kiểm tra chữ ký VNPay (HMAC-SHA512)
+ * - Mỗi thread giữ sẵn một Mac đã init với secret (doFinal tự reset), không tạo Mac/SecretKeySpec mỗi lần
+ * - Tham số được sắp xếp và URL-encode một lần vào buffer dùng lại của thread; chuỗi này vừa là hash data
+ *   vừa là query string (VNPay 2.1.0 encode cả hai bằng US_ASCII, tên tham số chỉ gồm ký tự không cần encode)
+ * - Hex hóa bằng bảng tra, so sánh chữ ký không phụ thuộc thời gian
+ * Kết quả giống hệt VNPayUtil.hashAllFields + hmacSHA512 (xem VNPaySignerTest)
+ */
+@Component
+public class VNPaySigner {
+
+    public static final String SECURE_HASH = "vnp_SecureHash";
+    public static final String SECURE_HASH_TYPE = "vnp_SecureHashType";
+
+    private static final String ALGORITHM = "HmacSHA512";
+    private static final char[] HEX_LOWER = "0123456789abcdef".toCharArray();
+    private static final char[] HEX_UPPER = "0123456789ABCDEF".toCharArray();
+    // Buffer lớn bất thường thì không giữ lại cho thread
+    private static final int MAX_RETAINED_BUFFER = 16 * 1024;
+
+    private final ThreadLocal<Mac> macs;
+    private final ThreadLocal<Buffers> buffers = ThreadLocal.withInitial(Buffers::new);
+
+    @Autowired
+    public VNPaySigner(VNPayConfig vnPayConfig) {
+        this(vnPayConfig.getHashSecret());
+    }
+
+    public VNPaySigner(String hashSecret) {
+        SecretKeySpec key = new SecretKeySpec(hashSecret.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+        this.macs = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance(ALGORITHM);
+                mac.init(key);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Cannot initialize " + ALGORITHM, e);
+            }
+        });
+    }
+
+    /**
+     * Query string đã ký: các tham số đã sắp xếp + "&vnp_SecureHash=..."
+     */
+    public String signedQuery(Map<String, String> params) {
+        Buffers buf = buffers.get();
+        try {
+            StringBuilder out = buf.text;
+            out.setLength(0);
+            appendCanonical(params, out);
+            int dataLength = out.length();
+            out.append('&').append(SECURE_HASH).append('=');
+            appendHmacHex(buf, out, 0, dataLength);
+            return out.toString();
+        } finally {
+            release(buf);
+        }
+    }
+
+    /**
+     * Chữ ký (hex thường) của các tham số, bỏ qua vnp_SecureHash/vnp_SecureHashType
+     */
+    public String sign(Map<String, String> params) {
+        Buffers buf = buffers.get();
+        try {
+            StringBuilder out = buf.text;
+            out.setLength(0);
+            appendCanonical(params, out);
+            int dataLength = out.length();
+            appendHmacHex(buf, out, 0, dataLength);
+            return out.substring(dataLength);
+        } finally {
+            release(buf);
+        }
+    }
+
+    /**
+     * Kiểm tra vnp_SecureHash trong tham số VNPay gửi về
+     */
+    public boolean verify(Map<String, String> params) {
+        String provided = params.get(SECURE_HASH);
+        if (provided == null || provided.length() != 128) {
+            return false;
+        }
+        Buffers buf = buffers.get();
+        try {
+            StringBuilder out = buf.text;
+            out.setLength(0);
+            appendCanonical(params, out);
+            byte[] expected = hmac(buf, out, 0, out.length());
+            byte[] actual = decodeHex(provided);
+            return actual != null && MessageDigest.isEqual(expected, actual);
+        } finally {
+            release(buf);
+        }
+    }
+
+    /**
+     * name=value&... theo thứ tự tên tăng dần, bỏ giá trị rỗng và các trường chữ ký
+     * Giữ đúng quy tắc của mã mẫu VNPay: dấu '&' được thêm sau mỗi trường có giá trị nếu còn trường phía sau
+     */
+    private static void appendCanonical(Map<String, String> params, StringBuilder out) {
+        String[] names = new String[params.size()];
+        int count = 0;
+        for (String name : params.keySet()) {
+            if (!SECURE_HASH.equals(name) && !SECURE_HASH_TYPE.equals(name)) {
+                names[count++] = name;
+            }
+        }
+        Arrays.sort(names, 0, count);
+        for (int i = 0; i < count; i++) {
+            String value = params.get(names[i]);
+            if (value == null || value.isEmpty()) {
+                continue;
+            }
+            encode(names[i], out);
+            out.append('=');
+            encode(value, out);
+            if (i < count - 1) {
+                out.append('&');
+            }
+        }
+    }
+
+    /**
+     * Tương đương URLEncoder.encode(value, US_ASCII): ký tự ngoài ASCII thành "%3F" ('?')
+     */
+    private static void encode(String value, StringBuilder out) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                    || c == '.' || c == '-' || c == '*' || c == '_') {
+                out.append(c);
+            } else if (c == ' ') {
+                out.append('+');
+            } else if (c < 0x80) {
+                out.append('%').append(HEX_UPPER[c >> 4]).append(HEX_UPPER[c & 0xF]);
+            } else {
+                // Cặp surrogate là một code point nên chỉ thành một '?'
+                if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    i++;
+                }
+                out.append("%3F");
+            }
+        }
+    }
+
+    private void appendHmacHex(Buffers buf, StringBuilder out, int from, int to) {
+        byte[] digest = hmac(buf, out, from, to);
+        for (byte b : digest) {
+            out.append(HEX_LOWER[(b >> 4) & 0xF]).append(HEX_LOWER[b & 0xF]);
+        }
+    }
+
+    private byte[] hmac(Buffers buf, CharSequence data, int from, int to) {
+        // Dữ liệu đã encode chỉ còn ký tự ASCII nên mỗi char là một byte
+        int length = to - from;
+        byte[] bytes = buf.bytes(length);
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) data.charAt(from + i);
+        }
+        Mac mac = macs.get();
+        mac.update(bytes, 0, length);
+        return mac.doFinal();
+    }
+
+    private static byte[] decodeHex(String hex) {
+        byte[] result = new byte[hex.length() / 2];
+        for (int i = 0; i < result.length; i++) {
+            int high = Character.digit(hex.charAt(2 * i), 16);
+            int low = Character.digit(hex.charAt(2 * i + 1), 16);
+            if (high < 0 || low < 0) {
+                return null;
+            }
+            result[i] = (byte) ((high << 4) | low);
+        }
+        return result;
+    }
+
+    private void release(Buffers buf) {
+        if (buf.text.capacity() > MAX_RETAINED_BUFFER || buf.bytes.length > MAX_RETAINED_BUFFER) {
+            buffers.remove();
+        }
+    }
+
+    private static final class Buffers {
+        private final StringBuilder text = new StringBuilder(1024);
+        private byte[] bytes = new byte[1024];
+
+        byte[] bytes(int length) {
+            if (bytes.length < length) {
+                bytes = new byte[Math.max(length, bytes.length * 2)];
+            }
+            return bytes;
+        }
+    }
+}
@@ -7,8 +7,9 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import t4m.toy_store.image.service.ImageService;
+import t4m.toy_store.product.dto.CategoryResponse;
 import t4m.toy_store.product.dto.ProductResponse;
-import t4m.toy_store.product.entity.Category;
+import t4m.toy_store.product.dto.ProductSnapshot;
 import t4m.toy_store.product.entity.Product;
 import t4m.toy_store.product.service.ProductService;
 
@@ -45,11 +46,21 @@ public class ProductController {
 
     @GetMapping("/{id}")
     public ResponseEntity<ProductResponse> getProductById(@PathVariable Long id) {
-        Product product = productService.getProductById(id);
+        ProductSnapshot product = productService.getProductSnapshot(id);
         if (product == null) {
             return ResponseEntity.notFound().build();
         }
-        return ResponseEntity.ok(ProductResponse.fromEntity(product));
+        return ResponseEntity.ok(ProductResponse.fromSnapshot(product));
+    }
+
+    @GetMapping("/{id}/also-bought")
+    public ResponseEntity<List<ProductResponse>> getAlsoBoughtProducts(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "8") int limit) {
+        List<ProductResponse> response = productService.getAlsoBoughtProducts(id, limit).stream()
+            .map(ProductResponse::fromEntity)
+            .collect(Collectors.toList());
+        return ResponseEntity.ok(response);
     }
 
     @GetMapping("/category/{categoryId}")
@@ -71,6 +82,15 @@ public class ProductController {
         return ResponseEntity.ok(response);
     }
 
+    @GetMapping("/trending")
+    public ResponseEntity<List<ProductResponse>> getTrendingProducts(
+            @RequestParam(defaultValue = "12") int limit) {
+        List<ProductResponse> response = productService.getTrendingProducts(limit).stream()
+            .map(ProductResponse::fromEntity)
+            .collect(Collectors.toList());
+        return ResponseEntity.ok(response);
+    }
+
     @GetMapping("/search")
     public ResponseEntity<Page<ProductResponse>> searchProducts(
             @RequestParam String keyword,
@@ -96,7 +116,7 @@ public class ProductController {
     }
 
     @GetMapping("/categories")
-    public ResponseEntity<List<Category>> getAllCategories() {
+    public ResponseEntity<List<CategoryResponse>> getAllCategories() {
         return ResponseEntity.ok(productService.getAllCategories());
     }
 }
@@ -0,0 +1,30 @@
+package t4m.toy_store.product.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import t4m.toy_store.product.entity.Category;
+
+/**
+ * Danh mục cho menu/bộ lọc (không kèm danh sách sản phẩm của danh mục)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CategoryResponse {
+    private Long id;
+    private String name;
+    private String description;
+    private String icon;
+
+    public static CategoryResponse fromEntity(Category category) {
+        return CategoryResponse.builder()
+                .id(category.getId())
+                .name(category.getName())
+                .description(category.getDescription())
+                .icon(category.getIcon())
+                .build();
+    }
+}
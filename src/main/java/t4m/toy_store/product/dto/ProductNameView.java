@@ -0,0 +1,9 @@
+package t4m.toy_store.product.dto;
+
+/**
+ * Projection id + tên sản phẩm
+ */
+public interface ProductNameView {
+    Long getId();
+    String getName();
+}
@@ -67,4 +67,32 @@ public class ProductResponse {
             .updatedAt(product.getUpdatedAt())
             .build();
     }
+
+    public static ProductResponse fromSnapshot(ProductSnapshot product) {
+        CategoryInfo categoryInfo = null;
+        if (product.categoryId() != null) {
+            categoryInfo = new CategoryInfo(product.categoryId(), product.categoryName(), product.categoryIcon());
+        }
+
+        String imageUrl = product.imageUrl();
+        if (imageUrl != null && imageUrl.contains("cloudinary.com")) {
+            imageUrl = CloudinaryUrlHelper.getThumbnailUrl(imageUrl);
+        }
+
+        return ProductResponse.builder()
+            .id(product.id())
+            .name(product.name())
+            .description(product.description())
+            .price(product.price())
+            .discountPrice(product.discountPrice())
+            .imageUrl(imageUrl)
+            .stock(product.stock())
+            .featured(product.featured())
+            .category(categoryInfo)
+            .averageRating(product.averageRating())
+            .ratingCount(product.ratingCount())
+            .createdAt(product.createdAt())
+            .updatedAt(product.updatedAt())
+            .build();
+    }
 }
@@ -0,0 +1,74 @@
+package t4m.toy_store.product.dto;
+
+import t4m.toy_store.product.entity.Category;
+import t4m.toy_store.product.entity.Product;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Bản chụp bất biến của một sản phẩm trong CatalogCache
+ * Không giữ entity (tránh lộ trạng thái managed/lazy ra ngoài transaction và bị sửa nhầm khi đang nằm trong cache)
+ */
+public record ProductSnapshot(
+        Long id,
+        String name,
+        String description,
+        BigDecimal price,
+        BigDecimal discountPrice,
+        String imageUrl,
+        Integer stock,
+        Boolean featured,
+        Long categoryId,
+        String categoryName,
+        String categoryIcon,
+        Double averageRating,
+        Integer ratingCount,
+        int ratingStar1,
+        int ratingStar2,
+        int ratingStar3,
+        int ratingStar4,
+        int ratingStar5,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt) {
+
+    public static ProductSnapshot fromEntity(Product product) {
+        Category category = product.getCategory();
+        return new ProductSnapshot(
+                product.getId(),
+                product.getName(),
+                product.getDescription(),
+                product.getPrice(),
+                product.getDiscountPrice(),
+                product.getImageUrl(),
+                product.getStock(),
+                product.getFeatured(),
+                category != null ? category.getId() : null,
+                category != null ? category.getName() : null,
+                category != null ? category.getIcon() : null,
+                product.getAverageRating() != null ? product.getAverageRating() : 0.0,
+                product.getRatingCount() != null ? product.getRatingCount() : 0,
+                orZero(product.getRatingStar1()),
+                orZero(product.getRatingStar2()),
+                orZero(product.getRatingStar3()),
+                orZero(product.getRatingStar4()),
+                orZero(product.getRatingStar5()),
+                product.getCreatedAt(),
+                product.getUpdatedAt());
+    }
+
+    /**
+     * Giá bán thực tế (giá giảm nếu có)
+     */
+    public BigDecimal effectivePrice() {
+        return discountPrice != null ? discountPrice : price;
+    }
+
+    public boolean hasStock(int quantity) {
+        return stock != null && stock >= quantity;
+    }
+
+    private static int orZero(Integer value) {
+        return value != null ? value : 0;
+    }
+}
@@ -52,6 +52,27 @@ public class Product {
     @Builder.Default
     private Integer ratingCount = 0;
 
+    // Số lượt đánh giá theo từng mức sao, cập nhật bằng delta nguyên tử (xem ProductRepository.applyRatingDelta)
+    @Column(name = "rating_star1", nullable = false, columnDefinition = "INT NOT NULL DEFAULT 0")
+    @Builder.Default
+    private Integer ratingStar1 = 0;
+
+    @Column(name = "rating_star2", nullable = false, columnDefinition = "INT NOT NULL DEFAULT 0")
+    @Builder.Default
+    private Integer ratingStar2 = 0;
+
+    @Column(name = "rating_star3", nullable = false, columnDefinition = "INT NOT NULL DEFAULT 0")
+    @Builder.Default
+    private Integer ratingStar3 = 0;
+
+    @Column(name = "rating_star4", nullable = false, columnDefinition = "INT NOT NULL DEFAULT 0")
+    @Builder.Default
+    private Integer ratingStar4 = 0;
+
+    @Column(name = "rating_star5", nullable = false, columnDefinition = "INT NOT NULL DEFAULT 0")
+    @Builder.Default
+    private Integer ratingStar5 = 0;
+
     private LocalDateTime createdAt;
 
     private LocalDateTime updatedAt;
@@ -66,6 +87,11 @@ public class Product {
         if (ratingCount == null) {
             ratingCount = 0;
         }
+        if (ratingStar1 == null) ratingStar1 = 0;
+        if (ratingStar2 == null) ratingStar2 = 0;
+        if (ratingStar3 == null) ratingStar3 = 0;
+        if (ratingStar4 == null) ratingStar4 = 0;
+        if (ratingStar5 == null) ratingStar5 = 0;
     }
 
     @PreUpdate
@@ -0,0 +1,31 @@
+package t4m.toy_store.product.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Snapshot điểm phổ biến của sản phẩm (ghi định kỳ bởi PopularityService)
+ * score là giá trị đã suy giảm tại thời điểm updatedAt
+ */
+@Entity
+@Table(name = "product_popularity", indexes = {
+    @Index(name = "idx_popularity_score", columnList = "score")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductPopularity {
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+
+    @Column(nullable = false)
+    private Double score;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -3,9 +3,11 @@ package t4m.toy_store.product.repository;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import t4m.toy_store.product.dto.ProductNameView;
 import t4m.toy_store.product.entity.Product;
 
 import java.math.BigDecimal;
@@ -13,7 +15,46 @@ import java.util.List;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
+
+    /**
+     * Cộng delta vào bucket sao tương ứng và tính lại average/count từ các bucket, trong một câu UPDATE
+     * average_rating được gán trước nên luôn đọc giá trị bucket cũ (MySQL gán SET từ trái sang phải),
+     * vì vậy công thức cộng thêm delta * stars vào tổng cũ
+     */
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("UPDATE Product p SET " +
+           "p.averageRating = COALESCE((p.ratingStar1 + 2 * p.ratingStar2 + 3 * p.ratingStar3 + 4 * p.ratingStar4 " +
+           "    + 5 * p.ratingStar5 + :delta * :stars) * 1.0 / NULLIF(p.ratingCount + :delta, 0), 0.0), " +
+           "p.ratingStar1 = p.ratingStar1 + CASE WHEN :stars = 1 THEN :delta ELSE 0 END, " +
+           "p.ratingStar2 = p.ratingStar2 + CASE WHEN :stars = 2 THEN :delta ELSE 0 END, " +
+           "p.ratingStar3 = p.ratingStar3 + CASE WHEN :stars = 3 THEN :delta ELSE 0 END, " +
+           "p.ratingStar4 = p.ratingStar4 + CASE WHEN :stars = 4 THEN :delta ELSE 0 END, " +
+           "p.ratingStar5 = p.ratingStar5 + CASE WHEN :stars = 5 THEN :delta ELSE 0 END, " +
+           "p.ratingCount = p.ratingCount + :delta " +
+           "WHERE p.id = :productId")
+    int applyRatingDelta(@Param("productId") Long productId,
+                         @Param("stars") int stars,
+                         @Param("delta") int delta);
+
+    /**
+     * Hoàn lại tồn kho cho toàn bộ sản phẩm của một đơn trong một câu UPDATE
+     * Gộp số lượng theo sản phẩm trước khi JOIN để sản phẩm lặp trong đơn vẫn được cộng đủ
+     */
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query(value = "UPDATE products p JOIN (" +
+                   "  SELECT oi.product_id, SUM(oi.quantity) AS qty FROM order_items oi " +
+                   "  JOIN orders o ON o.id = oi.order_id WHERE o.order_number = :orderNumber " +
+                   "  GROUP BY oi.product_id" +
+                   ") r ON r.product_id = p.id " +
+                   "SET p.stock = p.stock + r.qty",
+           nativeQuery = true)
+    int restoreStockForOrder(@Param("orderNumber") String orderNumber);
+
     Page<Product> findByCategoryId(Long categoryId, Pageable pageable);
+
+    // Chỉ id + tên, dùng cho chỉ mục tên sản phẩm trong bộ nhớ
+    @Query("SELECT p.id AS id, p.name AS name FROM Product p")
+    List<ProductNameView> findAllNames();
     List<Product> findByFeaturedTrue();
     Page<Product> findByNameContainingIgnoreCase(String keyword, Pageable pageable);
     
@@ -89,4 +130,24 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
         @Param("maxPrice") BigDecimal maxPrice,
         Pageable pageable
     );
+    
+    // Sắp xếp theo điểm phổ biến đã snapshot (bảng product_popularity), sản phẩm chưa có điểm xếp sau
+    @Query(value = "SELECT p FROM Product p LEFT JOIN ProductPopularity pp ON pp.productId = p.id WHERE " +
+           "(:keyword IS NULL OR LOWER(p.name) LIKE LOWER(CONCAT('%', :keyword, '%'))) AND " +
+           "(:categoryId IS NULL OR p.category.id = :categoryId) AND " +
+           "(:minPrice IS NULL OR COALESCE(p.discountPrice, p.price) >= :minPrice) AND " +
+           "(:maxPrice IS NULL OR COALESCE(p.discountPrice, p.price) <= :maxPrice) " +
+           "ORDER BY COALESCE(pp.score, 0) DESC, p.createdAt DESC",
+           countQuery = "SELECT COUNT(p) FROM Product p WHERE " +
+           "(:keyword IS NULL OR LOWER(p.name) LIKE LOWER(CONCAT('%', :keyword, '%'))) AND " +
+           "(:categoryId IS NULL OR p.category.id = :categoryId) AND " +
+           "(:minPrice IS NULL OR COALESCE(p.discountPrice, p.price) >= :minPrice) AND " +
+           "(:maxPrice IS NULL OR COALESCE(p.discountPrice, p.price) <= :maxPrice)")
+    Page<Product> findByFiltersPopular(
+        @Param("keyword") String keyword,
+        @Param("categoryId") Long categoryId,
+        @Param("minPrice") BigDecimal minPrice,
+        @Param("maxPrice") BigDecimal maxPrice,
+        Pageable pageable
+    );
 }
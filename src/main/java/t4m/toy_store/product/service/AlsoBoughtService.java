@@ -0,0 +1,334 @@
+package t4m.toy_store.product.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import t4m.toy_store.config.MaintenanceJobRunner;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Chỉ mục "khách hàng cũng mua" (item-to-item) từ lịch sử đơn hàng
+ * - Quét order_items theo từng khoảng order id (mỗi lô một câu SELECT, chỉ giữ một đơn trong bộ nhớ khi duyệt)
+ * - Đếm số đơn chứa đồng thời từng cặp sản phẩm trong ma trận thưa PairCountMap (long -> int nguyên thủy);
+ *   khi số cặp vượt giới hạn thì bỏ các cặp hiếm để bộ nhớ không tăng vô hạn
+ * - Giữ top-K sản phẩm liên quan của mỗi sản phẩm trong một Map bất biến, tra cứu chỉ là một lần get
+ * Đơn mới được cộng dồn định kỳ; rebuild toàn bộ hằng đêm để loại đơn đã hủy/hoàn tiền
+ * Cộng dồn theo mốc created_at lùi lại một khoảng chồng lấn (không theo MAX(id)): id IDENTITY được cấp
+ * lúc insert nhưng đơn có thể commit muộn hơn đơn id lớn hơn; đơn đã đếm trong khoảng chồng lấn được ghi nhớ để bỏ qua
+ */
+@Service
+@Slf4j
+public class AlsoBoughtService {
+
+    private static final String MAX_ORDER_ID_SQL = "SELECT COALESCE(MAX(id), 0) FROM orders";
+
+    private static final String ORDER_ITEMS_SQL = """
+            SELECT oi.order_id, oi.product_id, o.created_at
+            FROM order_items oi
+            JOIN orders o ON o.id = oi.order_id
+            WHERE oi.order_id > ? AND oi.order_id <= ? AND o.status NOT IN ('CANCELLED', 'REFUNDED')
+            ORDER BY oi.order_id
+            """;
+
+    private static final String RECENT_ORDER_ITEMS_SQL = """
+            SELECT oi.order_id, oi.product_id, o.created_at
+            FROM order_items oi
+            JOIN orders o ON o.id = oi.order_id
+            WHERE o.created_at >= ? AND o.status NOT IN ('CANCELLED', 'REFUNDED')
+            ORDER BY oi.order_id
+            """;
+
+    // Đơn quá nhiều sản phẩm (mua sỉ) sinh O(n^2) cặp mà ít giá trị gợi ý: chỉ lấy chừng này sản phẩm đầu
+    private static final int MAX_ITEMS_PER_ORDER = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MaintenanceJobRunner jobRunner;
+    private final int topK;
+    private final int batchOrders;
+    private final int maxPairs;
+    private final Duration commitOverlap;
+
+    private final Object buildLock = new Object();
+    // Chỉ truy cập khi giữ buildLock
+    private PairCountMap pairCounts;
+    private int minCount = 1;
+    // Mọi đơn có created_at < watermark - commitOverlap đã commit và đã được đếm
+    private LocalDateTime watermark;
+    // Đơn đã đếm có created_at trong khoảng chồng lấn: lần cộng dồn sau bỏ qua để không đếm hai lần
+    private Map<Long, LocalDateTime> recentOrders = new HashMap<>();
+
+    private volatile Map<Long, long[]> neighbors = Map.of();
+
+    public AlsoBoughtService(JdbcTemplate jdbcTemplate,
+                             MaintenanceJobRunner jobRunner,
+                             @Value("${app.recommendation.top-k:10}") int topK,
+                             @Value("${app.recommendation.batch-orders:1000}") int batchOrders,
+                             @Value("${app.recommendation.max-pairs:2000000}") int maxPairs,
+                             @Value("${app.recommendation.commit-overlap-seconds:300}") long commitOverlapSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.jobRunner = jobRunner;
+        this.topK = Math.max(1, topK);
+        this.batchOrders = Math.max(1, batchOrders);
+        this.maxPairs = Math.max(1000, maxPairs);
+        this.commitOverlap = Duration.ofSeconds(Math.max(0, commitOverlapSeconds));
+    }
+
+    /**
+     * Các sản phẩm thường được mua cùng {@code productId}, xếp theo số đơn mua chung giảm dần
+     */
+    public List<Long> getAlsoBought(Long productId, int limit) {
+        long[] ids = productId != null ? neighbors.get(productId) : null;
+        if (ids == null || limit <= 0) {
+            return List.of();
+        }
+        int size = Math.min(limit, ids.length);
+        Long[] result = new Long[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = ids[i];
+        }
+        return List.of(result);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        scheduledRebuild();
+    }
+
+    @Scheduled(cron = "${app.recommendation.rebuild-cron:0 0 4 * * *}")
+    public void scheduledRebuild() {
+        jobRunner.submit("also-bought-rebuild", this::rebuild);
+    }
+
+    @Scheduled(fixedDelayString = "${app.recommendation.incremental-interval-ms:600000}",
+               initialDelayString = "${app.recommendation.incremental-interval-ms:600000}")
+    public void scheduledUpdate() {
+        jobRunner.submit("also-bought-update", this::update);
+    }
+
+    /**
+     * Dựng lại toàn bộ chỉ mục từ đầu
+     */
+    public void rebuild() {
+        synchronized (buildLock) {
+            long started = System.currentTimeMillis();
+            LocalDateTime scanStarted = LocalDateTime.now();
+            long maxOrderId = maxOrderId();
+            // Dựng vào map mới, chỉ thay map đang dùng khi quét xong (lỗi giữa chừng giữ nguyên chỉ mục cũ)
+            Map<Long, LocalDateTime> recent = new HashMap<>();
+            OrderAccumulator accumulator = new OrderAccumulator(new PairCountMap(1024), 1,
+                    recent, scanStarted.minus(commitOverlap));
+            scan(accumulator, maxOrderId);
+            pairCounts = accumulator.target;
+            minCount = accumulator.minCount;
+            // Đơn commit muộn (id <= maxOrderId nhưng chưa thấy lúc quét) được lần cộng dồn sau nhận qua created_at
+            watermark = scanStarted;
+            recentOrders = recent;
+            publish();
+            log.info("Also-bought index rebuilt from {} orders: {} pairs, {} products, {} ms",
+                    accumulator.orders, pairCounts.size(), neighbors.size(), System.currentTimeMillis() - started);
+        }
+    }
+
+    /**
+     * Cộng thêm các đơn tạo từ (watermark - commitOverlap), bỏ qua đơn đã đếm trong khoảng chồng lấn
+     */
+    public void update() {
+        synchronized (buildLock) {
+            if (pairCounts == null) {
+                rebuild();
+                return;
+            }
+            LocalDateTime scanStarted = LocalDateTime.now();
+            LocalDateTime from = watermark.minus(commitOverlap);
+            OrderAccumulator accumulator = new OrderAccumulator(pairCounts, minCount, recentOrders, from);
+            try {
+                jdbcTemplate.query(RECENT_ORDER_ITEMS_SQL, rs -> {
+                    accumulator.accept(rs.getLong("order_id"), rs.getLong("product_id"),
+                            rs.getTimestamp("created_at"));
+                }, Timestamp.valueOf(from));
+                accumulator.flush();
+                watermark = scanStarted;
+                LocalDateTime keepFrom = scanStarted.minus(commitOverlap);
+                recentOrders.values().removeIf(createdAt -> createdAt.isBefore(keepFrom));
+            } finally {
+                // Đơn đã cộng vào map đã nằm trong recentOrders nên lần thử lại không đếm lại
+                minCount = accumulator.minCount;
+            }
+            if (accumulator.orders > 0) {
+                publish();
+                log.debug("Also-bought index updated with {} new orders", accumulator.orders);
+            }
+        }
+    }
+
+    private long maxOrderId() {
+        Long max = jdbcTemplate.queryForObject(MAX_ORDER_ID_SQL, Long.class);
+        return max != null ? max : 0L;
+    }
+
+    /**
+     * Quét các đơn có id trong (accumulator.scannedUpTo, toId], mỗi lô {@code batchOrders} id
+     */
+    private void scan(OrderAccumulator accumulator, long toId) {
+        for (long from = accumulator.scannedUpTo; from < toId; from += batchOrders) {
+            long to = Math.min(from + batchOrders, toId);
+            jdbcTemplate.query(ORDER_ITEMS_SQL, rs -> {
+                accumulator.accept(rs.getLong("order_id"), rs.getLong("product_id"),
+                        rs.getTimestamp("created_at"));
+            }, from, to);
+            accumulator.flush();
+            accumulator.scannedUpTo = to;
+        }
+    }
+
+    private void addOrder(OrderAccumulator accumulator, long[] productIds, int count) {
+        PairCountMap pairs = accumulator.target;
+        Arrays.sort(productIds, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == 0 || productIds[i] != productIds[i - 1]) {
+                productIds[distinct++] = productIds[i];
+            }
+        }
+        for (int i = 0; i < distinct; i++) {
+            for (int j = i + 1; j < distinct; j++) {
+                pairs.add(PairCountMap.pairKey(productIds[i], productIds[j]), 1);
+            }
+        }
+        // Vượt giới hạn: nâng dần ngưỡng và bỏ các cặp hiếm cho tới khi còn dưới một nửa giới hạn
+        if (pairs.size() > maxPairs) {
+            while (pairs.size() > maxPairs / 2) {
+                accumulator.minCount++;
+                pairs.pruneBelow(accumulator.minCount);
+            }
+            log.info("Also-bought pairs pruned below {} co-purchases, {} pairs kept",
+                    accumulator.minCount, pairs.size());
+        }
+    }
+
+    /**
+     * Tính top-K cho mọi sản phẩm từ ma trận đếm và thay chỉ mục đang phục vụ
+     */
+    private void publish() {
+        Map<Long, TopNeighbors> builders = new HashMap<>();
+        pairCounts.forEach((key, count) -> {
+            long a = PairCountMap.first(key);
+            long b = PairCountMap.second(key);
+            builders.computeIfAbsent(a, id -> new TopNeighbors(topK)).offer(b, count);
+            builders.computeIfAbsent(b, id -> new TopNeighbors(topK)).offer(a, count);
+        });
+        Map<Long, long[]> index = new HashMap<>(builders.size() * 2);
+        builders.forEach((productId, top) -> index.put(productId, top.sortedIds()));
+        neighbors = Map.copyOf(index);
+    }
+
+    /**
+     * Gom các dòng order_items liên tiếp của cùng một đơn (kết quả đã ORDER BY order_id)
+     */
+    private class OrderAccumulator {
+        private final PairCountMap target;
+        private final long[] productIds = new long[MAX_ITEMS_PER_ORDER];
+        private final Map<Long, LocalDateTime> counted;
+        private final LocalDateTime rememberFrom;
+        private int minCount;
+        private long scannedUpTo;
+        private long currentOrderId = -1;
+        private LocalDateTime currentCreatedAt;
+        private boolean skipCurrent;
+        private int count;
+        private int orders;
+
+        // counted: đơn đã đếm thì bỏ qua; đơn mới đếm có created_at >= rememberFrom được ghi thêm vào
+        OrderAccumulator(PairCountMap target, int minCount, Map<Long, LocalDateTime> counted, LocalDateTime rememberFrom) {
+            this.target = target;
+            this.minCount = minCount;
+            this.counted = counted;
+            this.rememberFrom = rememberFrom;
+        }
+
+        void accept(long orderId, long productId, Timestamp createdAt) {
+            if (orderId != currentOrderId) {
+                flush();
+                currentOrderId = orderId;
+                currentCreatedAt = createdAt != null ? createdAt.toLocalDateTime() : null;
+                skipCurrent = counted.containsKey(orderId);
+            }
+            if (!skipCurrent && count < productIds.length && productId > 0 && productId <= Integer.MAX_VALUE) {
+                productIds[count++] = productId;
+            }
+        }
+
+        void flush() {
+            if (currentOrderId >= 0 && !skipCurrent) {
+                orders++;
+                if (count > 1) {
+                    addOrder(this, productIds, count);
+                }
+                if (currentCreatedAt != null && !currentCreatedAt.isBefore(rememberFrom)) {
+                    counted.put(currentOrderId, currentCreatedAt);
+                }
+            }
+            currentOrderId = -1;
+            skipCurrent = false;
+            count = 0;
+        }
+    }
+
+    /**
+     * Giữ K láng giềng có số lần mua chung lớn nhất (K nhỏ nên duyệt tuyến tính là đủ)
+     */
+    private static final class TopNeighbors {
+        private final long[] ids;
+        private final int[] counts;
+        private int size;
+
+        TopNeighbors(int k) {
+            ids = new long[k];
+            counts = new int[k];
+        }
+
+        void offer(long id, int count) {
+            if (size < ids.length) {
+                ids[size] = id;
+                counts[size++] = count;
+                return;
+            }
+            int min = 0;
+            for (int i = 1; i < size; i++) {
+                if (counts[i] < counts[min]) {
+                    min = i;
+                }
+            }
+            if (count > counts[min]) {
+                ids[min] = id;
+                counts[min] = count;
+            }
+        }
+
+        long[] sortedIds() {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (x, y) -> counts[y] != counts[x]
+                    ? Integer.compare(counts[y], counts[x])
+                    : Long.compare(ids[x], ids[y]));
+            long[] result = new long[size];
+            for (int i = 0; i < size; i++) {
+                result[i] = ids[order[i]];
+            }
+            return result;
+        }
+    }
+}
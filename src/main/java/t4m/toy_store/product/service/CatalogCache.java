@@ -0,0 +1,119 @@
+package t4m.toy_store.product.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import t4m.toy_store.config.AfterCommit;
+import t4m.toy_store.product.dto.CategoryResponse;
+import t4m.toy_store.product.dto.ProductSnapshot;
+import t4m.toy_store.product.repository.CategoryRepository;
+import t4m.toy_store.product.repository.ProductRepository;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Cache đọc xuyên (read-through) cho catalog: id -> ProductSnapshot và danh sách danh mục
+ * - Bỏ theo id khi admin sửa/xóa sản phẩm, khi checkout trừ kho / hủy đơn trả kho, khi điểm đánh giá đổi
+ *   (sau commit, để không nạp lại dữ liệu cũ của transaction chưa xong)
+ * - TTL chặn độ trễ khi sản phẩm đổi ở node khác hoặc sửa tay trong DB
+ * - Danh mục chỉ được ghi lúc seed dữ liệu (không có API sửa) nên chỉ dựa vào TTL
+ * - Hit/miss xuất qua metrics cache.gets{cache=catalog.products|catalog.categories}
+ * - Mỗi lần bỏ phát CatalogChangedEvent cho các bản dựng sẵn phía trên (trang chủ...)
+ */
+@Component
+public class CatalogCache {
+
+    private static final String CATEGORIES_KEY = "all";
+
+    private final ProductRepository productRepository;
+    private final CategoryRepository categoryRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Cache<Long, ProductSnapshot> products;
+    private final Cache<String, List<CategoryResponse>> categories;
+
+    public CatalogCache(ProductRepository productRepository,
+                        CategoryRepository categoryRepository,
+                        ApplicationEventPublisher eventPublisher,
+                        MeterRegistry meterRegistry,
+                        @Value("${app.catalog.product-ttl-seconds:60}") long productTtlSeconds,
+                        @Value("${app.catalog.max-products:10000}") long maxProducts,
+                        @Value("${app.catalog.category-ttl-seconds:600}") long categoryTtlSeconds) {
+        this.productRepository = productRepository;
+        this.categoryRepository = categoryRepository;
+        this.eventPublisher = eventPublisher;
+        this.products = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(Math.max(1, productTtlSeconds)))
+                .maximumSize(Math.max(1, maxProducts))
+                .recordStats()
+                .build();
+        this.categories = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(Math.max(1, categoryTtlSeconds)))
+                .maximumSize(1)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, products, "catalog.products");
+        CaffeineCacheMetrics.monitor(meterRegistry, categories, "catalog.categories");
+    }
+
+    /**
+     * Sản phẩm theo id; id không tồn tại thì không cache (lần sau vẫn hỏi DB)
+     */
+    public Optional<ProductSnapshot> getProduct(Long id) {
+        if (id == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(products.get(id, key ->
+                productRepository.findById(key).map(ProductSnapshot::fromEntity).orElse(null)));
+    }
+
+    public List<CategoryResponse> getCategories() {
+        return categories.get(CATEGORIES_KEY, key -> categoryRepository.findAll().stream()
+                .map(CategoryResponse::fromEntity)
+                .toList());
+    }
+
+    /**
+     * Tồn kho / điểm đánh giá của sản phẩm đổi
+     */
+    public void evictProduct(Long id) {
+        if (id != null) {
+            evictProducts(List.of(id));
+        }
+    }
+
+    public void evictProducts(Collection<Long> ids) {
+        if (!ids.isEmpty()) {
+            List<Long> copy = List.copyOf(ids);
+            AfterCommit.run(() -> {
+                products.invalidateAll(copy);
+                eventPublisher.publishEvent(new CatalogChangedEvent(copy, false));
+            });
+        }
+    }
+
+    /**
+     * Admin tạo/sửa/xóa sản phẩm
+     */
+    public void productEdited(Long id) {
+        if (id != null) {
+            AfterCommit.run(() -> {
+                products.invalidate(id);
+                eventPublisher.publishEvent(new CatalogChangedEvent(List.of(id), true));
+            });
+        }
+    }
+
+    public void evictAllProducts() {
+        AfterCommit.run(() -> {
+            products.invalidateAll();
+            eventPublisher.publishEvent(new CatalogChangedEvent(null, false));
+        });
+    }
+}
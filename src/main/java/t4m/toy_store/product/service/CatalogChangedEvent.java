@@ -0,0 +1,16 @@
+package t4m.toy_store.product.service;
+
+import java.util.Collection;
+
+/**
+ * Phát ra (sau commit) mỗi khi CatalogCache bỏ dữ liệu
+ *
+ * @param productIds sản phẩm bị ảnh hưởng, null = toàn bộ sản phẩm
+ * @param edited     admin tạo/sửa/xóa (có thể đổi featured, danh mục...), không chỉ tồn kho hay điểm đánh giá
+ */
+public record CatalogChangedEvent(Collection<Long> productIds, boolean edited) {
+
+    public boolean affects(Collection<Long> ids) {
+        return productIds == null || productIds.stream().anyMatch(ids::contains);
+    }
+}
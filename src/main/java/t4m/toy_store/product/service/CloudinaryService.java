@@ -2,22 +2,30 @@ package t4m.toy_store.product.service;
 
 import com.cloudinary.Cloudinary;
 import com.cloudinary.utils.ObjectUtils;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
+import t4m.toy_store.config.AsyncConfig;
 
 import java.io.IOException;
 import java.util.Map;
 import java.util.UUID;
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class CloudinaryService {
 
     private final Cloudinary cloudinary;
+    private final AsyncTaskExecutor imageExecutor;
+
+    public CloudinaryService(Cloudinary cloudinary,
+                             @Qualifier(AsyncConfig.IMAGE_EXECUTOR) AsyncTaskExecutor imageExecutor) {
+        this.cloudinary = cloudinary;
+        this.imageExecutor = imageExecutor;
+    }
 
     @Value("${cloudinary.folder:toy-store-products}")
     private String folder;
@@ -118,9 +126,9 @@ public class CloudinaryService {
         // Upload new image first
         Map<String, String> uploadResult = uploadImage(newFile);
 
-        // Delete old image if exists
+        // Delete old image if exists (chạy nền, không bắt request chờ Cloudinary)
         if (oldPublicId != null && !oldPublicId.isEmpty()) {
-            deleteImage(oldPublicId);
+            imageExecutor.execute(() -> deleteImage(oldPublicId));
         }
 
         return uploadResult;
@@ -0,0 +1,34 @@
+package t4m.toy_store.product.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import t4m.toy_store.order.event.OrderEvent;
+import t4m.toy_store.order.event.OrderEventListener;
+import t4m.toy_store.order.event.OrderEventType;
+
+/**
+ * Cộng điểm phổ biến cho các sản phẩm của đơn vừa đặt (qua outbox, mỗi đơn đúng một lần)
+ */
+@Component
+@RequiredArgsConstructor
+public class OrderPopularityRecorder implements OrderEventListener {
+
+    private final PopularityService popularityService;
+
+    @Override
+    public boolean supports(OrderEventType type) {
+        return type == OrderEventType.CREATED;
+    }
+
+    @Override
+    public boolean deduplicate() {
+        return true;
+    }
+
+    @Override
+    public void onOrderEvent(OrderEvent event) {
+        for (OrderEvent.Line line : event.lines()) {
+            popularityService.recordOrderItem(line.productId(), line.quantity());
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package t4m.toy_store.product.service;
+
+/**
+ * Map long -> int dùng open addressing trên hai mảng nguyên thủy (không boxing)
+ * Khóa là cặp product id đã đóng gói (xem {@link #pairKey}); 0 dùng làm ô trống
+ */
+final class PairCountMap {
+
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+    private int mask;
+
+    PairCountMap(int expectedSize) {
+        int capacity = capacityFor(expectedSize);
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Cặp không thứ tự (a, b) đóng gói thành một long: id nhỏ ở 32 bit cao, id lớn ở 32 bit thấp
+     */
+    static long pairKey(long a, long b) {
+        return a < b ? (a << 32) | b : (b << 32) | a;
+    }
+
+    static long first(long key) {
+        return key >>> 32;
+    }
+
+    static long second(long key) {
+        return key & 0xFFFFFFFFL;
+    }
+
+    void add(long key, int delta) {
+        int index = indexOf(key);
+        if (keys[index] == key) {
+            values[index] += delta;
+            return;
+        }
+        keys[index] = key;
+        values[index] = delta;
+        if (++size > keys.length * LOAD_FACTOR) {
+            rehash(keys.length << 1, 0);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Bỏ các cặp có số lần xuất hiện nhỏ hơn {@code minCount}, trả về số cặp còn lại
+     * Bảng được dựng lại theo số cặp còn lại nên bộ nhớ co lại sau đợt tăng đột biến
+     */
+    int pruneBelow(int minCount) {
+        int remaining = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0 && values[i] >= minCount) {
+                remaining++;
+            }
+        }
+        rehash(capacityFor(remaining), minCount);
+        return size;
+    }
+
+    void forEach(PairConsumer consumer) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                consumer.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    private int indexOf(long key) {
+        int index = mix(key) & mask;
+        while (keys[index] != 0 && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private void rehash(int capacity, int minCount) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0 && oldValues[i] >= minCount) {
+                int index = indexOf(oldKeys[i]);
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+                size++;
+            }
+        }
+    }
+
+    private static int capacityFor(int expectedSize) {
+        return Integer.highestOneBit(Math.max(16, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    @FunctionalInterface
+    interface PairConsumer {
+        void accept(long key, int count);
+    }
+}
@@ -0,0 +1,268 @@
+package t4m.toy_store.product.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import t4m.toy_store.config.AfterCommit;
+import t4m.toy_store.config.MaintenanceJobRunner;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Điểm phổ biến của sản phẩm
+ * Yêu thích, thêm vào giỏ, đặt hàng và đánh giá tốt cộng điểm vào mảng double[] đánh chỉ số theo product id.
+ * Điểm suy giảm theo hàm mũ (bán rã {@code app.popularity.half-life-hours}) bằng forward decay:
+ * sự kiện mới được nhân hệ số 2^(tuổi mốc / bán rã) nên ghi nhận chỉ là một phép cộng;
+ * job snapshot định kỳ đưa mốc về hiện tại, ghi các điểm đã đổi xuống bảng product_popularity
+ * và tính sẵn danh sách trending. Request chỉ đọc kết quả đã tính sẵn
+ */
+@Service
+@Slf4j
+public class PopularityService {
+
+    public static final double FAVORITE_WEIGHT = 3.0;
+    public static final double CART_WEIGHT = 1.0;
+    public static final double ORDER_UNIT_WEIGHT = 5.0;
+    public static final double GOOD_RATING_WEIGHT = 2.0;
+
+    public static final int TRENDING_SIZE = 50;
+    // Chặn id bất thường làm phình mảng
+    private static final int MAX_PRODUCT_ID = 5_000_000;
+    // Điểm nhỏ hơn ngưỡng coi như bằng 0 (không còn ảnh hưởng thứ hạng)
+    private static final double MIN_SCORE = 0.01;
+    // Thay đổi nhỏ hơn ngưỡng không cần ghi xuống DB
+    private static final double PERSIST_TOLERANCE = 0.001;
+    private static final int SEED_DAYS = 30;
+
+    private static final String LOAD_SQL = "SELECT product_id, score, updated_at FROM product_popularity";
+
+    private static final String UPSERT_SQL = """
+            INSERT INTO product_popularity (product_id, score, updated_at) VALUES (?, ?, ?)
+            ON DUPLICATE KEY UPDATE score = VALUES(score), updated_at = VALUES(updated_at)
+            """;
+
+    // Bảng snapshot trống (lần chạy đầu): lấy số lượng bán theo ngày của 30 ngày gần nhất làm điểm ban đầu
+    private static final String SEED_SQL = """
+            SELECT oi.product_id, DATE(o.created_at) AS day, SUM(oi.quantity) AS qty
+            FROM order_items oi
+            JOIN orders o ON o.id = oi.order_id
+            WHERE o.created_at >= ? AND o.status NOT IN ('CANCELLED', 'REFUNDED')
+            GROUP BY oi.product_id, DATE(o.created_at)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MaintenanceJobRunner jobRunner;
+    private final double halfLifeMillis;
+
+    private final Object lock = new Object();
+    // scores[id] là điểm quy về thời điểm landmarkMillis
+    private double[] scores = new double[1024];
+    private double[] persisted = new double[1024];
+    private long landmarkMillis = System.currentTimeMillis();
+
+    private volatile List<Long> trendingIds = List.of();
+
+    public PopularityService(JdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager,
+                             MaintenanceJobRunner jobRunner,
+                             @Value("${app.popularity.half-life-hours:72}") double halfLifeHours) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.jobRunner = jobRunner;
+        this.halfLifeMillis = Math.max(1.0, halfLifeHours) * 3_600_000d;
+    }
+
+    public void recordFavorite(Long productId) {
+        record(productId, FAVORITE_WEIGHT);
+    }
+
+    public void recordCartAdd(Long productId) {
+        record(productId, CART_WEIGHT);
+    }
+
+    public void recordOrderItem(Long productId, int quantity) {
+        record(productId, ORDER_UNIT_WEIGHT * Math.max(1, quantity));
+    }
+
+    public void recordRating(Long productId, int stars) {
+        // Chỉ đánh giá 4-5 sao làm sản phẩm "hot" hơn
+        if (stars >= 4) {
+            record(productId, GOOD_RATING_WEIGHT);
+        }
+    }
+
+    /**
+     * Top sản phẩm theo điểm hiện tại (đã tính sẵn ở lần snapshot gần nhất)
+     */
+    public List<Long> getTrendingProductIds(int limit) {
+        List<Long> ids = trendingIds;
+        return ids.subList(0, Math.max(0, Math.min(limit, ids.size())));
+    }
+
+    public double getScore(Long productId) {
+        synchronized (lock) {
+            int index = productId.intValue();
+            return index < scores.length ? scores[index] * decayFactor(System.currentTimeMillis()) : 0.0;
+        }
+    }
+
+    /**
+     * Ghi nhận sự kiện sau khi transaction commit (rollback thì không cộng điểm)
+     */
+    private void record(Long productId, double weight) {
+        if (productId == null || productId <= 0 || productId > MAX_PRODUCT_ID) {
+            return;
+        }
+        int index = productId.intValue();
+        Runnable action = () -> {
+            synchronized (lock) {
+                ensureCapacity(index);
+                // Sự kiện ở thời điểm now có trọng số tương đương weight * 2^((now - landmark) / halfLife) tại mốc
+                scores[index] += weight / decayFactor(System.currentTimeMillis());
+            }
+        };
+        AfterCommit.run(action);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            int loaded = load();
+            if (loaded == 0) {
+                loaded = seedFromOrders();
+                log.info("Popularity seeded from last {} days of orders for {} products", SEED_DAYS, loaded);
+            } else {
+                log.info("Popularity loaded for {} products", loaded);
+            }
+            snapshot();
+        } catch (Exception e) {
+            log.error("Popularity warm-up failed: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.popularity.snapshot-interval-ms:300000}",
+               initialDelayString = "${app.popularity.snapshot-interval-ms:300000}")
+    public void scheduledSnapshot() {
+        jobRunner.submit("popularity-snapshot", this::snapshot);
+    }
+
+    /**
+     * Đưa mốc về hiện tại, ghi các điểm đã đổi xuống DB và tính lại top trending
+     */
+    public void snapshot() {
+        long now = System.currentTimeMillis();
+        List<Object[]> changed = new ArrayList<>();
+        List<Long> top;
+        Timestamp updatedAt = new Timestamp(now);
+
+        synchronized (lock) {
+            double factor = decayFactor(now);
+            // Min-heap theo điểm, giữ TRENDING_SIZE sản phẩm cao nhất
+            PriorityQueue<Integer> heap = new PriorityQueue<>(Comparator.comparingDouble(id -> scores[id]));
+            for (int id = 1; id < scores.length; id++) {
+                double score = scores[id] * factor;
+                if (score < MIN_SCORE) {
+                    score = 0.0;
+                }
+                scores[id] = score;
+                if (Math.abs(score - persisted[id]) > PERSIST_TOLERANCE) {
+                    changed.add(new Object[]{(long) id, score, updatedAt});
+                    persisted[id] = score;
+                }
+                if (score > 0.0) {
+                    heap.offer(id);
+                    if (heap.size() > TRENDING_SIZE) {
+                        heap.poll();
+                    }
+                }
+            }
+            landmarkMillis = now;
+
+            Long[] ordered = new Long[heap.size()];
+            for (int i = ordered.length - 1; i >= 0; i--) {
+                ordered[i] = heap.poll().longValue();
+            }
+            top = List.of(ordered);
+        }
+
+        trendingIds = top;
+        if (!changed.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(UPSERT_SQL, changed));
+            log.debug("Popularity snapshot wrote {} products", changed.size());
+        }
+    }
+
+    private int load() {
+        long now = System.currentTimeMillis();
+        int[] loaded = {0};
+        synchronized (lock) {
+            landmarkMillis = now;
+            jdbcTemplate.query(LOAD_SQL, rs -> {
+                long id = rs.getLong("product_id");
+                if (id <= 0 || id > MAX_PRODUCT_ID) {
+                    return;
+                }
+                double score = rs.getDouble("score");
+                long ageMillis = now - rs.getTimestamp("updated_at").getTime();
+                ensureCapacity((int) id);
+                scores[(int) id] = score * Math.pow(0.5, Math.max(0, ageMillis) / halfLifeMillis);
+                persisted[(int) id] = score;
+                loaded[0]++;
+            });
+        }
+        return loaded[0];
+    }
+
+    private int seedFromOrders() {
+        LocalDateTime now = LocalDateTime.now();
+        int[] seeded = {0};
+        synchronized (lock) {
+            landmarkMillis = System.currentTimeMillis();
+            jdbcTemplate.query(SEED_SQL, rs -> {
+                long id = rs.getLong("product_id");
+                if (id <= 0 || id > MAX_PRODUCT_ID) {
+                    return;
+                }
+                LocalDateTime day = rs.getDate("day").toLocalDate().atStartOfDay();
+                double ageMillis = Math.max(0, Duration.between(day, now).toMillis());
+                ensureCapacity((int) id);
+                if (scores[(int) id] == 0.0) {
+                    seeded[0]++;
+                }
+                scores[(int) id] += ORDER_UNIT_WEIGHT * rs.getLong("qty") * Math.pow(0.5, ageMillis / halfLifeMillis);
+            }, Timestamp.valueOf(now.minusDays(SEED_DAYS)));
+        }
+        return seeded[0];
+    }
+
+    // Gọi khi đang giữ lock
+    private double decayFactor(long nowMillis) {
+        return Math.pow(0.5, (nowMillis - landmarkMillis) / halfLifeMillis);
+    }
+
+    // Gọi khi đang giữ lock
+    private void ensureCapacity(int index) {
+        if (index < scores.length) {
+            return;
+        }
+        int capacity = Math.min(MAX_PRODUCT_ID + 1, Math.max(index + 1, scores.length * 2));
+        scores = Arrays.copyOf(scores, capacity);
+        persisted = Arrays.copyOf(persisted, capacity);
+    }
+}
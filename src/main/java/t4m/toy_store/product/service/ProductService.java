@@ -1,5 +1,7 @@
 package t4m.toy_store.product.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
@@ -9,6 +11,8 @@ import org.springframework.stereotype.Service;
 import t4m.toy_store.admin.dto.ProductCreateRequest;
 import t4m.toy_store.admin.dto.ProductStockStats;
 import t4m.toy_store.admin.dto.ProductUpdateRequest;
+import t4m.toy_store.product.dto.CategoryResponse;
+import t4m.toy_store.product.dto.ProductSnapshot;
 import t4m.toy_store.product.entity.Category;
 import t4m.toy_store.product.entity.Product;
 import t4m.toy_store.product.repository.CategoryRepository;
@@ -17,21 +21,42 @@ import t4m.toy_store.product.repository.ProductRepository;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class ProductService {
     private final ProductRepository productRepository;
     private final CategoryRepository categoryRepository;
+    private final PopularityService popularityService;
+    private final AlsoBoughtService alsoBoughtService;
+    private final CatalogCache catalogCache;
+
+    // Khớp với chu kỳ snapshot: danh sách trending chỉ đổi sau mỗi lần snapshot
+    private final Cache<Integer, List<Product>> trendingCache = Caffeine.newBuilder()
+        .expireAfterWrite(1, TimeUnit.MINUTES)
+        .maximumSize(PopularityService.TRENDING_SIZE)
+        .build();
 
     public Page<Product> getAllProducts(Pageable pageable) {
         return productRepository.findAll(pageable);
     }
 
+    /**
+     * Entity sản phẩm (cho admin sửa); trang chi tiết dùng getProductSnapshot
+     */
     public Product getProductById(Long id) {
         return productRepository.findById(id).orElse(null);
     }
 
+    public ProductSnapshot getProductSnapshot(Long id) {
+        return catalogCache.getProduct(id).orElse(null);
+    }
+
     public Page<Product> getProductsByCategory(Long categoryId, Pageable pageable) {
         return productRepository.findByCategoryId(categoryId, pageable);
     }
@@ -40,6 +65,33 @@ public class ProductService {
         return productRepository.findByFeaturedTrue();
     }
 
+    /**
+     * Sản phẩm đang được quan tâm nhiều nhất, theo thứ tự điểm phổ biến
+     * Danh sách id tính sẵn ở PopularityService, ở đây chỉ nạp sản phẩm và cache ngắn hạn
+     */
+    public List<Product> getTrendingProducts(int limit) {
+        int size = Math.max(1, Math.min(limit, PopularityService.TRENDING_SIZE));
+        return trendingCache.get(size, key -> {
+            List<Long> ids = popularityService.getTrendingProductIds(key);
+            Map<Long, Product> byId = productRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+            return ids.stream().map(byId::get).filter(Objects::nonNull).toList();
+        });
+    }
+
+    /**
+     * Sản phẩm thường được mua cùng sản phẩm đang xem (chỉ mục AlsoBoughtService)
+     */
+    public List<Product> getAlsoBoughtProducts(Long productId, int limit) {
+        List<Long> ids = alsoBoughtService.getAlsoBought(productId, Math.max(1, Math.min(limit, 20)));
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Product> byId = productRepository.findAllById(ids).stream()
+            .collect(Collectors.toMap(Product::getId, Function.identity()));
+        return ids.stream().map(byId::get).filter(Objects::nonNull).toList();
+    }
+
     public Page<Product> searchProducts(String keyword, Pageable pageable) {
         return productRepository.findByNameContainingIgnoreCase(keyword, pageable);
     }
@@ -57,6 +109,8 @@ public class ProductService {
                     return productRepository.findByFiltersPriceDesc(keyword, categoryId, minPrice, maxPrice, pageableWithoutSort);
                 case "name":
                     return productRepository.findByFiltersNameAsc(keyword, categoryId, minPrice, maxPrice, pageableWithoutSort);
+                case "popular":
+                    return productRepository.findByFiltersPopular(keyword, categoryId, minPrice, maxPrice, pageableWithoutSort);
                 case "newest":
                     return productRepository.findByFiltersNewest(keyword, categoryId, minPrice, maxPrice, pageableWithoutSort);
                 default:
@@ -68,8 +122,8 @@ public class ProductService {
         return productRepository.findByFiltersNewest(keyword, categoryId, minPrice, maxPrice, pageableWithoutSort);
     }
 
-    public List<Category> getAllCategories() {
-        return categoryRepository.findAll();
+    public List<CategoryResponse> getAllCategories() {
+        return catalogCache.getCategories();
     }
 
     public Category getCategoryById(Long id) {
@@ -95,7 +149,9 @@ public class ProductService {
             .featured(request.getFeatured() != null ? request.getFeatured() : false)
             .build();
 
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        catalogCache.productEdited(saved.getId());
+        return saved;
     }
 
     public Product updateProduct(Long id, ProductUpdateRequest request) {
@@ -131,7 +187,9 @@ public class ProductService {
             product.setFeatured(request.getFeatured());
         }
 
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        catalogCache.productEdited(id);
+        return saved;
     }
 
     public void deleteProduct(Long id) {
@@ -139,6 +197,7 @@ public class ProductService {
             throw new RuntimeException("Product not found");
         }
         productRepository.deleteById(id);
+        catalogCache.productEdited(id);
     }
 
     public ProductStockStats getStockStats() {
@@ -199,6 +258,8 @@ public class ProductService {
     }
 
     public Product saveProduct(Product product) {
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        catalogCache.productEdited(saved.getId());
+        return saved;
     }
 }
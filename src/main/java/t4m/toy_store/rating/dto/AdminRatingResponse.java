@@ -4,6 +4,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import t4m.toy_store.rating.entity.Rating;
 
 import java.time.LocalDateTime;
 
@@ -22,4 +23,19 @@ public class AdminRatingResponse {
     private Integer stars;
     private LocalDateTime createdAt;
     private Long orderId;
+
+    public static AdminRatingResponse fromEntity(Rating rating) {
+        return AdminRatingResponse.builder()
+            .id(rating.getId())
+            .productId(rating.getProduct().getId())
+            .productName(rating.getProduct().getName())
+            .productImage(rating.getProduct().getImageUrl())
+            .userId(rating.getUser().getId())
+            .userName(rating.getUser().getName())
+            .userEmail(rating.getUser().getEmail())
+            .stars(rating.getStars())
+            .createdAt(rating.getCreatedAt())
+            .orderId(rating.getOrder().getId())
+            .build();
+    }
 }
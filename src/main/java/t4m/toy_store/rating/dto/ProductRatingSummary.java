@@ -13,4 +13,5 @@ public class ProductRatingSummary {
     private Long productId;
     private Double averageRating;
     private Integer ratingCount;
+    private int[] starCounts; // index 0 = 1 sao ... index 4 = 5 sao
 }
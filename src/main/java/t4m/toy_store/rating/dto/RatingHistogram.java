@@ -0,0 +1,37 @@
+package t4m.toy_store.rating.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Phân bố số lượt đánh giá theo mức sao
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RatingHistogram {
+    private long totalReviews;
+    private double averageRating;
+    private long[] starCounts; // index 0 = 1 sao ... index 4 = 5 sao
+
+    public static RatingHistogram of(long[] starCounts) {
+        long total = 0;
+        long sum = 0;
+        for (int i = 0; i < starCounts.length; i++) {
+            total += starCounts[i];
+            sum += (i + 1) * starCounts[i];
+        }
+        return RatingHistogram.builder()
+                .totalReviews(total)
+                .averageRating(total > 0 ? (double) sum / total : 0.0)
+                .starCounts(starCounts)
+                .build();
+    }
+
+    public long count(int stars) {
+        return stars >= 1 && stars <= starCounts.length ? starCounts[stars - 1] : 0;
+    }
+}
@@ -0,0 +1,17 @@
+package t4m.toy_store.rating.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RatingSearchPage {
+    private List<AdminRatingResponse> content;
+    private String nextCursor;       // Truyền vào ?cursor= để lấy trang tiếp theo, null nếu hết
+    private boolean hasMore;
+    private long approximateTotal;   // Tổng số đánh giá khớp bộ lọc, có thể trễ vài chục giây
+}
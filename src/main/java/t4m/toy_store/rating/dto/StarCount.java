@@ -0,0 +1,9 @@
+package t4m.toy_store.rating.dto;
+
+/**
+ * Projection cho câu GROUP BY stars
+ */
+public interface StarCount {
+    Integer getStars();
+    long getCount();
+}
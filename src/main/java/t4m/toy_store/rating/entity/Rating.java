@@ -11,6 +11,11 @@ import java.time.LocalDateTime;
 @Entity
 @Table(name = "ratings", uniqueConstraints = {
     @UniqueConstraint(columnNames = {"order_id", "product_id"})
+}, indexes = {
+    @Index(name = "idx_rating_created_stars", columnList = "created_at, stars"),
+    @Index(name = "idx_rating_product_created", columnList = "product_id, created_at"),
+    @Index(name = "idx_rating_user_created", columnList = "user_id, created_at"),
+    @Index(name = "idx_rating_stars_created", columnList = "stars, created_at")
 })
 @Getter
 @Setter
@@ -0,0 +1,105 @@
+package t4m.toy_store.rating.repository;
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.springframework.data.jpa.domain.Specification;
+import t4m.toy_store.auth.entity.User;
+import t4m.toy_store.rating.entity.Rating;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Locale;
+
+/**
+ * Điều kiện lọc đánh giá cho trang quản trị
+ * Chỉ so sánh trên cột của bảng ratings (product_id, user_id, stars, created_at) nên dùng được index;
+ * tên sản phẩm được đổi sang tập id trước khi tới đây, tên người dùng lọc bằng subquery trên bảng user
+ */
+public final class RatingSpecifications {
+
+    private RatingSpecifications() {
+    }
+
+    public static Specification<Rating> productIdIn(Collection<Long> productIds) {
+        return (root, query, cb) -> productIds == null ? null : root.get("product").get("id").in(productIds);
+    }
+
+    /**
+     * user_id IN (SELECT id FROM user WHERE name LIKE %name%): DB tự lọc, không giới hạn số người dùng khớp
+     */
+    public static Specification<Rating> userNameContains(String name) {
+        return (root, query, cb) -> {
+            if (name == null) {
+                return null;
+            }
+            Subquery<Long> userIds = query.subquery(Long.class);
+            Root<User> user = userIds.from(User.class);
+            userIds.select(user.get("id"))
+                    .where(cb.like(cb.lower(user.get("name")), "%" + name.toLowerCase(Locale.ROOT) + "%"));
+            return root.get("user").get("id").in(userIds);
+        };
+    }
+
+    public static Specification<Rating> starsBetween(Integer minStars, Integer maxStars) {
+        return (root, query, cb) -> {
+            if (minStars != null && maxStars != null) {
+                return cb.between(root.get("stars"), minStars, maxStars);
+            }
+            if (minStars != null) {
+                return cb.greaterThanOrEqualTo(root.get("stars"), minStars);
+            }
+            if (maxStars != null) {
+                return cb.lessThanOrEqualTo(root.get("stars"), maxStars);
+            }
+            return null;
+        };
+    }
+
+    public static Specification<Rating> createdBetween(LocalDateTime startDate, LocalDateTime endDate) {
+        return (root, query, cb) -> {
+            if (startDate != null && endDate != null) {
+                return cb.between(root.get("createdAt"), startDate, endDate);
+            }
+            if (startDate != null) {
+                return cb.greaterThanOrEqualTo(root.get("createdAt"), startDate);
+            }
+            if (endDate != null) {
+                return cb.lessThanOrEqualTo(root.get("createdAt"), endDate);
+            }
+            return null;
+        };
+    }
+
+    /**
+     * Điều kiện keyset: các dòng nằm sau (createdAt, id) theo thứ tự sắp xếp
+     */
+    public static Specification<Rating> afterCreatedAt(LocalDateTime createdAt, Long id, boolean descending) {
+        return (root, query, cb) -> after(cb, root.get("createdAt"), createdAt, root.get("id"), id, descending);
+    }
+
+    /**
+     * Điều kiện keyset: các dòng nằm sau (stars, createdAt, id) theo thứ tự sắp xếp
+     */
+    public static Specification<Rating> afterStars(Integer stars, LocalDateTime createdAt, Long id, boolean descending) {
+        return (root, query, cb) -> {
+            Path<Integer> starsPath = root.get("stars");
+            Predicate beyond = descending ? cb.lessThan(starsPath, stars) : cb.greaterThan(starsPath, stars);
+            Predicate tie = cb.and(cb.equal(starsPath, stars),
+                    after(cb, root.get("createdAt"), createdAt, root.get("id"), id, descending));
+            return cb.or(beyond, tie);
+        };
+    }
+
+    private static Predicate after(CriteriaBuilder cb, Path<LocalDateTime> createdAtPath, LocalDateTime createdAt,
+                                   Path<Long> idPath, Long id, boolean descending) {
+        if (descending) {
+            return cb.or(cb.lessThan(createdAtPath, createdAt),
+                    cb.and(cb.equal(createdAtPath, createdAt), cb.lessThan(idPath, id)));
+        }
+        return cb.or(cb.greaterThan(createdAtPath, createdAt),
+                cb.and(cb.equal(createdAtPath, createdAt), cb.greaterThan(idPath, id)));
+    }
+}
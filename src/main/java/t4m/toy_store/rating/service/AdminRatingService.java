@@ -2,20 +2,18 @@ package t4m.toy_store.rating.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import t4m.toy_store.rating.dto.AdminRatingResponse;
 import t4m.toy_store.rating.dto.AdminRatingStatsResponse;
+import t4m.toy_store.rating.dto.RatingHistogram;
+import t4m.toy_store.rating.dto.RatingSearchPage;
 import t4m.toy_store.rating.entity.Rating;
 import t4m.toy_store.rating.repository.RatingRepository;
 
 import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
@@ -23,52 +21,62 @@ import java.util.stream.Collectors;
 public class AdminRatingService {
     
     private final RatingRepository ratingRepository;
-    private final RatingService ratingService;
+    private final RatingAggregateService ratingAggregateService;
+    private final RatingStatisticsService ratingStatisticsService;
+    private final RatingSearchService ratingSearchService;
     
     /**
-     * Get all ratings with filters and pagination
+     * Get ratings with filters, paginated by cursor
      */
-    public Page<AdminRatingResponse> getAllRatings(
+    public RatingSearchPage searchRatings(
             String userName,
             String productName,
             Integer minStars,
             Integer maxStars,
             LocalDateTime startDate,
             LocalDateTime endDate,
-            int page,
+            String cursor,
             int size,
             String sortBy,
             String sortDirection
     ) {
-        Sort sort = Sort.by(Sort.Direction.fromString(sortDirection), sortBy);
-        Pageable pageable = PageRequest.of(page, size, sort);
-        
-        Page<Rating> ratings = ratingRepository.findAllWithFilters(
-            userName, productName, minStars, maxStars, startDate, endDate, pageable
-        );
-        
-        return ratings.map(this::toAdminResponse);
+        return ratingSearchService.search(userName, productName, minStars, maxStars, startDate, endDate,
+            sortBy, sortDirection, cursor, size);
     }
     
     /**
      * Get rating statistics for admin dashboard
+     * Một câu GROUP BY stars, kết quả được cache tới khi có đánh giá thêm/xóa
      */
     public AdminRatingStatsResponse getStatistics() {
-        long total = ratingRepository.count();
-        Double avgRating = ratingRepository.findAverageRatingForAll();
+        RatingHistogram histogram = ratingStatisticsService.getOverall();
         
         return AdminRatingStatsResponse.builder()
-            .totalReviews(total)
-            .averageRating(avgRating != null ? avgRating : 0.0)
+            .totalReviews(histogram.getTotalReviews())
+            .averageRating(histogram.getAverageRating())
             .pendingReviews(0L) // For future use
-            .fiveStars(ratingRepository.countByStars(5))
-            .fourStars(ratingRepository.countByStars(4))
-            .threeStars(ratingRepository.countByStars(3))
-            .twoStars(ratingRepository.countByStars(2))
-            .oneStar(ratingRepository.countByStars(1))
+            .fiveStars(histogram.count(5))
+            .fourStars(histogram.count(4))
+            .threeStars(histogram.count(3))
+            .twoStars(histogram.count(2))
+            .oneStar(histogram.count(1))
             .build();
     }
     
+    /**
+     * Phân bố sao của một sản phẩm
+     */
+    public RatingHistogram getProductStatistics(Long productId) {
+        return ratingStatisticsService.getForProduct(productId);
+    }
+    
+    /**
+     * Phân bố sao của các đánh giá trong N ngày gần nhất
+     */
+    public RatingHistogram getWindowStatistics(int days) {
+        return ratingStatisticsService.getForLastDays(days);
+    }
+    
     /**
      * Delete a single rating
      */
@@ -81,8 +89,8 @@ public class AdminRatingService {
         
         ratingRepository.delete(rating);
         
-        // Update product rating statistics
-        ratingService.updateProductRatingStats(productId);
+        // Trừ bucket sao tương ứng của sản phẩm
+        ratingAggregateService.applyDelta(productId, rating.getStars(), -1);
         
         log.info("Admin deleted rating {}", ratingId);
     }
@@ -98,35 +106,20 @@ public class AdminRatingService {
             throw new IllegalArgumentException("No ratings found");
         }
         
-        // Collect unique product IDs to update stats later
-        List<Long> productIds = ratings.stream()
-            .map(r -> r.getProduct().getId())
-            .distinct()
-            .collect(Collectors.toList());
+        // Gộp số đánh giá bị xóa theo (sản phẩm, số sao): mỗi cặp chỉ một câu UPDATE delta
+        Map<Long, int[]> deltas = new HashMap<>();
+        for (Rating rating : ratings) {
+            deltas.computeIfAbsent(rating.getProduct().getId(), id -> new int[5])[rating.getStars() - 1]++;
+        }
         
-        ratingRepository.deleteAll(ratings);
+        ratingRepository.deleteAllInBatch(ratings);
         
-        // Update product rating statistics for all affected products
-        productIds.forEach(ratingService::updateProductRatingStats);
+        deltas.forEach((productId, counts) -> {
+            for (int i = 0; i < counts.length; i++) {
+                ratingAggregateService.applyDelta(productId, i + 1, -counts[i]);
+            }
+        });
         
         log.info("Admin deleted {} ratings", ratings.size());
     }
-    
-    /**
-     * Convert Rating entity to AdminRatingResponse DTO
-     */
-    private AdminRatingResponse toAdminResponse(Rating rating) {
-        return AdminRatingResponse.builder()
-            .id(rating.getId())
-            .productId(rating.getProduct().getId())
-            .productName(rating.getProduct().getName())
-            .productImage(rating.getProduct().getImageUrl())
-            .userId(rating.getUser().getId())
-            .userName(rating.getUser().getName())
-            .userEmail(rating.getUser().getEmail())
-            .stars(rating.getStars())
-            .createdAt(rating.getCreatedAt())
-            .orderId(rating.getOrder().getId())
-            .build();
-    }
 }
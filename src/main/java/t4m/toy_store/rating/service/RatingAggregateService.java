@@ -0,0 +1,191 @@
+package t4m.toy_store.rating.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import t4m.toy_store.config.MaintenanceJobRunner;
+import t4m.toy_store.product.repository.ProductRepository;
+import t4m.toy_store.product.service.CatalogCache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tổng hợp đánh giá theo sản phẩm
+ * Mỗi sản phẩm giữ 5 bucket số lượt theo mức sao; thêm/xóa đánh giá chỉ cộng delta vào bucket
+ * (một câu UPDATE, không quét bảng ratings). averageRating và ratingCount suy ra từ các bucket.
+ * Job reconcile định kỳ đếm lại từ bảng ratings để sửa sai lệch (sửa tay DB, lỗi giữa chừng...)
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RatingAggregateService {
+
+    private static final String SELECT_BUCKETS_SQL = """
+            SELECT id, rating_star1, rating_star2, rating_star3, rating_star4, rating_star5,
+                   rating_count, average_rating
+            FROM products
+            """;
+
+    private static final String COUNT_RATINGS_SQL = """
+            SELECT product_id, stars, COUNT(*) AS cnt
+            FROM ratings
+            GROUP BY product_id, stars
+            """;
+
+    // Chỉ ghi đè khi bucket chưa đổi kể từ lúc đọc, tránh đè lên delta vừa commit
+    private static final String RECONCILE_SQL = """
+            UPDATE products
+            SET rating_star1 = ?, rating_star2 = ?, rating_star3 = ?, rating_star4 = ?, rating_star5 = ?,
+                rating_count = ?, average_rating = ?
+            WHERE id = ?
+              AND rating_star1 = ? AND rating_star2 = ? AND rating_star3 = ? AND rating_star4 = ? AND rating_star5 = ?
+            """;
+
+    // average_rating do MySQL tính bằng phép chia DECIMAL nên lệch vài chữ số cuối so với double
+    private static final double AVERAGE_TOLERANCE = 1e-3;
+
+    private final ProductRepository productRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final RatingStatisticsService ratingStatisticsService;
+    private final CatalogCache catalogCache;
+    private final MaintenanceJobRunner jobRunner;
+
+    /**
+     * Ghi nhận thay đổi số lượt đánh giá {@code stars} sao của sản phẩm
+     * delta = +1 khi thêm, -n khi xóa n đánh giá cùng mức sao
+     */
+    @Transactional
+    public void applyDelta(Long productId, int stars, int delta) {
+        if (stars < 1 || stars > 5 || delta == 0) {
+            return;
+        }
+        int updated = productRepository.applyRatingDelta(productId, stars, delta);
+        if (updated == 0) {
+            log.warn("Rating delta for missing product {} ignored ({} x {} stars)", productId, delta, stars);
+        }
+        ratingStatisticsService.invalidate(productId);
+        catalogCache.evictProduct(productId);
+    }
+
+    /**
+     * Trả về số lượt theo mức sao, index 0 = 1 sao ... index 4 = 5 sao
+     */
+    public static int[] histogram(Integer... buckets) {
+        int[] counts = new int[5];
+        for (int i = 0; i < counts.length && i < buckets.length; i++) {
+            counts[i] = buckets[i] != null ? Math.max(0, buckets[i]) : 0;
+        }
+        return counts;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileOnStartup() {
+        // Lần chạy đầu sau khi thêm cột bucket cũng chính là bước backfill
+        reconcile();
+    }
+
+    @Scheduled(cron = "${app.rating.reconcile-cron:0 30 3 * * *}")
+    public void scheduledReconcile() {
+        jobRunner.submit("rating-reconcile", this::reconcile);
+    }
+
+    public void reconcile() {
+        try {
+            int fixed = doReconcile();
+            if (fixed > 0) {
+                ratingStatisticsService.invalidateAll();
+                catalogCache.evictAllProducts();
+                log.info("Rating reconcile corrected aggregates for {} products", fixed);
+            }
+        } catch (Exception e) {
+            log.error("Rating reconcile failed: {}", e.getMessage());
+        }
+    }
+
+    private int doReconcile() {
+        // Đọc bucket hiện tại TRƯỚC khi đếm ratings: delta nào commit sau bước này sẽ làm điều kiện WHERE thất bại
+        Map<Long, StoredAggregate> current = new HashMap<>();
+        jdbcTemplate.query(SELECT_BUCKETS_SQL, rs -> {
+            current.put(rs.getLong("id"), new StoredAggregate(new int[]{
+                    rs.getInt("rating_star1"), rs.getInt("rating_star2"), rs.getInt("rating_star3"),
+                    rs.getInt("rating_star4"), rs.getInt("rating_star5")},
+                    rs.getObject("rating_count", Integer.class),
+                    rs.getObject("average_rating", Double.class)));
+        });
+
+        Map<Long, int[]> actual = new HashMap<>();
+        jdbcTemplate.query(COUNT_RATINGS_SQL, rs -> {
+            int stars = rs.getInt("stars");
+            if (stars >= 1 && stars <= 5) {
+                actual.computeIfAbsent(rs.getLong("product_id"), id -> new int[5])[stars - 1] = rs.getInt("cnt");
+            }
+        });
+
+        List<Object[]> corrections = new ArrayList<>();
+        int[] empty = new int[5];
+        for (Map.Entry<Long, StoredAggregate> entry : current.entrySet()) {
+            int[] expected = actual.getOrDefault(entry.getKey(), empty);
+            StoredAggregate stored = entry.getValue();
+            // Bucket đúng nhưng count/average lệch (sửa tay DB...) cũng phải ghi lại
+            if (!stored.matches(expected)) {
+                corrections.add(correction(entry.getKey(), expected, stored.buckets()));
+            }
+        }
+
+        if (!corrections.isEmpty()) {
+            jdbcTemplate.batchUpdate(RECONCILE_SQL, corrections);
+        }
+        return corrections.size();
+    }
+
+    private static Object[] correction(Long productId, int[] expected, int[] stored) {
+        int count = count(expected);
+        double average = average(expected);
+        return new Object[]{
+                expected[0], expected[1], expected[2], expected[3], expected[4], count, average,
+                productId,
+                stored[0], stored[1], stored[2], stored[3], stored[4]
+        };
+    }
+
+    private static int count(int[] buckets) {
+        int count = 0;
+        for (int bucket : buckets) {
+            count += bucket;
+        }
+        return count;
+    }
+
+    private static double average(int[] buckets) {
+        int count = count(buckets);
+        if (count == 0) {
+            return 0.0;
+        }
+        long sum = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            sum += (long) (i + 1) * buckets[i];
+        }
+        return (double) sum / count;
+    }
+
+    /**
+     * Giá trị tổng hợp đang lưu trên products; count/average null coi như lệch
+     */
+    private record StoredAggregate(int[] buckets, Integer ratingCount, Double averageRating) {
+
+        boolean matches(int[] expected) {
+            return Arrays.equals(buckets, expected)
+                    && ratingCount != null && ratingCount == count(expected)
+                    && averageRating != null && Math.abs(averageRating - average(expected)) < AVERAGE_TOLERANCE;
+        }
+    }
+}
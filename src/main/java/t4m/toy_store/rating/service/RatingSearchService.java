@@ -0,0 +1,167 @@
+package t4m.toy_store.rating.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+import t4m.toy_store.product.repository.ProductRepository;
+import t4m.toy_store.rating.dto.AdminRatingResponse;
+import t4m.toy_store.rating.dto.RatingSearchPage;
+import t4m.toy_store.rating.entity.Rating;
+import t4m.toy_store.rating.repository.RatingRepository;
+import t4m.toy_store.rating.repository.RatingSpecifications;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tìm kiếm đánh giá cho trang quản trị
+ * - Tên sản phẩm được đổi sang tập id bằng chỉ mục tên trong bộ nhớ, tên người dùng lọc bằng subquery
+ *   trên bảng user; bảng ratings được lọc theo product_id/user_id/stars/created_at có index
+ * - Phân trang keyset bằng cursor nên trang sâu có chi phí như trang đầu
+ * - Tổng số chỉ tính ở trang đầu và được cache ngắn hạn (xấp xỉ)
+ */
+@Service
+@RequiredArgsConstructor
+public class RatingSearchService {
+
+    public static final int MAX_PAGE_SIZE = 100;
+    private static final String PRODUCT_NAMES_KEY = "products";
+
+    private final RatingRepository ratingRepository;
+    private final ProductRepository productRepository;
+    private final RatingStatisticsService ratingStatisticsService;
+
+    // Danh mục sản phẩm nhỏ: giữ id + tên viết thường trong bộ nhớ, làm mới mỗi 5 phút
+    private final LoadingCache<String, List<ProductName>> productNames = Caffeine.newBuilder()
+            .refreshAfterWrite(5, TimeUnit.MINUTES)
+            .maximumSize(1)
+            .build(key -> loadProductNames());
+
+    private final Cache<String, Long> countCache = Caffeine.newBuilder()
+            .expireAfterWrite(30, TimeUnit.SECONDS)
+            .maximumSize(500)
+            .build();
+
+    /**
+     * Tìm đánh giá theo bộ lọc, trả về một trang theo cursor
+     * sortBy: createdAt hoặc stars; cursor null = trang đầu
+     */
+    @Transactional(readOnly = true)
+    public RatingSearchPage search(String userName, String productName,
+                                   Integer minStars, Integer maxStars,
+                                   LocalDateTime startDate, LocalDateTime endDate,
+                                   String sortBy, String sortDirection,
+                                   String cursor, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        boolean descending = !"ASC".equalsIgnoreCase(sortDirection);
+        boolean byStars = "stars".equals(sortBy);
+
+        List<Long> productIds = StringUtils.hasText(productName) ? resolveProductIds(productName) : null;
+        String userNeedle = StringUtils.hasText(userName) ? userName.trim() : null;
+        if (productIds != null && productIds.isEmpty()) {
+            return new RatingSearchPage(List.of(), null, false, 0);
+        }
+
+        Specification<Rating> filter = Specification.allOf(
+                RatingSpecifications.productIdIn(productIds),
+                RatingSpecifications.userNameContains(userNeedle),
+                RatingSpecifications.starsBetween(minStars, maxStars),
+                RatingSpecifications.createdBetween(startDate, endDate));
+
+        Specification<Rating> pageSpec = filter;
+        if (StringUtils.hasText(cursor)) {
+            RatingCursor after = RatingCursor.decode(cursor);
+            pageSpec = filter.and(byStars
+                    ? RatingSpecifications.afterStars(after.stars(), after.createdAt(), after.id(), descending)
+                    : RatingSpecifications.afterCreatedAt(after.createdAt(), after.id(), descending));
+        }
+
+        Sort.Direction direction = descending ? Sort.Direction.DESC : Sort.Direction.ASC;
+        Sort sort = byStars
+                ? Sort.by(direction, "stars", "createdAt", "id")
+                : Sort.by(direction, "createdAt", "id");
+
+        // Lấy dư một dòng để biết còn trang sau hay không, không cần câu COUNT
+        List<Rating> rows = ratingRepository.findBy(pageSpec, q -> q.sortBy(sort).limit(pageSize + 1).all());
+        boolean hasMore = rows.size() > pageSize;
+        if (hasMore) {
+            rows = rows.subList(0, pageSize);
+        }
+
+        List<AdminRatingResponse> content = rows.stream().map(AdminRatingResponse::fromEntity).toList();
+        String nextCursor = hasMore ? RatingCursor.encode(rows.get(rows.size() - 1)) : null;
+
+        boolean unfiltered = productIds == null && userNeedle == null && minStars == null && maxStars == null
+                && startDate == null && endDate == null;
+        long total = unfiltered
+                ? ratingStatisticsService.getOverall().getTotalReviews()
+                : countCache.get(countKey(productName, userName, minStars, maxStars, startDate, endDate),
+                        key -> ratingRepository.count(filter));
+
+        return new RatingSearchPage(content, nextCursor, hasMore, total);
+    }
+
+    private List<Long> resolveProductIds(String productName) {
+        String needle = productName.trim().toLowerCase(Locale.ROOT);
+        List<Long> ids = new ArrayList<>();
+        for (ProductName product : productNames.get(PRODUCT_NAMES_KEY)) {
+            if (product.lowerName().contains(needle)) {
+                ids.add(product.id());
+            }
+        }
+        return ids;
+    }
+
+    private List<ProductName> loadProductNames() {
+        return productRepository.findAllNames().stream()
+                .filter(p -> p.getName() != null)
+                .map(p -> new ProductName(p.getId(), p.getName().toLowerCase(Locale.ROOT)))
+                .toList();
+    }
+
+    private static String countKey(Object... parts) {
+        StringBuilder key = new StringBuilder();
+        for (Object part : parts) {
+            key.append(part instanceof String text ? text.trim().toLowerCase(Locale.ROOT) : Objects.toString(part, ""))
+                    .append('\u0001');
+        }
+        return key.toString();
+    }
+
+    private record ProductName(Long id, String lowerName) {
+    }
+
+    /**
+     * Cursor mờ: base64url của "stars|createdAt|id" của dòng cuối trang trước
+     */
+    private record RatingCursor(Integer stars, LocalDateTime createdAt, Long id) {
+
+        static String encode(Rating rating) {
+            String raw = rating.getStars() + "|" + rating.getCreatedAt() + "|" + rating.getId();
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static RatingCursor decode(String cursor) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                String[] parts = raw.split("\\|");
+                return new RatingCursor(Integer.parseInt(parts[0]), LocalDateTime.parse(parts[1]),
+                        Long.parseLong(parts[2]));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+    }
+}
@@ -8,8 +8,10 @@ import t4m.toy_store.auth.entity.User;
 import t4m.toy_store.order.entity.Order;
 import t4m.toy_store.order.entity.OrderStatus;
 import t4m.toy_store.order.repository.OrderRepository;
-import t4m.toy_store.product.entity.Product;
+import t4m.toy_store.product.dto.ProductSnapshot;
 import t4m.toy_store.product.repository.ProductRepository;
+import t4m.toy_store.product.service.CatalogCache;
+import t4m.toy_store.product.service.PopularityService;
 import t4m.toy_store.rating.dto.ProductRatingSummary;
 import t4m.toy_store.rating.dto.RatingRequest;
 import t4m.toy_store.rating.dto.RatingResponse;
@@ -26,6 +28,9 @@ public class RatingService {
     private final RatingRepository ratingRepository;
     private final OrderRepository orderRepository;
     private final ProductRepository productRepository;
+    private final RatingAggregateService ratingAggregateService;
+    private final PopularityService popularityService;
+    private final CatalogCache catalogCache;
     
     @Transactional
     public RatingResponse addRating(RatingRequest request, User user) {
@@ -43,8 +48,9 @@ public class RatingService {
         }
         
         // Validate product exists
-        Product product = productRepository.findById(request.getProductId())
-            .orElseThrow(() -> new IllegalArgumentException("Product not found"));
+        if (catalogCache.getProduct(request.getProductId()).isEmpty()) {
+            throw new IllegalArgumentException("Product not found");
+        }
         
         // Validate product is in the order
         boolean productInOrder = order.getOrderItems().stream()
@@ -61,7 +67,7 @@ public class RatingService {
         
         // Create rating
         Rating rating = Rating.builder()
-            .product(product)
+            .product(productRepository.getReferenceById(request.getProductId()))
             .user(user)
             .order(order)
             .stars(request.getStars())
@@ -69,38 +75,25 @@ public class RatingService {
         
         rating = ratingRepository.save(rating);
         
-        // Update product rating statistics
-        updateProductRatingStats(product.getId());
+        // Cộng delta vào bucket sao của sản phẩm (O(1), không quét lại ratings)
+        ratingAggregateService.applyDelta(request.getProductId(), rating.getStars(), 1);
+        popularityService.recordRating(request.getProductId(), rating.getStars());
         
-        log.info("User {} rated product {} with {} stars", user.getId(), product.getId(), request.getStars());
+        log.info("User {} rated product {} with {} stars", user.getId(), request.getProductId(), request.getStars());
         
         return toResponse(rating);
     }
     
-    @Transactional
-    public void updateProductRatingStats(Long productId) {
-        Double avgRating = ratingRepository.findAverageRatingByProductId(productId);
-        long count = ratingRepository.countByProductId(productId);
-        
-        Product product = productRepository.findById(productId)
-            .orElseThrow(() -> new IllegalArgumentException("Product not found"));
-        
-        product.setAverageRating(avgRating != null ? avgRating : 0.0);
-        product.setRatingCount((int) count);
-        
-        productRepository.save(product);
-        
-        log.info("Updated rating stats for product {}: avg={}, count={}", productId, avgRating, count);
-    }
-    
     public ProductRatingSummary getProductRatingSummary(Long productId) {
-        Product product = productRepository.findById(productId)
+        ProductSnapshot product = catalogCache.getProduct(productId)
             .orElseThrow(() -> new IllegalArgumentException("Product not found"));
         
         return ProductRatingSummary.builder()
             .productId(productId)
-            .averageRating(product.getAverageRating() != null ? product.getAverageRating() : 0.0)
-            .ratingCount(product.getRatingCount() != null ? product.getRatingCount() : 0)
+            .averageRating(product.averageRating())
+            .ratingCount(product.ratingCount())
+            .starCounts(RatingAggregateService.histogram(product.ratingStar1(), product.ratingStar2(),
+                product.ratingStar3(), product.ratingStar4(), product.ratingStar5()))
             .build();
     }
     
@@ -0,0 +1,111 @@
+package t4m.toy_store.rating.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import t4m.toy_store.config.AfterCommit;
+import t4m.toy_store.product.entity.Product;
+import t4m.toy_store.product.repository.ProductRepository;
+import t4m.toy_store.rating.dto.RatingHistogram;
+import t4m.toy_store.rating.dto.StarCount;
+import t4m.toy_store.rating.repository.RatingRepository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Thống kê đánh giá cho trang quản trị
+ * Toàn hệ thống / theo khoảng thời gian: một câu GROUP BY stars, giữ trong cache cho tới khi có đánh giá thêm/xóa.
+ * Theo sản phẩm: đọc từ bucket sao trên bảng products (xem RatingAggregateService), cũng được cache
+ */
+@Service
+@RequiredArgsConstructor
+public class RatingStatisticsService {
+
+    public static final int MAX_WINDOW_DAYS = 365;
+    private static final String ALL_TIME = "ALL";
+
+    private final RatingRepository ratingRepository;
+    private final ProductRepository productRepository;
+
+    // TTL chỉ là lưới an toàn (xóa tay trong DB...), cập nhật bình thường đi qua invalidate
+    private final Cache<String, RatingHistogram> globalCache = Caffeine.newBuilder()
+            .expireAfterWrite(10, TimeUnit.MINUTES)
+            .maximumSize(100)
+            .build();
+    private final Cache<Long, RatingHistogram> productCache = Caffeine.newBuilder()
+            .expireAfterWrite(10, TimeUnit.MINUTES)
+            .maximumSize(5000)
+            .build();
+
+    /**
+     * Phân bố sao trên toàn bộ đánh giá
+     */
+    public RatingHistogram getOverall() {
+        return globalCache.get(ALL_TIME, key -> toHistogram(ratingRepository.countGroupedByStars()));
+    }
+
+    /**
+     * Phân bố sao của các đánh giá trong {@code days} ngày gần nhất (tính cả hôm nay)
+     * Khóa cache gắn với ngày hiện tại nên cửa sổ tự trượt khi sang ngày mới
+     */
+    public RatingHistogram getForLastDays(int days) {
+        int window = Math.max(1, Math.min(days, MAX_WINDOW_DAYS));
+        LocalDate today = LocalDate.now();
+        String key = today + "/" + window;
+        return globalCache.get(key, k -> toHistogram(ratingRepository.countGroupedByStarsBetween(
+                today.minusDays(window - 1L).atStartOfDay(), today.plusDays(1).atStartOfDay())));
+    }
+
+    /**
+     * Phân bố sao của một sản phẩm, lấy từ các bucket đã tổng hợp sẵn
+     */
+    public RatingHistogram getForProduct(Long productId) {
+        return productCache.get(productId, id -> {
+            Product product = productRepository.findById(id)
+                    .orElseThrow(() -> new IllegalArgumentException("Product not found"));
+            int[] buckets = RatingAggregateService.histogram(product.getRatingStar1(), product.getRatingStar2(),
+                    product.getRatingStar3(), product.getRatingStar4(), product.getRatingStar5());
+            long[] counts = new long[buckets.length];
+            for (int i = 0; i < buckets.length; i++) {
+                counts[i] = buckets[i];
+            }
+            return RatingHistogram.of(counts);
+        });
+    }
+
+    /**
+     * Bỏ cache sau khi đánh giá của sản phẩm thay đổi
+     * Chạy sau commit để request đọc ngay sau đó không nạp lại dữ liệu cũ vào cache
+     */
+    public void invalidate(Long productId) {
+        Runnable action = () -> {
+            globalCache.invalidateAll();
+            if (productId != null) {
+                productCache.invalidate(productId);
+            }
+        };
+        AfterCommit.run(action);
+    }
+
+    /**
+     * Bỏ toàn bộ cache (dùng sau reconcile)
+     */
+    public void invalidateAll() {
+        globalCache.invalidateAll();
+        productCache.invalidateAll();
+    }
+
+    private static RatingHistogram toHistogram(List<StarCount> rows) {
+        long[] counts = new long[5];
+        for (StarCount row : rows) {
+            Integer stars = row.getStars();
+            if (stars != null && stars >= 1 && stars <= 5) {
+                counts[stars - 1] = row.getCount();
+            }
+        }
+        return RatingHistogram.of(counts);
+    }
+}
@@ -1,11 +1,17 @@
 package t4m.toy_store.shipper.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import t4m.toy_store.auth.entity.User;
 import t4m.toy_store.order.dto.OrderResponse;
 import t4m.toy_store.order.entity.Order;
+import t4m.toy_store.shipper.dto.DispatchBoardPage;
+import t4m.toy_store.shipper.exception.OrderAlreadyClaimedException;
 import t4m.toy_store.shipper.service.ShipperService;
 import t4m.toy_store.shipper.service.ShipperStats;
 
@@ -28,8 +34,8 @@ public class ShipperController {
      */
     @GetMapping("/orders")
     public ResponseEntity<List<OrderResponse>> getShipperOrders(
-            @RequestHeader("X-User-Email") String shipperEmail) {
-        List<Order> orders = shipperService.getShipperOrders(shipperEmail);
+            @AuthenticationPrincipal User shipper) {
+        List<Order> orders = shipperService.getShipperOrders(shipper);
         List<OrderResponse> response = orders.stream()
                 .map(OrderResponse::fromEntity)
                 .collect(Collectors.toList());
@@ -37,15 +43,14 @@ public class ShipperController {
     }
 
     /**
-     * Lấy danh sách đơn hàng có thể nhận (PROCESSING)
+     * Lấy danh sách đơn hàng có thể nhận (PROCESSING) theo trang
+     * Cập nhật tiếp theo được đẩy qua /topic/shipper.board
      */
     @GetMapping("/orders/available")
-    public ResponseEntity<List<OrderResponse>> getAvailableOrders() {
-        List<Order> orders = shipperService.getAvailableOrders();
-        List<OrderResponse> response = orders.stream()
-                .map(OrderResponse::fromEntity)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(response);
+    public ResponseEntity<DispatchBoardPage> getAvailableOrders(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size) {
+        return ResponseEntity.ok(shipperService.getAvailableOrders(page, size));
     }
 
     /**
@@ -53,8 +58,8 @@ public class ShipperController {
      */
     @GetMapping("/orders/active")
     public ResponseEntity<List<OrderResponse>> getActiveOrders(
-            @RequestHeader("X-User-Email") String shipperEmail) {
-        List<Order> orders = shipperService.getShipperActiveOrders(shipperEmail);
+            @AuthenticationPrincipal User shipper) {
+        List<Order> orders = shipperService.getShipperActiveOrders(shipper);
         List<OrderResponse> response = orders.stream()
                 .map(OrderResponse::fromEntity)
                 .collect(Collectors.toList());
@@ -62,15 +67,17 @@ public class ShipperController {
     }
 
     /**
-     * Lấy lịch sử giao hàng của shipper
+     * Lấy lịch sử giao hàng của shipper theo trang
+     * status: ALL, DELIVERED, FAILED hoặc TODAY
      */
     @GetMapping("/orders/history")
-    public ResponseEntity<List<OrderResponse>> getDeliveryHistory(
-            @RequestHeader("X-User-Email") String shipperEmail) {
-        List<Order> orders = shipperService.getShipperHistory(shipperEmail);
-        List<OrderResponse> response = orders.stream()
-                .map(OrderResponse::fromEntity)
-                .collect(Collectors.toList());
+    public ResponseEntity<Page<OrderResponse>> getDeliveryHistory(
+            @AuthenticationPrincipal User shipper,
+            @RequestParam(defaultValue = "ALL") String status,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        Page<OrderResponse> response = shipperService.getShipperHistory(shipper, status, page, size)
+                .map(OrderResponse::fromEntity);
         return ResponseEntity.ok(response);
     }
 
@@ -81,10 +88,16 @@ public class ShipperController {
     @PutMapping("/orders/{id}/accept")
     public ResponseEntity<?> acceptOrder(
             @PathVariable Long id,
-            @RequestHeader("X-User-Email") String shipperEmail) {
+            @AuthenticationPrincipal User shipper) {
         try {
-            Order order = shipperService.acceptOrder(id, shipperEmail);
+            Order order = shipperService.acceptOrder(id, shipper);
             return ResponseEntity.ok(OrderResponse.fromEntity(order));
+        } catch (OrderAlreadyClaimedException e) {
+            // Thua cuộc đua nhận đơn: 409 để client bỏ đơn khỏi danh sách
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            error.put("code", "ORDER_ALREADY_CLAIMED");
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", e.getMessage());
@@ -99,9 +112,9 @@ public class ShipperController {
     @PutMapping("/orders/{id}/complete")
     public ResponseEntity<?> completeDelivery(
             @PathVariable Long id,
-            @RequestHeader("X-User-Email") String shipperEmail) {
+            @AuthenticationPrincipal User shipper) {
         try {
-            Order order = shipperService.completeDelivery(id, shipperEmail);
+            Order order = shipperService.completeDelivery(id, shipper);
             return ResponseEntity.ok(OrderResponse.fromEntity(order));
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
@@ -117,11 +130,11 @@ public class ShipperController {
     @PutMapping("/orders/{id}/fail")
     public ResponseEntity<?> failDelivery(
             @PathVariable Long id,
-            @RequestHeader("X-User-Email") String shipperEmail,
+            @AuthenticationPrincipal User shipper,
             @RequestBody(required = false) Map<String, String> body) {
         try {
             String reason = body != null ? body.getOrDefault("reason", "Không thể liên hệ khách hàng") : "Không thể liên hệ khách hàng";
-            Order order = shipperService.failDelivery(id, shipperEmail, reason);
+            Order order = shipperService.failDelivery(id, shipper, reason);
             return ResponseEntity.ok(OrderResponse.fromEntity(order));
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
@@ -136,9 +149,9 @@ public class ShipperController {
     @GetMapping("/orders/{id}")
     public ResponseEntity<OrderResponse> getOrderById(
             @PathVariable Long id,
-            @RequestHeader("X-User-Email") String shipperEmail) {
+            @AuthenticationPrincipal User shipper) {
         try {
-            Order order = shipperService.getOrderById(id, shipperEmail);
+            Order order = shipperService.getOrderById(id, shipper);
             return ResponseEntity.ok(OrderResponse.fromEntity(order));
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
@@ -150,8 +163,8 @@ public class ShipperController {
      */
     @GetMapping("/stats")
     public ResponseEntity<ShipperStats> getStats(
-            @RequestHeader("X-User-Email") String shipperEmail) {
-        ShipperStats stats = shipperService.getShipperStats(shipperEmail);
+            @AuthenticationPrincipal User shipper) {
+        ShipperStats stats = shipperService.getShipperStats(shipper);
         return ResponseEntity.ok(stats);
     }
 }
@@ -0,0 +1,39 @@
+package t4m.toy_store.shipper.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import t4m.toy_store.order.entity.Order;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Thông tin gọn của đơn hàng chờ shipper nhận, giữ trong bộ nhớ của DispatchBoardService
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AvailableOrderSummary {
+    private Long id;
+    private String orderNumber;
+    private String customerName;
+    private String customerPhone;
+    private String shippingAddress;
+    private BigDecimal totalAmount;
+    private LocalDateTime createdAt;
+
+    public static AvailableOrderSummary fromEntity(Order order) {
+        return AvailableOrderSummary.builder()
+                .id(order.getId())
+                .orderNumber(order.getOrderNumber())
+                .customerName(order.getCustomerName())
+                .customerPhone(order.getCustomerPhone())
+                .shippingAddress(order.getShippingAddress())
+                .totalAmount(order.getTotalAmount())
+                .createdAt(order.getCreatedAt())
+                .build();
+    }
+}
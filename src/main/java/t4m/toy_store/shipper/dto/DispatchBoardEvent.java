@@ -0,0 +1,23 @@
+package t4m.toy_store.shipper.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Delta gửi qua /topic/shipper.board khi danh sách đơn chờ nhận thay đổi
+ * Chỉ chứa thông tin không nhạy cảm, chi tiết khách hàng lấy qua API có xác thực
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DispatchBoardEvent {
+    private String type; // ADDED, REMOVED
+    private Long orderId;
+    private String orderNumber;
+    private BigDecimal totalAmount;
+    private long availableCount;
+    private long version;
+}
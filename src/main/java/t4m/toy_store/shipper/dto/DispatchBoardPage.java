@@ -0,0 +1,18 @@
+package t4m.toy_store.shipper.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DispatchBoardPage {
+    private List<AvailableOrderSummary> orders;
+    private int page;
+    private int size;
+    private long totalElements;
+    private long version; // So sánh với version trong delta để biết có bỏ lỡ cập nhật không
+}
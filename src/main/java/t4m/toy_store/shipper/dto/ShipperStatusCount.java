@@ -0,0 +1,12 @@
+package t4m.toy_store.shipper.dto;
+
+import t4m.toy_store.order.entity.OrderStatus;
+
+/**
+ * Projection cho câu GROUP BY status của shipper
+ */
+public interface ShipperStatusCount {
+    OrderStatus getStatus();
+    long getCount();
+    Long getTodayCount();
+}
@@ -0,0 +1,7 @@
+package t4m.toy_store.shipper.exception;
+
+public class OrderAlreadyClaimedException extends RuntimeException {
+    public OrderAlreadyClaimedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,168 @@
+package t4m.toy_store.shipper.service;
+
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import t4m.toy_store.config.MaintenanceJobRunner;
+import t4m.toy_store.order.entity.Order;
+import t4m.toy_store.order.entity.OrderStatus;
+import t4m.toy_store.order.event.OrderEvent;
+import t4m.toy_store.order.event.OrderEventListener;
+import t4m.toy_store.order.event.OrderEventType;
+import t4m.toy_store.order.repository.OrderRepository;
+import t4m.toy_store.shipper.dto.AvailableOrderSummary;
+import t4m.toy_store.shipper.dto.DispatchBoardEvent;
+import t4m.toy_store.shipper.dto.DispatchBoardPage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Bảng điều phối đơn hàng cho shipper
+ * Giữ danh sách đơn PROCESSING chưa có shipper trong bộ nhớ, cập nhật theo sự kiện đơn hàng từ outbox
+ * và đẩy delta qua /topic/shipper.board nên dashboard không cần poll DB
+ */
+@Service
+@RequiredArgsConstructor
+public class DispatchBoardService implements OrderEventListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(DispatchBoardService.class);
+
+    public static final String BOARD_TOPIC = "/topic/shipper.board";
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final OrderRepository orderRepository;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final MaintenanceJobRunner jobRunner;
+
+    // Sắp xếp theo id tăng dần: đơn cũ nhất (chờ lâu nhất) lên đầu
+    private final ConcurrentSkipListMap<Long, AvailableOrderSummary> availableOrders = new ConcurrentSkipListMap<>();
+    private final AtomicLong version = new AtomicLong();
+    // Đơn vừa được sự kiện thêm/xóa -> số thứ tự thay đổi; reconcile bỏ qua đơn thay đổi sau lúc đọc DB
+    private final ConcurrentHashMap<Long, Long> lastChange = new ConcurrentHashMap<>();
+    private final AtomicLong changeSeq = new AtomicLong();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        reconcile();
+        logger.info("Dispatch board loaded with {} available orders", availableOrders.size());
+    }
+
+    /**
+     * Đồng bộ lại với DB định kỳ (bù cho cập nhật từ node khác hoặc sửa tay trong DB)
+     * Chi phí cố định mỗi chu kỳ, không phụ thuộc số dashboard đang mở
+     */
+    @Scheduled(fixedDelayString = "${app.shipper.board.reconcile-interval-ms:300000}",
+               initialDelayString = "${app.shipper.board.reconcile-interval-ms:300000}")
+    public void scheduledReconcile() {
+        jobRunner.submit("dispatch-board-reconcile", this::reconcile);
+    }
+
+    /**
+     * Sự kiện được giao sau commit nên mọi thay đổi có số thứ tự <= started đã nằm trong kết quả truy vấn;
+     * đơn có thay đổi mới hơn (vd: vừa bị nhận) giữ nguyên trạng thái do sự kiện đặt, không bị bản chụp cũ ghi đè
+     */
+    public void reconcile() {
+        long started = changeSeq.get();
+        Map<Long, AvailableOrderSummary> fresh = orderRepository
+                .findByStatusAndShipperIsNullOrderByIdAsc(OrderStatus.PROCESSING).stream()
+                .map(AvailableOrderSummary::fromEntity)
+                .collect(Collectors.toMap(AvailableOrderSummary::getId, Function.identity()));
+
+        for (Long id : new ArrayList<>(availableOrders.keySet())) {
+            if (!fresh.containsKey(id) && !changedSince(id, started)) {
+                remove(id);
+            }
+        }
+        for (AvailableOrderSummary summary : fresh.values()) {
+            if (!changedSince(summary.getId(), started)) {
+                put(summary);
+            }
+        }
+        lastChange.values().removeIf(seq -> seq <= started);
+    }
+
+    private boolean changedSince(Long orderId, long seq) {
+        Long changed = lastChange.get(orderId);
+        return changed != null && changed > seq;
+    }
+
+    @Override
+    public boolean supports(OrderEventType type) {
+        return type == OrderEventType.STATUS_CHANGED
+                || type == OrderEventType.SHIPPER_ASSIGNED
+                || type == OrderEventType.CANCELLED;
+    }
+
+    /**
+     * Sự kiện đổi trạng thái/shipper từ outbox (đã sau commit)
+     * Đơn có thể vào bảng thì đọc lại trạng thái hiện tại, để sự kiện giao trễ hay lệch thứ tự không thêm nhầm đơn
+     */
+    @Override
+    public void onOrderEvent(OrderEvent event) {
+        lastChange.put(event.orderId(), changeSeq.incrementAndGet());
+        if (event.status() == OrderStatus.PROCESSING && event.shipperId() == null) {
+            Optional<Order> order = orderRepository.findById(event.orderId())
+                    .filter(o -> o.getStatus() == OrderStatus.PROCESSING && o.getShipper() == null);
+            if (order.isPresent()) {
+                put(AvailableOrderSummary.fromEntity(order.get()));
+                return;
+            }
+        }
+        remove(event.orderId());
+    }
+
+    public DispatchBoardPage getPage(int page, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        int pageNumber = Math.max(0, page);
+        long currentVersion = version.get();
+        List<AvailableOrderSummary> orders = availableOrders.values().stream()
+                .skip((long) pageNumber * pageSize)
+                .limit(pageSize)
+                .collect(Collectors.toList());
+        return new DispatchBoardPage(orders, pageNumber, pageSize, availableOrders.size(), currentVersion);
+    }
+
+    public List<Long> getAvailableOrderIds() {
+        return new ArrayList<>(availableOrders.keySet());
+    }
+
+    public long getAvailableCount() {
+        return availableOrders.size();
+    }
+
+    private void put(AvailableOrderSummary summary) {
+        if (availableOrders.put(summary.getId(), summary) == null) {
+            publish("ADDED", summary);
+        }
+    }
+
+    private void remove(Long orderId) {
+        AvailableOrderSummary removed = availableOrders.remove(orderId);
+        if (removed != null) {
+            publish("REMOVED", removed);
+        }
+    }
+
+    private void publish(String type, AvailableOrderSummary summary) {
+        DispatchBoardEvent event = new DispatchBoardEvent(type, summary.getId(), summary.getOrderNumber(),
+                summary.getTotalAmount(), availableOrders.size(), version.incrementAndGet());
+        try {
+            messagingTemplate.convertAndSend(BOARD_TOPIC, event);
+        } catch (Exception e) {
+            logger.warn("Failed to publish dispatch board event for order {}: {}", summary.getId(), e.getMessage());
+        }
+    }
+}
@@ -3,16 +3,30 @@ package t4m.toy_store.shipper.service;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import t4m.toy_store.auth.entity.User;
-import t4m.toy_store.auth.exception.UserNotFoundException;
-import t4m.toy_store.auth.repository.UserRepository;
 import t4m.toy_store.order.entity.Order;
 import t4m.toy_store.order.entity.OrderStatus;
+import t4m.toy_store.order.event.OrderEvent;
+import t4m.toy_store.order.event.OrderEventPublisher;
+import t4m.toy_store.order.event.OrderEventType;
 import t4m.toy_store.order.repository.OrderRepository;
+import t4m.toy_store.shipper.dto.DispatchBoardPage;
+import t4m.toy_store.shipper.dto.ShipperStatusCount;
+import t4m.toy_store.shipper.exception.OrderAlreadyClaimedException;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
@@ -20,27 +34,29 @@ public class ShipperService {
     
     private static final Logger logger = LoggerFactory.getLogger(ShipperService.class);
     
+    private static final int MAX_HISTORY_PAGE_SIZE = 100;
+    private static final Set<OrderStatus> HISTORY_STATUSES =
+            EnumSet.of(OrderStatus.DELIVERED, OrderStatus.FAILED, OrderStatus.CANCELLED);
+    private static final Set<OrderStatus> FINISHED_STATUSES = EnumSet.of(OrderStatus.DELIVERED, OrderStatus.FAILED);
+    
     private final OrderRepository orderRepository;
-    private final UserRepository userRepository;
+    private final DispatchBoardService dispatchBoardService;
+    private final OrderEventPublisher orderEventPublisher;
 
     /**
-     * Lấy danh sách đơn hàng có trạng thái PROCESSING (chờ shipper nhận)
-     * Shipper có thể xem các đơn này để chọn nhận
+     * Lấy danh sách đơn hàng có trạng thái PROCESSING (chờ shipper nhận) theo trang
+     * Đọc từ bảng điều phối trong bộ nhớ, không truy vấn DB
      */
-    public List<Order> getAvailableOrders() {
-        logger.info("Getting available orders for shippers (PROCESSING status)");
-        return orderRepository.findByStatus(OrderStatus.PROCESSING, null).getContent();
+    public DispatchBoardPage getAvailableOrders(int page, int size) {
+        return dispatchBoardService.getPage(page, size);
     }
 
     /**
      * Lấy danh sách đơn hàng đang giao của shipper cụ thể
      * Chỉ lấy các đơn có trạng thái SHIPPING và được gán cho shipper này
      */
-    public List<Order> getShipperActiveOrders(String shipperEmail) {
-        User shipper = userRepository.findByEmail(shipperEmail)
-                .orElseThrow(() -> new UserNotFoundException("Shipper not found"));
-        
-        logger.info("Getting active orders for shipper: {}", shipperEmail);
+    public List<Order> getShipperActiveOrders(User shipper) {
+        logger.info("Getting active orders for shipper: {}", shipper.getEmail());
         return orderRepository.findByShipperIdAndStatus(shipper.getId(), OrderStatus.SHIPPING);
     }
 
@@ -48,72 +64,66 @@ public class ShipperService {
      * Lấy danh sách tất cả đơn hàng liên quan đến shipper
      * Bao gồm cả đơn đang giao (SHIPPING) và có thể nhận (PROCESSING)
      */
-    public List<Order> getShipperOrders(String shipperEmail) {
-        User shipper = userRepository.findByEmail(shipperEmail)
-                .orElseThrow(() -> new UserNotFoundException("Shipper not found"));
-        
-        logger.info("Getting all orders for shipper: {}", shipperEmail);
+    public List<Order> getShipperOrders(User shipper) {
+        logger.info("Getting all orders for shipper: {}", shipper.getEmail());
         // Lấy các đơn đang giao của shipper này
         List<Order> shippingOrders = orderRepository.findByShipperIdAndStatus(shipper.getId(), OrderStatus.SHIPPING);
-        // Thêm các đơn đang chờ nhận (PROCESSING)
-        List<Order> processingOrders = getAvailableOrders();
+        // Thêm các đơn đang chờ nhận (PROCESSING) theo danh sách id trên bảng điều phối
+        List<Order> processingOrders = orderRepository.findAllById(dispatchBoardService.getAvailableOrderIds());
         
         shippingOrders.addAll(processingOrders);
         return shippingOrders;
     }
 
     /**
-     * Lấy lịch sử đơn hàng đã giao của shipper
-     * Bao gồm các đơn có trạng thái DELIVERED, FAILED và CANCELLED
+     * Lấy lịch sử đơn hàng đã giao của shipper theo trang
+     * Một câu truy vấn status IN (...) sắp xếp theo created_at giảm dần thay vì 3 truy vấn rồi sort trong bộ nhớ
+     * filter: ALL (DELIVERED, FAILED, CANCELLED), DELIVERED, FAILED, TODAY (DELIVERED/FAILED tạo hôm nay)
      */
-    public List<Order> getShipperHistory(String shipperEmail) {
-        User shipper = userRepository.findByEmail(shipperEmail)
-                .orElseThrow(() -> new UserNotFoundException("Shipper not found"));
-        
-        logger.info("Getting delivery history for shipper: {}", shipperEmail);
-        
-        // Lấy các đơn đã hoàn tất (thành công hoặc thất bại)
-        List<Order> history = new java.util.ArrayList<>();
-        history.addAll(orderRepository.findByShipperIdAndStatus(shipper.getId(), OrderStatus.DELIVERED));
-        history.addAll(orderRepository.findByShipperIdAndStatus(shipper.getId(), OrderStatus.FAILED));
-        history.addAll(orderRepository.findByShipperIdAndStatus(shipper.getId(), OrderStatus.CANCELLED));
-        
-        // Sắp xếp theo thời gian tạo giảm dần
-        history.sort((o1, o2) -> o2.getCreatedAt().compareTo(o1.getCreatedAt()));
-        
-        return history;
+    public Page<Order> getShipperHistory(User shipper, String filter, int page, int size) {
+        String normalized = filter == null ? "ALL" : filter.toUpperCase();
+        Pageable pageable = PageRequest.of(Math.max(0, page), Math.max(1, Math.min(size, MAX_HISTORY_PAGE_SIZE)),
+                Sort.by(Sort.Direction.DESC, "createdAt").and(Sort.by(Sort.Direction.DESC, "id")));
+
+        logger.info("Getting delivery history for shipper: {} (filter {})", shipper.getEmail(), normalized);
+
+        return switch (normalized) {
+            case "DELIVERED" -> orderRepository.findByShipperIdAndStatusIn(
+                    shipper.getId(), EnumSet.of(OrderStatus.DELIVERED), pageable);
+            case "FAILED" -> orderRepository.findByShipperIdAndStatusIn(
+                    shipper.getId(), EnumSet.of(OrderStatus.FAILED), pageable);
+            case "TODAY" -> orderRepository.findByShipperIdAndStatusInAndCreatedAtGreaterThanEqual(
+                    shipper.getId(), FINISHED_STATUSES, LocalDate.now().atStartOfDay(), pageable);
+            default -> orderRepository.findByShipperIdAndStatusIn(shipper.getId(), HISTORY_STATUSES, pageable);
+        };
     }
 
     /**
      * Shipper nhận đơn hàng
-     * Chuyển trạng thái từ PROCESSING -> SHIPPING và gán shipper_id
+     * Chuyển trạng thái từ PROCESSING -> SHIPPING và gán shipper_id bằng một câu UPDATE có điều kiện,
+     * nên khi nhiều shipper cùng bấm nhận chỉ đúng một người thắng
      */
     @Transactional
-    public Order acceptOrder(Long orderId, String shipperEmail) {
-        User shipper = userRepository.findByEmail(shipperEmail)
-                .orElseThrow(() -> new UserNotFoundException("Shipper not found"));
+    public Order acceptOrder(Long orderId, User shipper) {
+        int claimed = orderRepository.claimOrder(orderId, shipper,
+                OrderStatus.PROCESSING, OrderStatus.SHIPPING, LocalDateTime.now());
         
         Order order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new RuntimeException("Order not found"));
         
-        // Kiểm tra trạng thái đơn hàng
-        if (order.getStatus() != OrderStatus.PROCESSING) {
+        if (claimed == 0) {
+            // Đơn đã được shipper khác nhận trước (thua cuộc đua)
+            if (order.getShipper() != null) {
+                logger.info("Shipper {} lost the race for order {}", shipper.getEmail(), orderId);
+                throw new OrderAlreadyClaimedException("Đơn hàng này đã được shipper khác nhận");
+            }
             throw new RuntimeException("Chỉ có thể nhận đơn hàng đang ở trạng thái 'Đang xử lý'");
         }
         
-        // Kiểm tra đơn hàng đã được shipper khác nhận chưa
-        if (order.getShipper() != null) {
-            throw new RuntimeException("Đơn hàng này đã được shipper khác nhận");
-        }
-        
-        // Cập nhật trạng thái và gán shipper
-        order.setStatus(OrderStatus.SHIPPING);
-        order.setShipper(shipper);
+        orderEventPublisher.publish(OrderEvent.of(OrderEventType.SHIPPER_ASSIGNED, order, OrderStatus.PROCESSING));
+        logger.info("Order {} accepted by shipper {}", orderId, shipper.getEmail());
         
-        Order savedOrder = orderRepository.save(order);
-        logger.info("Order {} accepted by shipper {}", orderId, shipperEmail);
-        
-        return savedOrder;
+        return order;
     }
 
     /**
@@ -121,10 +131,7 @@ public class ShipperService {
      * Chuyển trạng thái từ SHIPPING -> DELIVERED
      */
     @Transactional
-    public Order completeDelivery(Long orderId, String shipperEmail) {
-        User shipper = userRepository.findByEmail(shipperEmail)
-                .orElseThrow(() -> new UserNotFoundException("Shipper not found"));
-        
+    public Order completeDelivery(Long orderId, User shipper) {
         Order order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new RuntimeException("Order not found"));
         
@@ -142,7 +149,8 @@ public class ShipperService {
         order.setStatus(OrderStatus.DELIVERED);
         
         Order savedOrder = orderRepository.save(order);
-        logger.info("Order {} completed by shipper {}", orderId, shipperEmail);
+        orderEventPublisher.publish(OrderEvent.of(OrderEventType.DELIVERED, savedOrder, OrderStatus.SHIPPING));
+        logger.info("Order {} completed by shipper {}", orderId, shipper.getEmail());
         
         return savedOrder;
     }
@@ -150,10 +158,7 @@ public class ShipperService {
     /**
      * Lấy chi tiết một đơn hàng
      */
-    public Order getOrderById(Long orderId, String shipperEmail) {
-        User shipper = userRepository.findByEmail(shipperEmail)
-                .orElseThrow(() -> new UserNotFoundException("Shipper not found"));
-        
+    public Order getOrderById(Long orderId, User shipper) {
         Order order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new RuntimeException("Order not found"));
         
@@ -166,26 +171,32 @@ public class ShipperService {
             }
         }
         
-        logger.info("Shipper {} viewed order {}", shipperEmail, orderId);
+        logger.info("Shipper {} viewed order {}", shipper.getEmail(), orderId);
         return order;
     }
 
     /**
      * Lấy thống kê cho shipper dashboard
+     * Một câu GROUP BY status cho mọi bộ đếm của shipper, số đơn chờ nhận đọc từ bảng điều phối
      */
-    public ShipperStats getShipperStats(String shipperEmail) {
-        User shipper = userRepository.findByEmail(shipperEmail)
-                .orElseThrow(() -> new UserNotFoundException("Shipper not found"));
-        
-        long availableOrders = orderRepository.countByStatus(OrderStatus.PROCESSING);
-        long activeDeliveries = orderRepository.countByShipperIdAndStatus(shipper.getId(), OrderStatus.SHIPPING);
-        long completedDeliveries = orderRepository.countByShipperIdAndStatus(shipper.getId(), OrderStatus.DELIVERED);
-        long failedDeliveries = orderRepository.countByShipperIdAndStatus(shipper.getId(), OrderStatus.FAILED);
+    public ShipperStats getShipperStats(User shipper) {
+        Map<OrderStatus, ShipperStatusCount> counts = new EnumMap<>(OrderStatus.class);
+        for (ShipperStatusCount row : orderRepository.countByShipperGroupedByStatus(
+                shipper.getId(), LocalDate.now().atStartOfDay())) {
+            counts.put(row.getStatus(), row);
+        }
+
+        long availableOrders = dispatchBoardService.getAvailableCount();
+        long activeDeliveries = count(counts, OrderStatus.SHIPPING);
+        long completedDeliveries = count(counts, OrderStatus.DELIVERED);
+        long failedDeliveries = count(counts, OrderStatus.FAILED);
+        long cancelledDeliveries = count(counts, OrderStatus.CANCELLED);
         // Tổng đã giao = Đã giao thành công + Giao thất bại
         long totalDeliveries = completedDeliveries + failedDeliveries;
+        long todayDeliveries = todayCount(counts, OrderStatus.DELIVERED) + todayCount(counts, OrderStatus.FAILED);
         
         logger.info("Shipper {} stats - Available: {}, Active: {}, Completed: {}, Failed: {}, Total: {}", 
-                    shipperEmail, availableOrders, activeDeliveries, completedDeliveries, failedDeliveries, totalDeliveries);
+                    shipper.getEmail(), availableOrders, activeDeliveries, completedDeliveries, failedDeliveries, totalDeliveries);
         
         return ShipperStats.builder()
                 .availableOrders(availableOrders)
@@ -193,6 +204,9 @@ public class ShipperService {
                 .completedDeliveries(completedDeliveries)
                 .failedDeliveries(failedDeliveries)
                 .totalDeliveries(totalDeliveries)
+                .cancelledDeliveries(cancelledDeliveries)
+                .historyDeliveries(totalDeliveries + cancelledDeliveries)
+                .todayDeliveries(todayDeliveries)
                 .build();
     }
 
@@ -201,10 +215,7 @@ public class ShipperService {
      * Chuyển trạng thái từ SHIPPING -> FAILED
      */
     @Transactional
-    public Order failDelivery(Long orderId, String shipperEmail, String reason) {
-        User shipper = userRepository.findByEmail(shipperEmail)
-                .orElseThrow(() -> new UserNotFoundException("Shipper not found"));
-        
+    public Order failDelivery(Long orderId, User shipper, String reason) {
         Order order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new RuntimeException("Order not found"));
         
@@ -224,8 +235,19 @@ public class ShipperService {
         // order.setNote(reason);
         
         Order savedOrder = orderRepository.save(order);
-        logger.info("Order {} marked as failed by shipper {}. Reason: {}", orderId, shipperEmail, reason);
+        orderEventPublisher.publish(OrderEvent.of(OrderEventType.DELIVERY_FAILED, savedOrder, OrderStatus.SHIPPING));
+        logger.info("Order {} marked as failed by shipper {}. Reason: {}", orderId, shipper.getEmail(), reason);
         
         return savedOrder;
     }
+
+    private static long count(Map<OrderStatus, ShipperStatusCount> counts, OrderStatus status) {
+        ShipperStatusCount row = counts.get(status);
+        return row != null ? row.getCount() : 0;
+    }
+
+    private static long todayCount(Map<OrderStatus, ShipperStatusCount> counts, OrderStatus status) {
+        ShipperStatusCount row = counts.get(status);
+        return row != null && row.getTodayCount() != null ? row.getTodayCount() : 0;
+    }
 }
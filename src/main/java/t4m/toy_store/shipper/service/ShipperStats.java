@@ -12,4 +12,7 @@ public class ShipperStats {
     private long completedDeliveries;  // Số đơn đã giao thành công (DELIVERED)
     private long failedDeliveries;     // Số đơn giao thất bại (FAILED)
     private long totalDeliveries;      // Tổng số đơn đã xử lý (DELIVERED + FAILED)
+    private long cancelledDeliveries;  // Số đơn bị hủy sau khi đã gán shipper (CANCELLED)
+    private long historyDeliveries;    // Tổng số đơn trong lịch sử (DELIVERED + FAILED + CANCELLED)
+    private long todayDeliveries;      // Số đơn DELIVERED + FAILED tạo trong hôm nay
 }
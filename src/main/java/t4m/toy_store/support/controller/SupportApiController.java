@@ -5,8 +5,8 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import t4m.toy_store.auth.entity.User;
+import t4m.toy_store.support.dto.SupportMessagePage;
 import t4m.toy_store.support.dto.SupportSessionDto;
-import t4m.toy_store.support.entity.SupportMessage;
 import t4m.toy_store.support.entity.SupportSession;
 import t4m.toy_store.support.service.SupportService;
 
@@ -34,11 +34,17 @@ public class SupportApiController {
         }
     }
 
+    /**
+     * Lịch sử tin nhắn theo trang, truyền nextCursor vào ?before= để tải tin nhắn cũ hơn
+     */
     @GetMapping("/session/{sessionId}/messages")
-    public ResponseEntity<?> getMessages(@PathVariable String sessionId) {
+    public ResponseEntity<?> getMessages(
+            @PathVariable String sessionId,
+            @RequestParam(required = false) String before,
+            @RequestParam(defaultValue = "50") int limit) {
         try {
-            List<SupportMessage> messages = supportService.getSessionMessages(sessionId);
-            return ResponseEntity.ok(messages);
+            SupportMessagePage page = supportService.getSessionMessagesPage(sessionId, before, limit);
+            return ResponseEntity.ok(page);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
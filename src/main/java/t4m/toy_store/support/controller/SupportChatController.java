@@ -22,7 +22,7 @@ public class SupportChatController {
         chatMessage.setCreatedAt(LocalDateTime.now());
         chatMessage.setMessageType("CHAT");
 
-        // Save message to database
+        // Xếp hàng ghi trước (write-behind, ghi theo lô): queue đầy thì ném lỗi và tin nhắn không được phát đi
         supportService.saveMessage(chatMessage);
 
         // Send to specific session
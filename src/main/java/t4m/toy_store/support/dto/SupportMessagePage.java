@@ -0,0 +1,17 @@
+package t4m.toy_store.support.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import t4m.toy_store.support.entity.SupportMessage;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SupportMessagePage {
+    private List<SupportMessage> messages; // Theo thứ tự thời gian tăng dần
+    private String nextCursor;             // Truyền vào ?before= để lấy trang cũ hơn, null nếu hết
+    private boolean hasMore;
+}
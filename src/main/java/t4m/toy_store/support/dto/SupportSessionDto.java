@@ -20,4 +20,6 @@ public class SupportSessionDto {
     private LocalDateTime updatedAt;
     private int unreadCount;
     private String lastMessage;
+    private String lastSenderType;
+    private LocalDateTime lastActivityAt;
 }
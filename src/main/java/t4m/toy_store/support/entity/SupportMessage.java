@@ -9,7 +9,9 @@ import java.time.LocalDateTime;
 
 @Data
 @Entity
-@Table(name = "support_message")
+@Table(name = "support_message", indexes = {
+        @Index(name = "idx_session_created", columnList = "session_id, created_at, id")
+})
 @NoArgsConstructor
 @AllArgsConstructor
 public class SupportMessage {
@@ -40,4 +40,14 @@ public class SupportSession {
 
     @Column(name = "unread_count")
     private int unreadCount = 0;
+
+    // Denormalized từ tin nhắn cuối cùng, cập nhật khi ghi tin nhắn (SupportMessageWriter)
+    @Column(name = "last_message", length = 500)
+    private String lastMessage;
+
+    @Column(name = "last_sender_type")
+    private String lastSenderType;
+
+    @Column(name = "last_activity_at")
+    private LocalDateTime lastActivityAt;
 }
@@ -0,0 +1,7 @@
+package t4m.toy_store.support.exception;
+
+public class SupportQueueFullException extends RuntimeException {
+    public SupportQueueFullException(String message) {
+        super(message);
+    }
+}
@@ -1,9 +1,13 @@
 package t4m.toy_store.support.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import t4m.toy_store.support.entity.SupportMessage;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -13,4 +17,16 @@ public interface SupportMessageRepository extends JpaRepository<SupportMessage,
     List<SupportMessage> findBySessionIdAndIsReadFalse(String sessionId);
 
     long countBySessionIdAndSenderTypeAndIsReadFalse(String sessionId, String senderType);
+
+    // Keyset pagination theo (created_at, id), mới nhất trước - dùng index idx_session_created
+    @Query("SELECT m FROM SupportMessage m WHERE m.sessionId = :sessionId ORDER BY m.createdAt DESC, m.id DESC")
+    List<SupportMessage> findLatest(@Param("sessionId") String sessionId, Pageable pageable);
+
+    @Query("SELECT m FROM SupportMessage m WHERE m.sessionId = :sessionId " +
+           "AND (m.createdAt < :createdAt OR (m.createdAt = :createdAt AND m.id < :id)) " +
+           "ORDER BY m.createdAt DESC, m.id DESC")
+    List<SupportMessage> findBefore(@Param("sessionId") String sessionId,
+                                    @Param("createdAt") LocalDateTime createdAt,
+                                    @Param("id") Long id,
+                                    Pageable pageable);
 }
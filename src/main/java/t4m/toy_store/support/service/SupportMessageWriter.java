@@ -0,0 +1,368 @@
+package t4m.toy_store.support.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import t4m.toy_store.support.dto.ChatMessageDto;
+import t4m.toy_store.support.exception.SupportQueueFullException;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ghi tin nhắn support theo kiểu write-behind
+ * Tin nhắn được đưa vào queue có giới hạn, định kỳ insert theo lô và
+ * cập nhật mỗi session đúng một câu UPDATE cho mỗi lần flush
+ * Lô lỗi được ghi lại từng dòng: chỉ dòng lỗi dữ liệu (DB từ chối) bị bỏ (park) để không chặn các tin phía sau;
+ * lỗi tạm thời (mất kết nối, DB quá tải) thì giữ nguyên trong queue và thử lại với backoff, không bao giờ bỏ
+ * Queue đầy thì người gửi bị chặn (back-pressure) rồi bị từ chối, tin nhắn không được nhận thì không bị mất âm thầm
+ * Đọc của một session chỉ ghi tin đang chờ của session đó (flushSession), không chờ flush của cả queue
+ */
+@Component
+public class SupportMessageWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(SupportMessageWriter.class);
+
+    private static final String INSERT_MESSAGE_SQL = """
+            INSERT INTO support_message (session_id, user_id, user_email, user_name, sender_type, message, created_at, is_read)
+            VALUES (?, ?, ?, ?, ?, ?, ?, FALSE)
+            """;
+
+    // Lô của các session khác nhau có thể commit lệch thứ tự (flushSession chạy song song với flush định kỳ):
+    // chỉ ghi đè last_* khi lô mang tin mới hơn. last_activity_at gán sau cùng vì MySQL tính SET từ trái sang phải
+    private static final String UPDATE_SESSION_SQL = """
+            UPDATE support_session
+            SET unread_count = unread_count + ?,
+                updated_at = CASE WHEN updated_at IS NULL OR updated_at < ? THEN ? ELSE updated_at END,
+                last_message = CASE WHEN last_activity_at IS NULL OR last_activity_at <= ? THEN ? ELSE last_message END,
+                last_sender_type = CASE WHEN last_activity_at IS NULL OR last_activity_at <= ? THEN ? ELSE last_sender_type END,
+                last_activity_at = CASE WHEN last_activity_at IS NULL OR last_activity_at < ? THEN ? ELSE last_activity_at END
+            WHERE session_id = ?
+            """;
+
+    // Khớp với độ dài cột support_session.last_message
+    private static final int LAST_MESSAGE_LENGTH = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    // Queue không giới hạn để luôn trả lại được tin ghi lỗi; sức chứa do semaphore giữ ở phía enqueue
+    private final BlockingDeque<ChatMessageDto> queue = new LinkedBlockingDeque<>();
+    private final Semaphore capacity;
+    private final int batchSize;
+    private final long offerTimeoutMs;
+    private final long flushIntervalMs;
+    private final long maxBackoffMs;
+    private final Counter parked;
+    private final Counter rejected;
+
+    // Lấy tin khỏi queue và đánh dấu đang ghi phải là một bước, để người đọc không thấy tin "biến mất"
+    private final Object drainLock = new Object();
+    // Số tin đang được ghi theo session (guarded by itself)
+    private final Map<String, Integer> inFlight = new HashMap<>();
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile long retryAtMillis;
+
+    public SupportMessageWriter(JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                MeterRegistry meterRegistry,
+                                @Value("${app.support.write-behind.queue-capacity:10000}") int queueCapacity,
+                                @Value("${app.support.write-behind.batch-size:500}") int batchSize,
+                                @Value("${app.support.write-behind.offer-timeout-ms:500}") long offerTimeoutMs,
+                                @Value("${app.support.write-behind.flush-interval-ms:200}") long flushIntervalMs,
+                                @Value("${app.support.write-behind.max-backoff-ms:5000}") long maxBackoffMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        // Mỗi lần flush là một transaction riêng, không phụ thuộc transaction của người gọi
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.capacity = new Semaphore(Math.max(1, queueCapacity));
+        this.batchSize = batchSize;
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.flushIntervalMs = Math.max(1, flushIntervalMs);
+        this.maxBackoffMs = Math.max(this.flushIntervalMs, maxBackoffMs);
+        this.parked = Counter.builder("support.messages.parked")
+                .description("Support messages rejected by the database and dropped")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("support.messages.rejected")
+                .description("Support messages refused because the write-behind queue stayed full")
+                .register(meterRegistry);
+        meterRegistry.gauge("support.messages.pending", queue, BlockingDeque::size);
+    }
+
+    /**
+     * Đưa tin nhắn vào queue để ghi sau
+     * Nếu queue đầy thì chờ, flush ngay trên thread hiện tại (back-pressure) rồi chờ thêm một lần;
+     * vẫn đầy (DB đang lỗi) thì ném SupportQueueFullException cho người gửi thay vì bỏ tin nhắn
+     */
+    public void enqueue(ChatMessageDto message) {
+        if (message.getCreatedAt() == null) {
+            message.setCreatedAt(LocalDateTime.now());
+        }
+        if (!acquireSlot()) {
+            logger.warn("Support message queue full, flushing synchronously for session {}", message.getSessionId());
+            flush();
+            if (!acquireSlot()) {
+                rejected.increment();
+                throw new SupportQueueFullException("Hệ thống chat đang quá tải, vui lòng gửi lại sau");
+            }
+        }
+        queue.offerLast(message);
+    }
+
+    private boolean acquireSlot() {
+        try {
+            return capacity.tryAcquire(offerTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.support.write-behind.flush-interval-ms:200}")
+    public void scheduledFlush() {
+        flush();
+    }
+
+    /**
+     * Ghi toàn bộ tin nhắn đang chờ xuống DB (flush định kỳ và back-pressure khi queue đầy)
+     * Không ném lỗi: nếu DB lỗi, tin nhắn còn lại giữ trong queue và lần flush kế tiếp chờ hết backoff
+     */
+    public synchronized void flush() {
+        if (System.currentTimeMillis() < retryAtMillis) {
+            return;
+        }
+        drainQueue();
+    }
+
+    private void drainQueue() {
+        while (true) {
+            List<ChatMessageDto> batch = new ArrayList<>(batchSize);
+            synchronized (drainLock) {
+                if (queue.drainTo(batch, batchSize) == 0) {
+                    break;
+                }
+                markInFlight(batch);
+            }
+            boolean drained;
+            try {
+                drained = write(batch);
+            } finally {
+                unmarkInFlight(batch);
+            }
+            if (!drained) {
+                return;
+            }
+        }
+        consecutiveFailures.set(0);
+        retryAtMillis = 0;
+    }
+
+    /**
+     * Ghi ngay các tin nhắn đang chờ của một session, gọi trước khi đọc lịch sử, đếm hoặc reset unread
+     * Không chờ flush của cả queue: chỉ chờ lô đang ghi nếu lô đó có tin của session này
+     * Không ném lỗi: nếu DB lỗi, tin nhắn được trả lại queue như flush định kỳ
+     */
+    public void flushSession(String sessionId) {
+        List<ChatMessageDto> rows = new ArrayList<>();
+        synchronized (drainLock) {
+            Iterator<ChatMessageDto> iterator = queue.iterator();
+            while (iterator.hasNext()) {
+                ChatMessageDto message = iterator.next();
+                if (sessionId.equals(message.getSessionId())) {
+                    iterator.remove();
+                    rows.add(message);
+                }
+            }
+            markInFlight(rows);
+        }
+        try {
+            if (!rows.isEmpty()) {
+                write(rows);
+            }
+        } finally {
+            unmarkInFlight(rows);
+        }
+        awaitInFlight(sessionId);
+    }
+
+    /**
+     * @return true nếu cả lô đã được ghi hoặc park
+     */
+    private boolean write(List<ChatMessageDto> batch) {
+        try {
+            writeBatch(batch);
+            capacity.release(batch.size());
+            return true;
+        } catch (RuntimeException e) {
+            logger.warn("Support message batch of {} failed, retrying row by row: {}", batch.size(), e.getMessage());
+            return writeRowByRow(batch);
+        }
+    }
+
+    private void markInFlight(List<ChatMessageDto> batch) {
+        synchronized (inFlight) {
+            for (ChatMessageDto message : batch) {
+                inFlight.merge(message.getSessionId(), 1, Integer::sum);
+            }
+        }
+    }
+
+    private void unmarkInFlight(List<ChatMessageDto> batch) {
+        synchronized (inFlight) {
+            for (ChatMessageDto message : batch) {
+                inFlight.computeIfPresent(message.getSessionId(), (id, count) -> count > 1 ? count - 1 : null);
+            }
+            inFlight.notifyAll();
+        }
+    }
+
+    private void awaitInFlight(String sessionId) {
+        synchronized (inFlight) {
+            while (inFlight.containsKey(sessionId)) {
+                try {
+                    inFlight.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Ghi lại từng dòng theo thứ tự; dừng ở dòng lỗi tạm thời đầu tiên và trả phần còn lại về đầu queue
+     * @return true nếu cả lô đã được ghi hoặc park
+     */
+    private boolean writeRowByRow(List<ChatMessageDto> batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            ChatMessageDto message = batch.get(i);
+            try {
+                writeBatch(List.of(message));
+                capacity.release();
+            } catch (DataIntegrityViolationException e) {
+                // Ràng buộc hoặc nội dung quá dài: ghi lại bao nhiêu lần cũng không thành công
+                park(message, e);
+            } catch (RuntimeException e) {
+                // Lỗi tạm thời: giữ lại toàn bộ phần còn lại, thử lại sau backoff
+                requeue(batch.subList(i, batch.size()));
+                backOff(e);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void requeue(List<ChatMessageDto> rows) {
+        // Trả về đầu queue theo đúng thứ tự để lần flush sau ghi lại; các dòng này vẫn giữ chỗ trong semaphore
+        for (int i = rows.size() - 1; i >= 0; i--) {
+            queue.offerFirst(rows.get(i));
+        }
+    }
+
+    private void backOff(RuntimeException cause) {
+        int failures = consecutiveFailures.incrementAndGet();
+        long delay = Math.min(maxBackoffMs, flushIntervalMs << Math.min(failures, 16));
+        retryAtMillis = System.currentTimeMillis() + delay;
+        logger.error("Failed to flush support messages ({} in a row), {} pending, retrying in {} ms: {}",
+                failures, queue.size(), delay, cause.getMessage());
+    }
+
+    private void park(ChatMessageDto message, Exception cause) {
+        capacity.release();
+        parked.increment();
+        logger.error("Dropping support message for session {} from {} at {} ({} chars): rejected by the database - {}",
+                message.getSessionId(), message.getSenderType(), message.getCreatedAt(),
+                message.getMessage() == null ? 0 : message.getMessage().length(), cause.getMessage());
+    }
+
+    public int pendingCount() {
+        return queue.size();
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        logger.info("Flushing {} pending support messages before shutdown", queue.size());
+        // Bỏ qua backoff: đây là cơ hội cuối để ghi
+        drainQueue();
+        if (!queue.isEmpty()) {
+            logger.error("{} support messages could not be written before shutdown", queue.size());
+        }
+    }
+
+    private void writeBatch(List<ChatMessageDto> batch) {
+        // Gộp bộ đếm theo session: mỗi session chỉ một câu UPDATE
+        Map<String, SessionDelta> deltas = new HashMap<>();
+        for (ChatMessageDto message : batch) {
+            SessionDelta delta = deltas.computeIfAbsent(message.getSessionId(), id -> new SessionDelta());
+            if ("USER".equals(message.getSenderType())) {
+                delta.unread++;
+            }
+            // Queue giữ thứ tự FIFO nên tin nhắn sau cùng trong lô là tin nhắn mới nhất
+            delta.lastActivity = message.getCreatedAt();
+            delta.lastMessage = preview(message.getMessage());
+            delta.lastSenderType = message.getSenderType();
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(INSERT_MESSAGE_SQL, batch, batch.size(), (ps, m) -> {
+                ps.setString(1, m.getSessionId());
+                ps.setObject(2, m.getUserId());
+                ps.setString(3, m.getUserEmail());
+                ps.setString(4, m.getUserName());
+                ps.setString(5, m.getSenderType());
+                ps.setString(6, m.getMessage());
+                ps.setTimestamp(7, Timestamp.valueOf(m.getCreatedAt()));
+            });
+
+            List<Map.Entry<String, SessionDelta>> sessions = new ArrayList<>(deltas.entrySet());
+            jdbcTemplate.batchUpdate(UPDATE_SESSION_SQL, sessions, sessions.size(), (ps, entry) -> {
+                SessionDelta delta = entry.getValue();
+                Timestamp lastActivity = Timestamp.valueOf(delta.lastActivity);
+                ps.setInt(1, delta.unread);
+                ps.setTimestamp(2, lastActivity);
+                ps.setTimestamp(3, lastActivity);
+                ps.setTimestamp(4, lastActivity);
+                ps.setString(5, delta.lastMessage);
+                ps.setTimestamp(6, lastActivity);
+                ps.setString(7, delta.lastSenderType);
+                ps.setTimestamp(8, lastActivity);
+                ps.setTimestamp(9, lastActivity);
+                ps.setString(10, entry.getKey());
+            });
+        });
+        logger.debug("Flushed {} support messages across {} sessions", batch.size(), deltas.size());
+    }
+
+    private static String preview(String message) {
+        if (message == null || message.length() <= LAST_MESSAGE_LENGTH) {
+            return message;
+        }
+        return message.substring(0, LAST_MESSAGE_LENGTH);
+    }
+
+    private static class SessionDelta {
+        private int unread;
+        private LocalDateTime lastActivity;
+        private String lastMessage;
+        private String lastSenderType;
+    }
+}
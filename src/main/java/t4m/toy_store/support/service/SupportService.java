@@ -1,16 +1,22 @@
 package t4m.toy_store.support.service;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import t4m.toy_store.support.dto.ChatMessageDto;
+import t4m.toy_store.support.dto.SupportMessagePage;
 import t4m.toy_store.support.dto.SupportSessionDto;
 import t4m.toy_store.support.entity.SupportMessage;
 import t4m.toy_store.support.entity.SupportSession;
 import t4m.toy_store.support.repository.SupportMessageRepository;
 import t4m.toy_store.support.repository.SupportSessionRepository;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -21,6 +27,9 @@ public class SupportService {
 
     private final SupportSessionRepository sessionRepository;
     private final SupportMessageRepository messageRepository;
+    private final SupportMessageWriter messageWriter;
+
+    private static final int MAX_PAGE_SIZE = 100;
 
     @Transactional
     public SupportSession createOrGetSession(Long userId, String userEmail, String userName) {
@@ -36,34 +45,39 @@ public class SupportService {
                 });
     }
 
-    @Transactional
-    public SupportMessage saveMessage(ChatMessageDto messageDto) {
-        SupportMessage message = new SupportMessage();
-        message.setSessionId(messageDto.getSessionId());
-        message.setUserId(messageDto.getUserId());
-        message.setUserEmail(messageDto.getUserEmail());
-        message.setUserName(messageDto.getUserName());
-        message.setSenderType(messageDto.getSenderType());
-        message.setMessage(messageDto.getMessage());
-        message.setCreatedAt(LocalDateTime.now());
-
-        SupportMessage saved = messageRepository.save(message);
-
-        // Update session
-        sessionRepository.findBySessionId(messageDto.getSessionId())
-                .ifPresent(session -> {
-                    session.setUpdatedAt(LocalDateTime.now());
-                    if ("USER".equals(messageDto.getSenderType())) {
-                        session.setUnreadCount(session.getUnreadCount() + 1);
-                    }
-                    sessionRepository.save(session);
-                });
-
-        return saved;
+    /**
+     * Lưu tin nhắn theo kiểu write-behind: tin nhắn đã được broadcast,
+     * việc insert và cập nhật session được gom lô trong SupportMessageWriter
+     */
+    public void saveMessage(ChatMessageDto messageDto) {
+        messageWriter.enqueue(messageDto);
     }
 
-    public List<SupportMessage> getSessionMessages(String sessionId) {
-        return messageRepository.findBySessionIdOrderByCreatedAtAsc(sessionId);
+    /**
+     * Lấy lịch sử tin nhắn theo trang (keyset trên created_at, id)
+     * before = null lấy trang mới nhất; trang trả về sắp xếp tăng dần theo thời gian
+     */
+    public SupportMessagePage getSessionMessagesPage(String sessionId, String before, int limit) {
+        if (before == null || before.isBlank()) {
+            // Tin nhắn đang chờ ghi luôn mới hơn các trang cũ: chỉ trang mới nhất cần ghi chúng trước
+            messageWriter.flushSession(sessionId);
+        }
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        PageRequest page = PageRequest.of(0, pageSize + 1);
+
+        List<SupportMessage> rows;
+        if (before == null || before.isBlank()) {
+            rows = messageRepository.findLatest(sessionId, page);
+        } else {
+            MessageCursor cursor = MessageCursor.decode(before);
+            rows = messageRepository.findBefore(sessionId, cursor.createdAt(), cursor.id(), page);
+        }
+
+        boolean hasMore = rows.size() > pageSize;
+        List<SupportMessage> messages = new ArrayList<>(hasMore ? rows.subList(0, pageSize) : rows);
+        String nextCursor = hasMore ? MessageCursor.encode(messages.get(messages.size() - 1)) : null;
+        Collections.reverse(messages);
+        return new SupportMessagePage(messages, nextCursor, hasMore);
     }
 
     public List<SupportSessionDto> getAllActiveSessions() {
@@ -73,6 +87,8 @@ public class SupportService {
 
     @Transactional
     public void markMessagesAsRead(String sessionId, String senderType) {
+        // Ghi các tin nhắn đang chờ của session trước để reset unread không bị cộng dồn lại sau đó
+        messageWriter.flushSession(sessionId);
         List<SupportMessage> messages = messageRepository.findBySessionIdAndIsReadFalse(sessionId);
         messages.stream()
                 .filter(msg -> !msg.getSenderType().equals(senderType))
@@ -97,6 +113,7 @@ public class SupportService {
     }
 
     public long getUnreadCount(String sessionId, String senderType) {
+        messageWriter.flushSession(sessionId);
         return messageRepository.countBySessionIdAndSenderTypeAndIsReadFalse(sessionId, senderType);
     }
 
@@ -111,13 +128,31 @@ public class SupportService {
         dto.setCreatedAt(session.getCreatedAt());
         dto.setUpdatedAt(session.getUpdatedAt());
         dto.setUnreadCount(session.getUnreadCount());
+        dto.setLastMessage(session.getLastMessage());
+        dto.setLastSenderType(session.getLastSenderType());
+        dto.setLastActivityAt(session.getLastActivityAt());
+        return dto;
+    }
 
-        // Get last message
-        List<SupportMessage> messages = messageRepository.findBySessionIdOrderByCreatedAtAsc(session.getSessionId());
-        if (!messages.isEmpty()) {
-            dto.setLastMessage(messages.get(messages.size() - 1).getMessage());
+    /**
+     * Cursor dạng opaque: base64url("createdAt|id")
+     */
+    private record MessageCursor(LocalDateTime createdAt, Long id) {
+
+        static String encode(SupportMessage message) {
+            String raw = message.getCreatedAt() + "|" + message.getId();
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
         }
 
-        return dto;
+        static MessageCursor decode(String cursor) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = raw.lastIndexOf('|');
+                return new MessageCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                        Long.parseLong(raw.substring(separator + 1)));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
     }
 }
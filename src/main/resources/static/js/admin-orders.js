@@ -96,10 +96,6 @@ async function loadOrders() {
     try {
         let url = `/api/admin/orders?page=${currentPage}&size=${pageSize}`;
         
-        if (currentStatus) {
-            url += `&status=${currentStatus}`;
-        }
-        
         if (currentStatus) {
             url += `&status=${currentStatus}`;
         }
@@ -623,7 +619,8 @@ function getPaymentStatusBadge(status, paymentMethod, orderStatus) {
     const statusMap = {
         'PENDING': { class: 'warning', text: 'Chờ thanh toán', icon: 'clock' },
         'PAID': { class: 'success', text: 'Đã thanh toán', icon: 'check-circle' },
-        'FAILED': { class: 'danger', text: 'Thất bại', icon: 'times-circle' }
+        'FAILED': { class: 'danger', text: 'Thất bại', icon: 'times-circle' },
+        'REFUND_REQUIRED': { class: 'danger', text: 'Cần hoàn tiền', icon: 'undo' }
     };
     
     const statusInfo = statusMap[status] || { class: 'secondary', text: status, icon: 'question-circle' };
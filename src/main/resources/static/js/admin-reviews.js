@@ -1,5 +1,6 @@
 // Admin Reviews Management JavaScript
 let currentPage = 0;
+let pageCursors = [null]; // pageCursors[i] = cursor để tải trang i (phân trang keyset)
 let pageSize = 10;
 let sortBy = 'createdAt';
 let sortDirection = 'DESC';
@@ -106,12 +107,14 @@ async function loadReviews() {
 // Build filter parameters
 function buildFilterParams() {
   const params = {
-    page: currentPage,
     size: pageSize,
     sortBy: sortBy,
     sortDirection: sortDirection,
   };
 
+  const cursor = pageCursors[currentPage];
+  if (cursor) params.cursor = cursor;
+
   const userName = document.getElementById('userNameSearch').value.trim();
   if (userName) params.userName = userName;
 
@@ -233,75 +236,71 @@ function escapeHtml(text) {
 }
 
 // Update pagination
+// Server trả về cursor trang sau thay vì số trang; tổng số là xấp xỉ
 function updatePagination(data) {
-  const totalPages = data.totalPages;
-  const currentPageNum = data.number;
-  const totalElements = data.totalElements;
-  
+  const count = data.content ? data.content.length : 0;
+  const total = data.approximateTotal || 0;
+  if (data.hasMore) {
+    pageCursors[currentPage + 1] = data.nextCursor;
+  }
+
   // Update info text
-  const start = currentPageNum * pageSize + 1;
-  const end = Math.min((currentPageNum + 1) * pageSize, totalElements);
+  const start = count === 0 ? 0 : currentPage * pageSize + 1;
+  const end = currentPage * pageSize + count;
   document.getElementById('paginationInfo').textContent = 
-    `Hiển thị ${start} đến ${end} của ${totalElements} đánh giá`;
+    `Hiển thị ${start} đến ${end} của khoảng ${total} đánh giá`;
 
   // Generate pagination controls
   const paginationControls = document.getElementById('paginationControls');
   paginationControls.innerHTML = '';
 
-  if (totalPages <= 1) return;
+  if (currentPage === 0 && !data.hasMore) return;
 
   // Previous button
   const prevLi = document.createElement('li');
-  prevLi.className = `page-item ${currentPageNum === 0 ? 'disabled' : ''}`;
+  prevLi.className = `page-item ${currentPage === 0 ? 'disabled' : ''}`;
   prevLi.innerHTML = `
-    <a class="page-link" href="#" onclick="changePage(${currentPageNum - 1}); return false;">
+    <a class="page-link" href="#" onclick="changePage(${currentPage - 1}); return false;">
       <i class="fas fa-chevron-left"></i>
     </a>
   `;
   paginationControls.appendChild(prevLi);
 
-  // Page numbers
-  const maxPagesToShow = 5;
-  let startPage = Math.max(0, currentPageNum - Math.floor(maxPagesToShow / 2));
-  let endPage = Math.min(totalPages - 1, startPage + maxPagesToShow - 1);
-  
-  if (endPage - startPage < maxPagesToShow - 1) {
-    startPage = Math.max(0, endPage - maxPagesToShow + 1);
-  }
-
-  for (let i = startPage; i <= endPage; i++) {
-    const li = document.createElement('li');
-    li.className = `page-item ${i === currentPageNum ? 'active' : ''}`;
-    li.innerHTML = `
-      <a class="page-link" href="#" onclick="changePage(${i}); return false;">
-        ${i + 1}
-      </a>
-    `;
-    paginationControls.appendChild(li);
-  }
+  // Current page
+  const currentLi = document.createElement('li');
+  currentLi.className = 'page-item active';
+  currentLi.innerHTML = `<span class="page-link">${currentPage + 1}</span>`;
+  paginationControls.appendChild(currentLi);
 
   // Next button
   const nextLi = document.createElement('li');
-  nextLi.className = `page-item ${currentPageNum === totalPages - 1 ? 'disabled' : ''}`;
+  nextLi.className = `page-item ${data.hasMore ? '' : 'disabled'}`;
   nextLi.innerHTML = `
-    <a class="page-link" href="#" onclick="changePage(${currentPageNum + 1}); return false;">
+    <a class="page-link" href="#" onclick="changePage(${currentPage + 1}); return false;">
       <i class="fas fa-chevron-right"></i>
     </a>
   `;
   paginationControls.appendChild(nextLi);
 }
 
-// Change page
+// Change page (chỉ sang được trang đã biết cursor)
 function changePage(page) {
+  if (page < 0 || page >= pageCursors.length) return;
   currentPage = page;
   loadReviews();
   window.scrollTo({ top: 0, behavior: 'smooth' });
 }
 
+// Quay về trang đầu khi bộ lọc, sắp xếp hoặc kích thước trang thay đổi
+function resetPaging() {
+  currentPage = 0;
+  pageCursors = [null];
+}
+
 // Change page size
 function changePageSize() {
   pageSize = parseInt(document.getElementById('pageSizeSelect').value);
-  currentPage = 0;
+  resetPaging();
   loadReviews();
 }
 
@@ -314,6 +313,7 @@ function changeSorting(field) {
     sortDirection = 'DESC';
   }
   
+  resetPaging();
   updateSortIcons();
   loadReviews();
 }
@@ -332,7 +332,7 @@ function updateSortIcons() {
 
 // Apply filters
 function applyFilters() {
-  currentPage = 0;
+  resetPaging();
   loadReviews();
 }
 
@@ -345,7 +345,7 @@ function clearFilters() {
   document.getElementById('startDate').value = '';
   document.getElementById('endDate').value = '';
   
-  currentPage = 0;
+  resetPaging();
   loadReviews();
 }
 
@@ -3,6 +3,7 @@ let stompClient = null;
 let currentSessionId = null;
 let currentUserName = null;
 let currentUserEmail = null;
+let olderMessagesCursor = null;
 
 document.addEventListener('DOMContentLoaded', function() {
     console.log('Admin Support: Initializing...');
@@ -257,11 +258,8 @@ function selectSession(sessionId, userName, userEmail) {
 }
 
 function loadMessages(sessionId) {
-    fetch(`/api/support/session/${sessionId}/messages`, {
-        headers: getAuthHeaders()
-    })
-    .then(response => response.json())
-    .then(messages => {
+    fetchMessagePage(sessionId, null)
+    .then(page => {
         const messagesArea = document.getElementById('messagesArea');
         if (!messagesArea) {
             console.error('messagesArea element not found');
@@ -269,14 +267,8 @@ function loadMessages(sessionId) {
         }
         messagesArea.innerHTML = '';
         
-        messages.forEach(msg => {
-            displayMessage({
-                senderType: msg.senderType,
-                userName: msg.userName,
-                message: msg.message,
-                createdAt: msg.createdAt
-            });
-        });
+        page.messages.forEach(msg => displayMessage(toChatMessage(msg)));
+        updateLoadOlderButton(sessionId, page);
         
         scrollToBottom();
     })
@@ -285,7 +277,61 @@ function loadMessages(sessionId) {
     });
 }
 
-function displayMessage(chatMessage) {
+// Tải trang tin nhắn cũ hơn và chèn lên đầu, giữ nguyên vị trí cuộn
+function loadOlderMessages(sessionId) {
+    if (!olderMessagesCursor) return;
+    const messagesArea = document.getElementById('messagesArea');
+    const previousHeight = messagesArea.scrollHeight;
+    
+    fetchMessagePage(sessionId, olderMessagesCursor)
+    .then(page => {
+        page.messages.slice().reverse().forEach(msg => displayMessage(toChatMessage(msg), true));
+        updateLoadOlderButton(sessionId, page);
+        messagesArea.scrollTop = messagesArea.scrollHeight - previousHeight;
+    })
+    .catch(error => {
+        console.error('Error loading older messages:', error);
+    });
+}
+
+function fetchMessagePage(sessionId, before) {
+    const query = before ? `?before=${encodeURIComponent(before)}` : '';
+    return fetch(`/api/support/session/${sessionId}/messages${query}`, {
+        headers: getAuthHeaders()
+    })
+    .then(response => response.json());
+}
+
+function toChatMessage(msg) {
+    return {
+        senderType: msg.senderType,
+        userName: msg.userName,
+        message: msg.message,
+        createdAt: msg.createdAt
+    };
+}
+
+function updateLoadOlderButton(sessionId, page) {
+    const messagesArea = document.getElementById('messagesArea');
+    olderMessagesCursor = page.hasMore ? page.nextCursor : null;
+    
+    let button = document.getElementById('loadOlderMessages');
+    if (!olderMessagesCursor) {
+        if (button) button.remove();
+        return;
+    }
+    if (!button) {
+        button = document.createElement('button');
+        button.id = 'loadOlderMessages';
+        button.type = 'button';
+        button.className = 'btn btn-sm btn-link w-100';
+        button.textContent = 'Xem tin nhắn cũ hơn';
+    }
+    button.onclick = () => loadOlderMessages(sessionId);
+    messagesArea.insertBefore(button, messagesArea.firstChild);
+}
+
+function displayMessage(chatMessage, prepend = false) {
     const messagesArea = document.getElementById('messagesArea');
     if (!messagesArea) {
         console.error('messagesArea element not found');
@@ -312,6 +358,11 @@ function displayMessage(chatMessage) {
         </div>
     `;
     
+    if (prepend) {
+        const olderButton = document.getElementById('loadOlderMessages');
+        messagesArea.insertBefore(messageDiv, olderButton ? olderButton.nextSibling : messagesArea.firstChild);
+        return;
+    }
     messagesArea.appendChild(messageDiv);
     scrollToBottom();
 }
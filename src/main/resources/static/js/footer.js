@@ -18,7 +18,7 @@ async function loadFooterCategories() {
     }
     
     try {
-        const response = await fetch('/api/products/categories');
+        const response = await fetch('/api/home/categories');
         
         if (!response.ok) {
             throw new Error('Failed to load categories');
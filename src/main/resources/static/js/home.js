@@ -1,5 +1,6 @@
 document.addEventListener('DOMContentLoaded', function() {
     loadFeaturedProducts();
+    loadTrendingProducts();
     initCounterAnimation();
     initLazyLoading();
     
@@ -99,7 +100,8 @@ function loadFeaturedProducts() {
     const skeletonLoader = document.getElementById('skeletonLoader');
     const container = document.getElementById('featuredProducts');
     
-    fetch('/api/products/featured')
+    // Dữ liệu trang chủ dựng sẵn phía server (ETag, trình duyệt tự revalidate)
+    fetch('/api/home/featured')
         .then(response => response.json())
         .then(products => {
             // Hide skeleton loader
@@ -138,7 +140,26 @@ function displayFeaturedProducts(products) {
     // Hiển thị tối đa 4 sản phẩm
     const displayProducts = products.slice(0, 4);
     
-    container.innerHTML = displayProducts.map(product => `
+    container.innerHTML = displayProducts.map(renderProductCard).join('');
+}
+
+function loadTrendingProducts() {
+    const section = document.getElementById('trending');
+    const container = document.getElementById('trendingProducts');
+    if (!section || !container) return;
+    
+    fetch('/api/home/trending')
+        .then(response => response.json())
+        .then(products => {
+            if (!products || products.length === 0) return;
+            container.innerHTML = products.map(renderProductCard).join('');
+            section.classList.remove('d-none');
+        })
+        .catch(error => console.error('Error loading trending products:', error));
+}
+
+function renderProductCard(product) {
+    return `
         <div class="col-lg-3 col-md-6 mb-4">
             <div class="card featured-card h-100">
                 ${product.discountPrice ? '<span class="badge bg-danger position-absolute top-0 start-0 m-2">SALE</span>' : ''}
@@ -173,7 +194,7 @@ function displayFeaturedProducts(products) {
                 </div>
             </div>
         </div>
-    `).join('');
+    `;
 }
 
 function viewProduct(id) {
@@ -13,7 +13,7 @@ function loadProductDetail(id) {
             displayProductDetail(product);
             // Display rating from product data directly
             displayRatingFromProduct(product);
-            loadRelatedProducts(product.category?.id);
+            loadRelatedProducts(product.id, product.category?.id);
             document.getElementById('breadcrumbProduct').textContent = product.name;
         })
         .catch(() => {
@@ -117,42 +117,54 @@ function displayProductDetail(product) {
     loadFavoriteState(product.id);
 }
 
-function loadRelatedProducts(categoryId) {
-    if (!categoryId) {
-        document.getElementById('relatedProducts').innerHTML = '';
+async function loadRelatedProducts(productId, categoryId) {
+    const container = document.getElementById('relatedProducts');
+    let products = [];
+    
+    try {
+        // Ưu tiên sản phẩm "khách hàng cũng mua", thiếu thì bổ sung sản phẩm cùng danh mục
+        const alsoBoughtResponse = await fetch(`/api/products/${productId}/also-bought?limit=4`);
+        if (alsoBoughtResponse.ok) {
+            products = await alsoBoughtResponse.json();
+        }
+        
+        if (products.length < 4 && categoryId) {
+            const response = await fetch(`/api/products/category/${categoryId}?page=0&size=5`);
+            const data = await response.json();
+            const seen = new Set(products.map(p => p.id));
+            seen.add(Number(productId));
+            data.content
+                .filter(p => !seen.has(p.id))
+                .slice(0, 4 - products.length)
+                .forEach(p => products.push(p));
+        }
+    } catch (error) {
+        console.error('Error loading related products:', error);
+    }
+    
+    if (products.length === 0) {
+        container.innerHTML = '';
         return;
     }
     
-    fetch(`/api/products/category/${categoryId}?page=0&size=4`)
-        .then(response => response.json())
-        .then(data => {
-            const products = data.content.slice(0, 4);
-            const container = document.getElementById('relatedProducts');
-            
-            if (products.length === 0) {
-                container.innerHTML = '';
-                return;
-            }
-            
-            container.innerHTML = products.map(product => `
-                <div class="col-lg-3 col-md-6 mb-4">
-                    <div class="card featured-card h-100">
-                        <img src="${product.imageUrl || 'https://via.placeholder.com/300x200/6c5ce7/FFFFFF?text=' + product.name}" 
-                             class="card-img-top" alt="${product.name}">
-                        <div class="card-body d-flex flex-column">
-                            <h5 class="card-title">${product.name}</h5>
-                            ${generateRatingStars(product.averageRating, product.ratingCount)}
-                            <div class="mt-auto d-flex justify-content-between align-items-center">
-                                <span class="h5 text-danger mb-0">${formatPrice(product.discountPrice || product.price)}</span>
-                                <button class="btn btn-outline-primary btn-sm" onclick="viewProduct(${product.id})">
-                                    <i class="fas fa-eye"></i>
-                                </button>
-                            </div>
-                        </div>
+    container.innerHTML = products.map(product => `
+        <div class="col-lg-3 col-md-6 mb-4">
+            <div class="card featured-card h-100">
+                <img src="${product.imageUrl || 'https://via.placeholder.com/300x200/6c5ce7/FFFFFF?text=' + product.name}" 
+                     class="card-img-top" alt="${product.name}">
+                <div class="card-body d-flex flex-column">
+                    <h5 class="card-title">${product.name}</h5>
+                    ${generateRatingStars(product.averageRating, product.ratingCount)}
+                    <div class="mt-auto d-flex justify-content-between align-items-center">
+                        <span class="h5 text-danger mb-0">${formatPrice(product.discountPrice || product.price)}</span>
+                        <button class="btn btn-outline-primary btn-sm" onclick="viewProduct(${product.id})">
+                            <i class="fas fa-eye"></i>
+                        </button>
                     </div>
                 </div>
-            `).join('');
-        });
+            </div>
+        </div>
+    `).join('');
 }
 
 async function addToCart(id) {
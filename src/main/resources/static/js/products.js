@@ -665,24 +665,8 @@ async function toggleFavorite(productId, event) {
     if (!btn) return;
     
     try {
-        // Check current state
-        const checkResponse = await fetch(`/api/favorites/check/${productId}`, {
-            headers: {
-                'Authorization': `Bearer ${token}`,
-                'X-User-Email': userEmail
-            }
-        });
-        
-        if (checkResponse.status === 401) {
-            showToast('Phiên đăng nhập đã hết hạn!', 'warning');
-            setTimeout(() => {
-                window.location.href = '/login';
-            }, 1500);
-            return;
-        }
-        
-        const checkData = await checkResponse.json();
-        const isFavorite = checkData.isFavorite;
+        // Trạng thái hiện tại lấy từ nút (đã đồng bộ bởi loadFavoriteStates), không cần gọi /check
+        const isFavorite = btn.classList.contains('btn-danger');
         
         if (isFavorite) {
             // Remove from favorites
@@ -694,6 +678,13 @@ async function toggleFavorite(productId, event) {
                 }
             });
             
+            if (response.status === 401) {
+                showToast('Phiên đăng nhập đã hết hạn!', 'warning');
+                setTimeout(() => {
+                    window.location.href = '/login';
+                }, 1500);
+                return;
+            }
             if (!response.ok) throw new Error('Cannot remove favorite');
             
             btn.innerHTML = '<i class="far fa-heart"></i>';
@@ -713,6 +704,13 @@ async function toggleFavorite(productId, event) {
                 body: JSON.stringify({ productId: productId })
             });
             
+            if (response.status === 401) {
+                showToast('Phiên đăng nhập đã hết hạn!', 'warning');
+                setTimeout(() => {
+                    window.location.href = '/login';
+                }, 1500);
+                return;
+            }
             if (!response.ok) {
                 const error = await response.json();
                 throw new Error(error.error || 'Cannot add to favorites');
@@ -736,8 +734,14 @@ async function loadFavoriteStates() {
     
     if (!token || !userEmail) return;
     
+    // Chỉ hỏi về các sản phẩm đang hiển thị, một request cho cả trang
+    const productIds = Array.from(document.querySelectorAll('[id^="favoriteBtn-"]'))
+        .map(btn => btn.id.substring('favoriteBtn-'.length))
+        .filter(id => /^\d+$/.test(id));
+    if (productIds.length === 0) return;
+    
     try {
-        const response = await fetch('/api/favorites/product-ids', {
+        const response = await fetch(`/api/favorites/check?productIds=${productIds.join(',')}`, {
             headers: {
                 'Authorization': `Bearer ${token}`,
                 'X-User-Email': userEmail
@@ -7,8 +7,8 @@ document.addEventListener('DOMContentLoaded', function() {
     loadDashboardStats();
     loadAvailableOrders();
     
-    // Auto refresh every 30 seconds for new orders notification
-    setInterval(checkNewOrders, 30000);
+    // Nhận cập nhật đơn mới qua WebSocket thay vì poll định kỳ
+    connectDispatchBoard();
 });
 
 // Check if user has SHIPPER role
@@ -300,7 +300,7 @@ async function loadRecentActivity() {
     if (!token || !userEmail) return;
 
     try {
-        const response = await fetch('/api/shipper/orders/history?limit=10', {
+        const response = await fetch('/api/shipper/orders/history?size=10', {
             headers: {
                 'Authorization': `Bearer ${token}`,
                 'X-User-Email': userEmail
@@ -308,8 +308,8 @@ async function loadRecentActivity() {
         });
 
         if (response.ok) {
-            const orders = await response.json();
-            displayRecentActivity(orders);
+            const page = await response.json();
+            displayRecentActivity(page.content || []);
         } else {
             document.getElementById('activityTable').innerHTML = 
                 '<tr><td colspan="4" class="text-center text-muted">Không có hoạt động gần đây</td></tr>';
@@ -362,8 +362,9 @@ async function loadAvailableOrders() {
         });
 
         if (response.ok) {
-            const orders = await response.json();
-            displayAvailableOrders(orders);
+            const page = await response.json();
+            dispatchBoardVersion = page.version;
+            displayAvailableOrders(page.orders);
         } else {
             document.getElementById('availableOrdersTable').innerHTML = 
                 '<tr><td colspan="7" class="text-center text-danger">Không thể tải danh sách đơn hàng</td></tr>';
@@ -385,7 +386,7 @@ function displayAvailableOrders(orders) {
     }
     
     tableBody.innerHTML = orders.map(order => `
-        <tr>
+        <tr data-order-id="${order.id}">
             <td><strong>${order.orderNumber}</strong></td>
             <td>${order.customerName}</td>
             <td>${order.customerPhone}</td>
@@ -472,28 +473,35 @@ function displayActiveOrders(orders) {
 }
 
 // Load delivery history
-let allHistoryOrders = []; // Store all orders for filtering
+// Lọc và phân trang ở server, thẻ thống kê lấy từ /api/shipper/stats
+const HISTORY_PAGE_SIZE = 20;
+let historyOrders = []; // Các đơn đã tải theo bộ lọc hiện tại
+let historyPage = 0;
 let currentFilter = 'ALL'; // Current filter status
 
-async function loadHistory() {
+async function loadHistory(append = false) {
     const token = localStorage.getItem('authToken') || localStorage.getItem('token');
     const userEmail = localStorage.getItem('authEmail') || localStorage.getItem('userEmail');
     
     if (!token || !userEmail) return;
 
+    const page = append ? historyPage + 1 : 0;
+
     try {
-        const response = await fetch('/api/shipper/orders/history', {
-            headers: {
-                'Authorization': `Bearer ${token}`,
-                'X-User-Email': userEmail
-            }
-        });
+        const [response] = await Promise.all([
+            fetch(`/api/shipper/orders/history?status=${currentFilter}&page=${page}&size=${HISTORY_PAGE_SIZE}`, {
+                headers: {
+                    'Authorization': `Bearer ${token}`
+                }
+            }),
+            append ? Promise.resolve() : loadHistoryStats()
+        ]);
 
         if (response.ok) {
-            const orders = await response.json();
-            allHistoryOrders = orders; // Store all orders
-            updateHistoryStats(orders);
-            filterHistory(currentFilter); // Apply current filter
+            const data = await response.json();
+            historyPage = page;
+            historyOrders = append ? historyOrders.concat(data.content) : data.content;
+            displayHistory(historyOrders, !data.last);
         } else {
             document.getElementById('historyTable').innerHTML = 
                 '<tr><td colspan="6" class="text-center text-danger">Không thể tải lịch sử</td></tr>';
@@ -506,54 +514,35 @@ async function loadHistory() {
 }
 
 // Update history statistics
-function updateHistoryStats(orders) {
-    const totalCount = orders.length;
-    const successCount = orders.filter(o => o.status === 'DELIVERED').length;
-    const failedCount = orders.filter(o => o.status === 'FAILED').length;
-    
-    // Count today's deliveries
-    const today = new Date();
-    today.setHours(0, 0, 0, 0);
-    const todayCount = orders.filter(o => {
-        const orderDate = new Date(o.createdAt);
-        orderDate.setHours(0, 0, 0, 0);
-        return orderDate.getTime() === today.getTime() && (o.status === 'DELIVERED' || o.status === 'FAILED');
-    }).length;
-    
-    document.getElementById('historyTotalCount').textContent = totalCount;
-    document.getElementById('historyTodayCount').textContent = todayCount;
-    document.getElementById('historySuccessCount').textContent = successCount;
-    document.getElementById('historyFailedCount').textContent = failedCount;
+async function loadHistoryStats() {
+    const token = localStorage.getItem('authToken') || localStorage.getItem('token');
+
+    try {
+        const response = await fetch('/api/shipper/stats', {
+            headers: {
+                'Authorization': `Bearer ${token}`
+            }
+        });
+        if (!response.ok) return;
+
+        const stats = await response.json();
+        document.getElementById('historyTotalCount').textContent = stats.historyDeliveries || 0;
+        document.getElementById('historyTodayCount').textContent = stats.todayDeliveries || 0;
+        document.getElementById('historySuccessCount').textContent = stats.completedDeliveries || 0;
+        document.getElementById('historyFailedCount').textContent = stats.failedDeliveries || 0;
+    } catch (error) {
+        console.error('Error loading history stats:', error);
+    }
 }
 
 // Filter history by status
 function filterHistory(status) {
     currentFilter = status;
-    
-    // Filter orders
-    let filteredOrders = allHistoryOrders;
-    if (status === 'DELIVERED') {
-        filteredOrders = allHistoryOrders.filter(order => order.status === 'DELIVERED');
-    } else if (status === 'FAILED') {
-        filteredOrders = allHistoryOrders.filter(order => order.status === 'FAILED');
-    } else if (status === 'TODAY') {
-        // Filter today's deliveries (both success and failed)
-        const today = new Date();
-        today.setHours(0, 0, 0, 0);
-        filteredOrders = allHistoryOrders.filter(order => {
-            const orderDate = new Date(order.createdAt);
-            orderDate.setHours(0, 0, 0, 0);
-            return orderDate.getTime() === today.getTime() && (order.status === 'DELIVERED' || order.status === 'FAILED');
-        });
-    }
-    // If status === 'ALL', show all orders
-    
-    // Display filtered orders
-    displayHistory(filteredOrders);
+    loadHistory();
 }
 
 // Display delivery history
-function displayHistory(orders) {
+function displayHistory(orders, hasMore = false) {
     const tableBody = document.getElementById('historyTable');
     
     if (orders.length === 0) {
@@ -574,7 +563,15 @@ function displayHistory(orders) {
             <td>${getStatusBadge(order.status)}</td>
             <td>${formatDateTime(order.createdAt)}</td>
         </tr>
-    `).join('');
+    `).join('') + (hasMore ? `
+        <tr>
+            <td colspan="6" class="text-center">
+                <button class="btn btn-sm btn-outline-primary" onclick="loadHistory(true)">
+                    <i class="fas fa-chevron-down me-1"></i>Xem thêm
+                </button>
+            </td>
+        </tr>
+    ` : '');
 }
 
 // Accept order (PROCESSING -> SHIPPING)
@@ -603,6 +600,12 @@ async function acceptOrder(orderId) {
             loadDashboardStats();
             loadAvailableOrders();
             loadActiveOrders();
+        } else if (response.status === 409) {
+            // Shipper khác đã nhận đơn này trước
+            const error = await response.json();
+            showToast(error.error || 'Đơn hàng đã được shipper khác nhận', 'warning');
+            const row = document.querySelector(`#availableOrdersTable tr[data-order-id="${orderId}"]`);
+            if (row) row.remove();
         } else {
             const error = await response.json();
             showToast(error.error || 'Không thể nhận đơn hàng', 'danger');
@@ -889,35 +892,60 @@ function displayOrderDetail(order) {
 }
 
 
-// Check for new orders (real-time notification)
-let lastAvailableCount = 0;
-async function checkNewOrders() {
-    const token = localStorage.getItem('authToken') || localStorage.getItem('token');
-    const userEmail = localStorage.getItem('authEmail') || localStorage.getItem('userEmail');
-    
-    if (!token || !userEmail) return;
+// Real-time dispatch board updates over STOMP (/topic/shipper.board)
+let dispatchStompClient = null;
+let dispatchBoardVersion = 0;
 
-    try {
-        const response = await fetch('/api/shipper/stats', {
-            headers: {
-                'Authorization': `Bearer ${token}`,
-                'X-User-Email': userEmail
-            }
+function connectDispatchBoard() {
+    const socket = new SockJS('/ws-support');
+    dispatchStompClient = Stomp.over(socket);
+    dispatchStompClient.debug = null;
+    
+    // Bảng điều phối chỉ dành cho shipper: server xác thực JWT trong frame CONNECT
+    const token = localStorage.getItem('authToken') || localStorage.getItem('token');
+    dispatchStompClient.connect({ Authorization: `Bearer ${token}` }, function() {
+        // Tải lại snapshot khi (re)connect để không bỏ lỡ delta trong lúc mất kết nối
+        loadAvailableOrders();
+        dispatchStompClient.subscribe('/topic/shipper.board', function(message) {
+            handleDispatchBoardEvent(JSON.parse(message.body));
         });
+    }, function(error) {
+        console.error('Dispatch board connection error:', error);
+        setTimeout(connectDispatchBoard, 5000);
+    });
+}
 
-        if (response.ok) {
-            const stats = await response.json();
-            
-            if (stats.availableOrders > lastAvailableCount && lastAvailableCount > 0) {
-                const newOrders = stats.availableOrders - lastAvailableCount;
-                showToast(`🔔 Có ${newOrders} đơn hàng mới!`, 'success');
-                playNotificationSound();
-            }
-            
-            lastAvailableCount = stats.availableOrders;
-        }
-    } catch (error) {
-        console.error('Error checking new orders:', error);
+function handleDispatchBoardEvent(event) {
+    const missedUpdate = event.version > dispatchBoardVersion + 1;
+    dispatchBoardVersion = Math.max(dispatchBoardVersion, event.version);
+    updateAvailableCount(event.availableCount);
+    
+    if (event.type === 'ADDED') {
+        showToast(`🔔 Có đơn hàng mới: ${event.orderNumber}`, 'success');
+        playNotificationSound();
+        // Snapshot được phục vụ từ bộ nhớ server, không tốn truy vấn DB
+        loadAvailableOrders();
+        return;
+    }
+    
+    if (missedUpdate) {
+        loadAvailableOrders();
+        return;
+    }
+    const row = document.querySelector(`#availableOrdersTable tr[data-order-id="${event.orderId}"]`);
+    if (row) {
+        row.remove();
+    }
+    const tableBody = document.getElementById('availableOrdersTable');
+    if (tableBody && !tableBody.querySelector('tr[data-order-id]')) {
+        displayAvailableOrders([]);
+    }
+}
+
+function updateAvailableCount(count) {
+    const element = document.getElementById('availableOrders');
+    if (element) {
+        element.textContent = count;
     }
 }
 
@@ -2,6 +2,7 @@
 let supportStompClient = null;
 let supportSessionId = null;
 let userInfo = null;
+let supportOlderCursor = null;
 
 // Helper function to get auth token
 function getAuthToken() {
@@ -222,18 +223,12 @@ function connectSupportWebSocket() {
 }
 
 function loadSupportMessages() {
-    fetch(`/api/support/session/${supportSessionId}/messages`, {
-        headers: {
-            'Authorization': `Bearer ${localStorage.getItem('authToken')}`,
-            'Content-Type': 'application/json'
-        }
-    })
-    .then(response => response.json())
-    .then(messages => {
+    fetchSupportMessagePage(null)
+    .then(page => {
         const supportMessages = document.getElementById('supportMessages');
         supportMessages.innerHTML = '';
         
-        if (messages.length === 0) {
+        if (page.messages.length === 0) {
             supportMessages.innerHTML = `
                 <div class="text-center py-5 text-muted">
                     <i class="fas fa-comments fa-3x mb-3"></i>
@@ -242,15 +237,9 @@ function loadSupportMessages() {
                 </div>
             `;
         } else {
-            messages.forEach(msg => {
-                displaySupportMessage({
-                    senderType: msg.senderType,
-                    userName: msg.userName,
-                    message: msg.message,
-                    createdAt: msg.createdAt
-                });
-            });
+            page.messages.forEach(msg => displaySupportMessage(toSupportChatMessage(msg)));
         }
+        updateSupportOlderButton(page);
         
         scrollSupportToBottom();
         markSupportAsRead();
@@ -260,7 +249,64 @@ function loadSupportMessages() {
     });
 }
 
-function displaySupportMessage(chatMessage) {
+// Tải trang tin nhắn cũ hơn và chèn lên đầu, giữ nguyên vị trí cuộn
+function loadOlderSupportMessages() {
+    if (!supportOlderCursor) return;
+    const supportMessages = document.getElementById('supportMessages');
+    const previousHeight = supportMessages.scrollHeight;
+    
+    fetchSupportMessagePage(supportOlderCursor)
+    .then(page => {
+        page.messages.slice().reverse().forEach(msg => displaySupportMessage(toSupportChatMessage(msg), true));
+        updateSupportOlderButton(page);
+        supportMessages.scrollTop = supportMessages.scrollHeight - previousHeight;
+    })
+    .catch(error => {
+        console.error('Error loading older support messages:', error);
+    });
+}
+
+function fetchSupportMessagePage(before) {
+    const query = before ? `?before=${encodeURIComponent(before)}` : '';
+    return fetch(`/api/support/session/${supportSessionId}/messages${query}`, {
+        headers: {
+            'Authorization': `Bearer ${localStorage.getItem('authToken')}`,
+            'Content-Type': 'application/json'
+        }
+    })
+    .then(response => response.json());
+}
+
+function toSupportChatMessage(msg) {
+    return {
+        senderType: msg.senderType,
+        userName: msg.userName,
+        message: msg.message,
+        createdAt: msg.createdAt
+    };
+}
+
+function updateSupportOlderButton(page) {
+    const supportMessages = document.getElementById('supportMessages');
+    supportOlderCursor = page.hasMore ? page.nextCursor : null;
+    
+    let button = document.getElementById('supportLoadOlder');
+    if (!supportOlderCursor) {
+        if (button) button.remove();
+        return;
+    }
+    if (!button) {
+        button = document.createElement('button');
+        button.id = 'supportLoadOlder';
+        button.type = 'button';
+        button.className = 'btn btn-sm btn-link w-100';
+        button.textContent = 'Xem tin nhắn cũ hơn';
+        button.addEventListener('click', loadOlderSupportMessages);
+    }
+    supportMessages.insertBefore(button, supportMessages.firstChild);
+}
+
+function displaySupportMessage(chatMessage, prepend = false) {
     const supportMessages = document.getElementById('supportMessages');
     
     // Remove empty state if exists
@@ -285,6 +331,11 @@ function displaySupportMessage(chatMessage) {
         </div>
     `;
     
+    if (prepend) {
+        const olderButton = document.getElementById('supportLoadOlder');
+        supportMessages.insertBefore(messageDiv, olderButton ? olderButton.nextSibling : supportMessages.firstChild);
+        return;
+    }
     supportMessages.appendChild(messageDiv);
     scrollSupportToBottom();
 }
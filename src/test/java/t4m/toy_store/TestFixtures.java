@@ -0,0 +1,43 @@
+package t4m.toy_store;
+
+import t4m.toy_store.auth.entity.User;
+import t4m.toy_store.order.entity.Order;
+import t4m.toy_store.order.entity.OrderStatus;
+
+import java.math.BigDecimal;
+
+/**
+ * Entity mẫu dùng chung cho các test chạy trên H2
+ */
+public final class TestFixtures {
+
+    private TestFixtures() {
+    }
+
+    public static User user(String email) {
+        User user = new User();
+        user.setEmail(email);
+        user.setPasswd("secret");
+        user.setName(email);
+        user.setActivated(true);
+        return user;
+    }
+
+    /**
+     * Đơn COD đang chờ shipper nhận
+     */
+    public static Order processingOrder(User customer, String orderNumber) {
+        return Order.builder()
+                .user(customer)
+                .orderNumber(orderNumber)
+                .customerName("Customer " + orderNumber)
+                .customerEmail(customer.getEmail())
+                .customerPhone("0900000000")
+                .shippingAddress("Address " + orderNumber)
+                .paymentMethod("COD")
+                .totalAmount(BigDecimal.valueOf(100000))
+                .status(OrderStatus.PROCESSING)
+                .paymentStatus("PENDING")
+                .build();
+    }
+}
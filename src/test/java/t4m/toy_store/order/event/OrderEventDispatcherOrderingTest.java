@@ -0,0 +1,132 @@
+package t4m.toy_store.order.event;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import t4m.toy_store.config.MaintenanceJobRunner;
+import t4m.toy_store.order.entity.OrderStatus;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@JdbcTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:outbox;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password="
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderEventDispatcherOrderingTest {
+
+    private static final long ORDER_ID = 7L;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+    private final RecordingListener listener = new RecordingListener();
+    private OrderEventDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor();
+        dispatcher = new OrderEventDispatcher(jdbcTemplate, objectMapper, List.of(listener), transactionManager,
+                executor, new MaintenanceJobRunner(executor), new SimpleMeterRegistry(),
+                100, 60, 600, 15, 7);
+        dispatcher.init();
+        jdbcTemplate.update("DELETE FROM order_event_outbox");
+        jdbcTemplate.update("DELETE FROM order_event_consumed");
+    }
+
+    @Test
+    void laterEventWaitsUntilEarlierEventOfSameOrderSucceeds() throws Exception {
+        long first = insert(OrderEventType.CREATED);
+        long second = insert(OrderEventType.PAYMENT_SUCCEEDED);
+        listener.failing = true;
+
+        // Sự kiện 1 lỗi: sự kiện 2 trong cùng lô được trả lại, không được giao
+        dispatcher.dispatchBatch();
+        assertEquals(List.of(), listener.delivered);
+
+        // Sự kiện 1 đang chờ backoff: vòng poll kế tiếp không được nhận sự kiện 2
+        assertEquals(0, dispatcher.dispatchBatch());
+        assertEquals(List.of(), listener.delivered);
+
+        // Hết backoff và listener đã ổn: giao đúng thứ tự 1 rồi 2
+        listener.failing = false;
+        makeAvailable(first);
+        dispatcher.dispatchBatch();
+        assertEquals(List.of(OrderEventType.CREATED, OrderEventType.PAYMENT_SUCCEEDED), listener.delivered);
+        assertEquals(2, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM order_event_outbox WHERE processed_at IS NOT NULL AND id IN (?, ?)",
+                Integer.class, first, second));
+    }
+
+    @Test
+    void laterEventIsNotClaimedWhileAnotherNodeHoldsEarlierEvent() throws Exception {
+        long first = insert(OrderEventType.CREATED);
+        insert(OrderEventType.PAYMENT_SUCCEEDED);
+        jdbcTemplate.update("UPDATE order_event_outbox SET claimed_by = 'other-node', claimed_until = ? WHERE id = ?",
+                Timestamp.valueOf(LocalDateTime.now().plusMinutes(1)), first);
+
+        assertEquals(0, dispatcher.dispatchBatch());
+        assertEquals(List.of(), listener.delivered);
+    }
+
+    private long insert(OrderEventType type) throws Exception {
+        OrderEvent event = new OrderEvent(type, ORDER_ID, "ORD-ORDERING", 1L, "Customer", "customer@test.com",
+                OrderStatus.PENDING, null, null, BigDecimal.valueOf(100000), null, List.of(), LocalDateTime.now());
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now().minusSeconds(1));
+        jdbcTemplate.update("INSERT INTO order_event_outbox (event_type, order_id, payload, created_at, available_at) "
+                + "VALUES (?, ?, ?, ?, ?)", type.name(), ORDER_ID, objectMapper.writeValueAsString(event), now, now);
+        return jdbcTemplate.queryForObject("SELECT MAX(id) FROM order_event_outbox", Long.class);
+    }
+
+    private void makeAvailable(long eventId) {
+        jdbcTemplate.update("UPDATE order_event_outbox SET available_at = ? WHERE id = ?",
+                Timestamp.valueOf(LocalDateTime.now().minusSeconds(1)), eventId);
+    }
+
+    private static class RecordingListener implements OrderEventListener {
+
+        private final List<OrderEventType> delivered = new CopyOnWriteArrayList<>();
+        private volatile boolean failing;
+
+        @Override
+        public boolean supports(OrderEventType type) {
+            return true;
+        }
+
+        @Override
+        public void onOrderEvent(OrderEvent event) {
+            if (failing && event.type() == OrderEventType.CREATED) {
+                throw new IllegalStateException("SMTP down");
+            }
+            delivered.add(event.type());
+        }
+
+        @Override
+        public boolean deduplicate() {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package t4m.toy_store.order.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import t4m.toy_store.auth.entity.User;
+import t4m.toy_store.auth.repository.UserRepository;
+import t4m.toy_store.order.entity.Order;
+import t4m.toy_store.order.entity.OrderStatus;
+import t4m.toy_store.order.event.OrderEventPublisher;
+import t4m.toy_store.shipper.controller.ShipperController;
+import t4m.toy_store.shipper.service.DispatchBoardService;
+import t4m.toy_store.shipper.service.ShipperService;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static t4m.toy_store.TestFixtures.processingOrder;
+import static t4m.toy_store.TestFixtures.user;
+
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:claim;MODE=MySQL;NON_KEYWORDS=USER;LOCK_TIMEOUT=10000;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(ShipperService.class)
+class OrderClaimConcurrencyTest {
+
+    private static final int SHIPPERS = 16;
+    private static final int ORDERS = 20;
+
+    @Autowired
+    private ShipperService shipperService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockitoBean
+    private OrderEventPublisher orderEventPublisher;
+
+    @MockitoBean
+    private DispatchBoardService dispatchBoardService;
+
+    @Test
+    void eachOrderIsClaimedByExactlyOneShipperUnderContention() throws Exception {
+        User customer = userRepository.save(user("customer@test.com"));
+        List<User> shippers = new ArrayList<>();
+        for (int i = 0; i < SHIPPERS; i++) {
+            shippers.add(userRepository.save(user("shipper" + i + "@test.com")));
+        }
+        List<Long> orderIds = new ArrayList<>();
+        for (int i = 0; i < ORDERS; i++) {
+            orderIds.add(orderRepository.save(processingOrder(customer, "TEST-" + i)).getId());
+        }
+
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        ExecutorService pool = Executors.newFixedThreadPool(SHIPPERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+
+        // Mỗi shipper cố nhận tất cả đơn cùng lúc
+        for (User shipper : shippers) {
+            results.add(pool.submit(() -> {
+                start.await();
+                int won = 0;
+                for (Long orderId : orderIds) {
+                    Integer updated = tx.execute(status -> orderRepository.claimOrder(orderId, shipper,
+                            OrderStatus.PROCESSING, OrderStatus.SHIPPING, LocalDateTime.now()));
+                    won += updated != null ? updated : 0;
+                }
+                return won;
+            }));
+        }
+        start.countDown();
+
+        int totalClaims = 0;
+        for (Future<Integer> result : results) {
+            totalClaims += result.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        assertEquals(ORDERS, totalClaims, "Every order must be won exactly once");
+        for (Long orderId : orderIds) {
+            Order order = tx.execute(status -> {
+                Order loaded = orderRepository.findById(orderId).orElseThrow();
+                assertNotNull(loaded.getShipper());
+                loaded.getShipper().getId();
+                return loaded;
+            });
+            assertEquals(OrderStatus.SHIPPING, order.getStatus());
+        }
+    }
+
+    @Test
+    void claimFailsOnceOrderHasShipper() {
+        User customer = userRepository.save(user("customer2@test.com"));
+        User first = userRepository.save(user("first@test.com"));
+        User second = userRepository.save(user("second@test.com"));
+        Long orderId = orderRepository.save(processingOrder(customer, "TEST-100")).getId();
+
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Integer won = tx.execute(status -> orderRepository.claimOrder(orderId, first,
+                OrderStatus.PROCESSING, OrderStatus.SHIPPING, LocalDateTime.now()));
+        Integer lost = tx.execute(status -> orderRepository.claimOrder(orderId, second,
+                OrderStatus.PROCESSING, OrderStatus.SHIPPING, LocalDateTime.now()));
+
+        assertEquals(1, won);
+        assertEquals(0, lost);
+    }
+
+    @Test
+    void twoShippersAcceptingTheSameOrderGetOneSuccessAndOneConflict() throws Exception {
+        User customer = userRepository.save(user("accept-customer@test.com"));
+        User first = userRepository.save(user("accept-first@test.com"));
+        User second = userRepository.save(user("accept-second@test.com"));
+        ShipperController controller = new ShipperController(shipperService);
+        // Mỗi request chạy trong một transaction như open-in-view để OrderResponse đọc được order items
+        TransactionTemplate request = new TransactionTemplate(transactionManager);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+
+        try {
+            for (int i = 0; i < ORDERS; i++) {
+                Long orderId = orderRepository.save(processingOrder(customer, "ACCEPT-" + i)).getId();
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<ResponseEntity<?>>> responses = new ArrayList<>();
+                for (User shipper : List.of(first, second)) {
+                    responses.add(pool.submit(() -> {
+                        start.await();
+                        return request.execute(status -> {
+                            ResponseEntity<?> response = controller.acceptOrder(orderId, shipper);
+                            if (response.getStatusCode() != HttpStatus.OK) {
+                                // Service đã đánh dấu rollback khi ném lỗi: rollback tường minh như request lỗi
+                                status.setRollbackOnly();
+                            }
+                            return response;
+                        });
+                    }));
+                }
+                start.countDown();
+
+                int accepted = 0;
+                int conflicts = 0;
+                for (Future<ResponseEntity<?>> future : responses) {
+                    ResponseEntity<?> response = future.get(30, TimeUnit.SECONDS);
+                    if (response.getStatusCode() == HttpStatus.OK) {
+                        accepted++;
+                    } else if (response.getStatusCode() == HttpStatus.CONFLICT) {
+                        assertEquals("ORDER_ALREADY_CLAIMED", ((Map<?, ?>) response.getBody()).get("code"));
+                        conflicts++;
+                    }
+                }
+                assertEquals(1, accepted, "Exactly one shipper must win order " + orderId);
+                assertEquals(1, conflicts, "The other shipper must get 409 for order " + orderId);
+                assertEquals(OrderStatus.SHIPPING, orderRepository.findById(orderId).orElseThrow().getStatus());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package t4m.toy_store.order.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+import t4m.toy_store.order.entity.OrderItem;
+import t4m.toy_store.product.entity.Product;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ghi một checkout 20 dòng: từng câu một (cách cũ: save product + cascade OrderItem IDENTITY)
+ * so với OrderCheckoutWriter (một batch UPDATE kho + một batch INSERT order_items)
+ * Chạy trên H2 in-memory nên chỉ đo phần xử lý statement; với MySQL qua mạng,
+ * mỗi statement tiết kiệm được còn là một round-trip
+ * Chạy: mvn -Pbenchmark test-compile exec:exec -Dbenchmark.include=CheckoutWriteBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CheckoutWriteBenchmark {
+
+    private static final int CART_LINES = 20;
+
+    private SingleConnectionDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private OrderCheckoutWriter writer;
+    private List<OrderItem> items;
+    private Map<Long, Integer> quantities;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataSource = new SingleConnectionDataSource(
+                "jdbc:h2:mem:checkout;MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "", true);
+        dataSource.setAutoCommit(false);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        writer = new OrderCheckoutWriter(jdbcTemplate);
+
+        jdbcTemplate.execute("CREATE TABLE products (id BIGINT PRIMARY KEY, name VARCHAR(255), stock INT NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE orders (id BIGINT AUTO_INCREMENT PRIMARY KEY, order_number VARCHAR(32))");
+        jdbcTemplate.execute("""
+                CREATE TABLE order_items (
+                    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+                    order_id BIGINT NOT NULL,
+                    product_id BIGINT NOT NULL,
+                    product_name VARCHAR(255) NOT NULL,
+                    product_image_url VARCHAR(255),
+                    quantity INT NOT NULL,
+                    price DECIMAL(19, 2) NOT NULL)
+                """);
+
+        items = new ArrayList<>();
+        quantities = new LinkedHashMap<>();
+        for (long id = 1; id <= CART_LINES; id++) {
+            jdbcTemplate.update("INSERT INTO products (id, name, stock) VALUES (?, ?, ?)",
+                    id, "Product " + id, 1_000_000_000);
+            Product product = new Product();
+            product.setId(id);
+            items.add(OrderItem.builder()
+                    .product(product)
+                    .productName("Product " + id)
+                    .productImageUrl("https://res.cloudinary.com/demo/product-" + id + ".jpg")
+                    .quantity(1 + (int) (id % 3))
+                    .price(BigDecimal.valueOf(99_000 + id * 1_000))
+                    .build());
+            quantities.put(id, 1 + (int) (id % 3));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        dataSource.destroy();
+    }
+
+    @Benchmark
+    public long perLineStatements() {
+        return transactionTemplate.execute(status -> {
+            long orderId = insertOrder();
+            for (OrderItem item : items) {
+                jdbcTemplate.update("UPDATE products SET stock = stock - ? WHERE id = ?",
+                        item.getQuantity(), item.getProduct().getId());
+            }
+            for (OrderItem item : items) {
+                GeneratedKeyHolder keys = new GeneratedKeyHolder();
+                jdbcTemplate.update(con -> {
+                    PreparedStatement ps = con.prepareStatement(
+                            "INSERT INTO order_items (order_id, product_id, product_name, product_image_url, "
+                                    + "quantity, price) VALUES (?, ?, ?, ?, ?, ?)",
+                            Statement.RETURN_GENERATED_KEYS);
+                    ps.setLong(1, orderId);
+                    ps.setLong(2, item.getProduct().getId());
+                    ps.setString(3, item.getProductName());
+                    ps.setString(4, item.getProductImageUrl());
+                    ps.setInt(5, item.getQuantity());
+                    ps.setBigDecimal(6, item.getPrice());
+                    return ps;
+                }, keys);
+            }
+            status.setRollbackOnly();
+            return orderId;
+        });
+    }
+
+    @Benchmark
+    public long batchedStatements() {
+        return transactionTemplate.execute(status -> {
+            long orderId = insertOrder();
+            if (!writer.decrementStock(quantities).isEmpty()) {
+                throw new IllegalStateException("Stock exhausted");
+            }
+            writer.insertItems(orderId, items);
+            status.setRollbackOnly();
+            return orderId;
+        });
+    }
+
+    private long insertOrder() {
+        GeneratedKeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement("INSERT INTO orders (order_number) VALUES (?)",
+                    Statement.RETURN_GENERATED_KEYS);
+            ps.setString(1, "ORD0000000000000000001");
+            return ps;
+        }, keys);
+        return keys.getKey().longValue();
+    }
+}
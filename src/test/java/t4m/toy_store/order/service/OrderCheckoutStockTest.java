@@ -0,0 +1,135 @@
+package t4m.toy_store.order.service;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import t4m.toy_store.auth.entity.User;
+import t4m.toy_store.auth.repository.UserRepository;
+import t4m.toy_store.cart.entity.Cart;
+import t4m.toy_store.cart.entity.CartItem;
+import t4m.toy_store.cart.repository.CartRepository;
+import t4m.toy_store.order.dto.CheckoutRequest;
+import t4m.toy_store.order.dto.OrderResponse;
+import t4m.toy_store.order.event.OrderEventPublisher;
+import t4m.toy_store.product.entity.Product;
+import t4m.toy_store.product.repository.ProductRepository;
+import t4m.toy_store.product.service.CatalogCache;
+import t4m.toy_store.voucher.service.VoucherService;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static t4m.toy_store.TestFixtures.user;
+
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:checkout;MODE=MySQL;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({OrderService.class, OrderCheckoutWriter.class, OrderNumberGenerator.class})
+class OrderCheckoutStockTest {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockitoBean
+    private VoucherService voucherService;
+
+    @MockitoBean
+    private OrderEventPublisher orderEventPublisher;
+
+    @MockitoBean
+    private CatalogCache catalogCache;
+
+    @Test
+    void checkoutDecrementsStockAndInsertsItems() {
+        User customer = userRepository.save(user("checkout-ok@test.com"));
+        Product robot = productRepository.save(product("Robot", 10));
+        Product puzzle = productRepository.save(product("Puzzle", 5));
+        cartRepository.save(cart(customer, robot, 2, puzzle, 3));
+        entityManager.flush();
+
+        OrderResponse order = orderService.createOrder(customer.getEmail(), checkout(customer));
+
+        assertEquals(8, stockInDb(robot));
+        assertEquals(2, stockInDb(puzzle));
+        assertEquals(2, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM order_items WHERE order_id = ?", Integer.class, order.getId()));
+    }
+
+    @Test
+    void lineWithInsufficientStockInDbRejectsCheckoutEvenWhenEntityLooksInStock() {
+        User customer = userRepository.save(user("checkout-short@test.com"));
+        Product robot = productRepository.save(product("Robot", 10));
+        Product puzzle = productRepository.save(product("Puzzle", 5));
+        cartRepository.save(cart(customer, robot, 2, puzzle, 3));
+        entityManager.flush();
+
+        // Checkout khác vừa mua gần hết Puzzle: entity trong persistence context vẫn thấy stock = 5
+        jdbcTemplate.update("UPDATE products SET stock = 1 WHERE id = ?", puzzle.getId());
+        assertEquals(5, puzzle.getStock());
+
+        RuntimeException error = assertThrows(RuntimeException.class,
+                () -> orderService.createOrder(customer.getEmail(), checkout(customer)));
+
+        assertTrue(error.getMessage().contains("Puzzle"), error.getMessage());
+        assertEquals(1, stockInDb(puzzle));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM orders", Integer.class));
+    }
+
+    private int stockInDb(Product product) {
+        return jdbcTemplate.queryForObject("SELECT stock FROM products WHERE id = ?", Integer.class, product.getId());
+    }
+
+    private static Product product(String name, int stock) {
+        return Product.builder()
+                .name(name)
+                .price(BigDecimal.valueOf(100000))
+                .stock(stock)
+                .featured(false)
+                .build();
+    }
+
+    private static Cart cart(User customer, Product first, int firstQuantity, Product second, int secondQuantity) {
+        Cart cart = Cart.builder().user(customer).build();
+        cart.addItem(CartItem.builder().product(first).quantity(firstQuantity).price(first.getPrice()).build());
+        cart.addItem(CartItem.builder().product(second).quantity(secondQuantity).price(second.getPrice()).build());
+        return cart;
+    }
+
+    private static CheckoutRequest checkout(User customer) {
+        return CheckoutRequest.builder()
+                .customerName("Customer")
+                .customerEmail(customer.getEmail())
+                .customerPhone("0900000000")
+                .shippingAddress("Address")
+                .paymentMethod("COD")
+                .build();
+    }
+}
@@ -0,0 +1,134 @@
+package t4m.toy_store.order.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderNumberGeneratorTest {
+
+    private static final long NOW = OrderNumberGenerator.EPOCH_MILLIS + 86_400_000L * 700;
+    private static final int THREADS = 16;
+    private static final int IDS_PER_THREAD = 20_000;
+    private static final int NODES = 8;
+
+    @Test
+    void idsAreUniqueAndIncreasingPerThreadOnOneNode() throws Exception {
+        // Đồng hồ đứng yên: 320k mã chỉ trong "một ms" buộc phải mượn ms kế tiếp
+        OrderNumberGenerator generator = new OrderNumberGenerator(7, () -> NOW);
+        Set<Long> all = ConcurrentHashMap.newKeySet();
+
+        runConcurrently(THREADS, thread -> {
+            long previous = Long.MIN_VALUE;
+            for (int i = 0; i < IDS_PER_THREAD; i++) {
+                long id = generator.nextId();
+                assertTrue(id > previous, "ids must increase within a thread");
+                previous = id;
+                all.add(id);
+            }
+        });
+
+        assertEquals(THREADS * IDS_PER_THREAD, all.size());
+    }
+
+    @Test
+    void idsAreUniqueAcrossSimulatedNodes() throws Exception {
+        // Các node dùng chung một đồng hồ tiến chậm để mã của các node rơi vào cùng ms
+        AtomicLong ticks = new AtomicLong();
+        List<OrderNumberGenerator> nodes = new ArrayList<>();
+        for (int node = 0; node < NODES; node++) {
+            nodes.add(new OrderNumberGenerator(node, () -> NOW + ticks.incrementAndGet() / 1000));
+        }
+        Set<String> all = ConcurrentHashMap.newKeySet();
+
+        runConcurrently(NODES * 2, thread -> {
+            OrderNumberGenerator generator = nodes.get(thread % NODES);
+            for (int i = 0; i < IDS_PER_THREAD; i++) {
+                all.add(generator.nextOrderNumber());
+            }
+        });
+
+        assertEquals(NODES * 2 * IDS_PER_THREAD, all.size());
+    }
+
+    @Test
+    void clockGoingBackwardsDoesNotRepeatIds() {
+        AtomicLong clock = new AtomicLong(NOW);
+        OrderNumberGenerator generator = new OrderNumberGenerator(1, clock::get);
+        Set<Long> seen = new HashSet<>();
+        long previous = Long.MIN_VALUE;
+        for (int i = 0; i < 10_000; i++) {
+            // Lùi 5 ms sau mỗi 1000 mã (NTP chỉnh giờ)
+            clock.addAndGet(i % 1000 == 999 ? -5 : 1);
+            long id = generator.nextId();
+            assertTrue(id > previous);
+            assertTrue(seen.add(id));
+            previous = id;
+        }
+    }
+
+    @Test
+    void orderNumbersAreAlphanumericAndSortByTime() {
+        AtomicLong clock = new AtomicLong(NOW);
+        OrderNumberGenerator generator = new OrderNumberGenerator(OrderNumberGenerator.MAX_NODE_ID, clock::get);
+        String first = generator.nextOrderNumber();
+        clock.addAndGet(1);
+        String second = generator.nextOrderNumber();
+
+        assertTrue(first.matches("ORD\\d{19}"), first);
+        assertTrue(first.compareTo(second) < 0);
+        assertEquals(OrderNumberGenerator.MAX_NODE_ID, generator.nodeId());
+        assertEquals("ORD0000000000000000042", OrderNumberGenerator.format(42));
+        assertThrows(IllegalArgumentException.class, () -> new OrderNumberGenerator(1024, clock::get));
+    }
+
+    @Test
+    void derivedNodeIdIsRejectedWhenSeveralNodesMayRun() {
+        assertThrows(IllegalStateException.class, () -> new OrderNumberGenerator(-1, "cluster"));
+        assertThrows(IllegalStateException.class, () -> new OrderNumberGenerator(-1, "relay"));
+        assertEquals(5, new OrderNumberGenerator(5, "cluster").nodeId());
+
+        int derived = new OrderNumberGenerator(-1, "simple").nodeId();
+        assertTrue(derived >= 0 && derived <= OrderNumberGenerator.MAX_NODE_ID);
+    }
+
+    private static void runConcurrently(int threads, ThreadTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    task.run(thread);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @FunctionalInterface
+    private interface ThreadTask {
+        void run(int thread) throws Exception;
+    }
+}
@@ -0,0 +1,109 @@
+package t4m.toy_store.payment.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import t4m.toy_store.payment.util.VNPayUtil;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * So sánh throughput ký/kiểm tra chữ ký VNPay: VNPayUtil (cách cũ) với VNPaySigner
+ * Chạy: mvn -Pbenchmark test-compile exec:exec
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class VNPaySignerBenchmark {
+
+    private static final String SECRET = "BENCHMARKSECRETKEY0123456789ABCDEF";
+
+    private VNPaySigner signer;
+    private Map<String, String> params;
+    private Map<String, String> callback;
+
+    @Setup
+    public void setUp() {
+        signer = new VNPaySigner(SECRET);
+
+        // Bộ tham số giống một lần tạo URL thanh toán thật
+        params = new HashMap<>();
+        params.put("vnp_Version", "2.1.0");
+        params.put("vnp_Command", "pay");
+        params.put("vnp_TmnCode", "T4MTOYS1");
+        params.put("vnp_Amount", "125000000");
+        params.put("vnp_CurrCode", "VND");
+        params.put("vnp_TxnRef", "ORD1730000000000");
+        params.put("vnp_OrderInfo", "Thanh toan don hang ORD1730000000000");
+        params.put("vnp_OrderType", "other");
+        params.put("vnp_Locale", "vn");
+        params.put("vnp_ReturnUrl", "http://localhost:8080/api/payment/vnpay/return");
+        params.put("vnp_IpAddr", "127.0.0.1");
+        params.put("vnp_CreateDate", "20241019103000");
+        params.put("vnp_ExpireDate", "20241019104500");
+
+        // Callback VNPay gửi về: tham số + chữ ký
+        callback = new HashMap<>(params);
+        callback.put("vnp_ResponseCode", "00");
+        callback.put("vnp_TransactionNo", "14123456");
+        callback.put("vnp_BankCode", "NCB");
+        callback.put("vnp_PayDate", "20241019103512");
+        callback.put(VNPaySigner.SECURE_HASH, legacySign(callback));
+        callback.put(VNPaySigner.SECURE_HASH_TYPE, "HmacSHA512");
+
+        // Hai cách phải cho kết quả giống hệt nhau, nếu không số đo không có ý nghĩa
+        String legacyQuery = VNPayUtil.buildQuery(params) + "&vnp_SecureHash=" + legacySign(params);
+        if (!legacyQuery.equals(signer.signedQuery(params))) {
+            throw new IllegalStateException("VNPaySigner query differs from VNPayUtil");
+        }
+        if (!signer.verify(callback) || !legacyVerify(callback)) {
+            throw new IllegalStateException("Callback signature does not verify");
+        }
+    }
+
+    @Benchmark
+    public String legacySignedQuery() {
+        return VNPayUtil.buildQuery(params) + "&vnp_SecureHash=" + legacySign(params);
+    }
+
+    @Benchmark
+    public String signerSignedQuery() {
+        return signer.signedQuery(params);
+    }
+
+    @Benchmark
+    public boolean legacyVerify() {
+        return legacyVerify(callback);
+    }
+
+    @Benchmark
+    public boolean signerVerify() {
+        return signer.verify(callback);
+    }
+
+    private static String legacySign(Map<String, String> fields) {
+        return VNPayUtil.hmacSHA512(SECRET, VNPayUtil.hashAllFields(fields));
+    }
+
+    // Cách VNPayService kiểm tra chữ ký trước đây
+    private static boolean legacyVerify(Map<String, String> params) {
+        Map<String, String> fields = new HashMap<>(params);
+        String secureHash = fields.remove(VNPaySigner.SECURE_HASH);
+        fields.remove(VNPaySigner.SECURE_HASH_TYPE);
+        return legacySign(fields).equalsIgnoreCase(secureHash);
+    }
+}
@@ -0,0 +1,122 @@
+package t4m.toy_store.payment.service;
+
+import org.junit.jupiter.api.Test;
+import t4m.toy_store.payment.util.VNPayUtil;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VNPaySignerTest {
+
+    private static final String SECRET = "TESTSECRETKEY0123456789ABCDEF";
+
+    private final VNPaySigner signer = new VNPaySigner(SECRET);
+
+    @Test
+    void signedQueryMatchesLegacyUtil() {
+        Map<String, String> params = paymentParams();
+
+        assertEquals(legacySign(params), signer.sign(params));
+        assertEquals(VNPayUtil.buildQuery(params) + "&vnp_SecureHash=" + legacySign(params),
+                signer.signedQuery(params));
+    }
+
+    @Test
+    void encodingMatchesLegacyUtilForSpecialAndNonAsciiValues() {
+        Map<String, String> params = paymentParams();
+        params.put("vnp_OrderInfo", "Thanh toán đơn hàng #ORD-1 (2 món) & quà 🎁 ~50%/+");
+        params.put("vnp_ReturnUrl", "https://shop.example/api/payment/vnpay/return?lang=vi&x=a b");
+        // Trường rỗng đứng cuối: mã mẫu VNPay để lại dấu '&' thừa, signer phải giữ nguyên hành vi đó
+        params.put("vnp_ZzEmpty", "");
+
+        assertEquals(legacySign(params), signer.sign(params));
+        assertEquals(VNPayUtil.buildQuery(params) + "&vnp_SecureHash=" + legacySign(params),
+                signer.signedQuery(params));
+    }
+
+    @Test
+    void verifyAcceptsCallbackSignedByLegacyUtil() {
+        Map<String, String> callback = signedCallback();
+
+        assertTrue(signer.verify(callback));
+        // VNPay có thể gửi chữ ký hex hoa
+        callback.put(VNPaySigner.SECURE_HASH, callback.get(VNPaySigner.SECURE_HASH).toUpperCase());
+        assertTrue(signer.verify(callback));
+    }
+
+    @Test
+    void verifyRejectsTamperedSignature() {
+        Map<String, String> callback = signedCallback();
+        String hash = callback.get(VNPaySigner.SECURE_HASH);
+        char last = hash.charAt(hash.length() - 1);
+        callback.put(VNPaySigner.SECURE_HASH, hash.substring(0, hash.length() - 1) + (last == '0' ? '1' : '0'));
+
+        assertFalse(signer.verify(callback));
+    }
+
+    @Test
+    void verifyRejectsTamperedParameter() {
+        Map<String, String> callback = signedCallback();
+        callback.put("vnp_Amount", "1");
+
+        assertFalse(signer.verify(callback));
+    }
+
+    @Test
+    void verifyRejectsMissingOrMalformedSignature() {
+        Map<String, String> callback = signedCallback();
+        String hash = callback.get(VNPaySigner.SECURE_HASH);
+
+        callback.put(VNPaySigner.SECURE_HASH, hash.substring(2));
+        assertFalse(signer.verify(callback));
+
+        callback.put(VNPaySigner.SECURE_HASH, "zz" + hash.substring(2));
+        assertFalse(signer.verify(callback));
+
+        callback.remove(VNPaySigner.SECURE_HASH);
+        assertFalse(signer.verify(callback));
+    }
+
+    @Test
+    void verifyRejectsSignatureMadeWithAnotherSecret() {
+        Map<String, String> callback = signedCallback();
+
+        assertFalse(new VNPaySigner("ANOTHERSECRET").verify(callback));
+    }
+
+    private static Map<String, String> paymentParams() {
+        Map<String, String> params = new HashMap<>();
+        params.put("vnp_Version", "2.1.0");
+        params.put("vnp_Command", "pay");
+        params.put("vnp_TmnCode", "T4MTOYS1");
+        params.put("vnp_Amount", "125000000");
+        params.put("vnp_CurrCode", "VND");
+        params.put("vnp_TxnRef", "ORD1730000000000");
+        params.put("vnp_OrderInfo", "Thanh toan don hang ORD1730000000000");
+        params.put("vnp_OrderType", "other");
+        params.put("vnp_Locale", "vn");
+        params.put("vnp_ReturnUrl", "http://localhost:8080/api/payment/vnpay/return");
+        params.put("vnp_IpAddr", "127.0.0.1");
+        params.put("vnp_CreateDate", "20241019103000");
+        return params;
+    }
+
+    private static Map<String, String> signedCallback() {
+        Map<String, String> callback = paymentParams();
+        callback.put("vnp_ResponseCode", "00");
+        callback.put("vnp_TransactionNo", "14123456");
+        callback.put("vnp_BankCode", "NCB");
+        callback.put("vnp_PayDate", "20241019103512");
+        callback.put(VNPaySigner.SECURE_HASH, legacySign(callback));
+        callback.put(VNPaySigner.SECURE_HASH_TYPE, "HmacSHA512");
+        return callback;
+    }
+
+    private static String legacySign(Map<String, String> fields) {
+        return VNPayUtil.hmacSHA512(SECRET, VNPayUtil.hashAllFields(fields));
+    }
+}